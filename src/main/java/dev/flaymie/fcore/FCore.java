@@ -19,6 +19,7 @@ import dev.flaymie.fcore.core.di.DependencyContainer;
 import dev.flaymie.fcore.core.di.ServiceScanner;
 import dev.flaymie.fcore.core.event.EventManager;
 import dev.flaymie.fcore.core.event.EventListenerScanner;
+import dev.flaymie.fcore.core.index.ComponentIndex;
 import dev.flaymie.fcore.core.permission.PermissionManagerImpl;
 import dev.flaymie.fcore.integration.IntegrationManager;
 import dev.flaymie.fcore.core.security.SecurityManager;
@@ -45,6 +46,7 @@ public final class FCore extends JavaPlugin {
     private IntegrationManager integrationManager;
     private PluginLoader pluginLoader;
     private SecurityManager securityManager;
+    private ComponentIndex componentIndex;
 
     @Override
     public void onEnable() {
@@ -87,6 +89,12 @@ public final class FCore extends JavaPlugin {
         // Создаем конфигурацию
         coreConfig = new FCoreConfig(this);
         
+        // Читаем индекс компонентов, собранный при компиляции
+        componentIndex = ComponentIndex.load(getClassLoader(), logger);
+        if (componentIndex == null) {
+            logger.warning("Индекс компонентов " + ComponentIndex.PATH + " не найден, классы будут найдены сканированием JAR");
+        }
+        
         // Создаем контейнер зависимостей
         dependencyContainer = new DependencyContainer(this);
         
@@ -301,6 +309,14 @@ public final class FCore extends JavaPlugin {
         return permissionManager;
     }
     
+    /**
+     * Получение индекса компонентов
+     * @return индекс или null, если плагин собран без процессора аннотаций
+     */
+    public ComponentIndex getComponentIndex() {
+        return componentIndex;
+    }
+    
     /**
      * Получение менеджера отладки
      * @return менеджер отладки
@@ -0,0 +1,22 @@
+package dev.flaymie.fcore.api.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает событие FCore для асинхронной доставки.
+ * EventManager.callEvent ставит такое событие в очередь и сразу возвращает управление,
+ * а обработчики вызываются на пуле потоков FCore. События с одинаковым
+ * {@code FCoreEvent.getOrderingKey()} доставляются строго в порядке вызова.
+ * Такое событие нельзя отменить, и оно должно создаваться как асинхронное ({@code super(true)})
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AsyncEvent {
+}
@@ -0,0 +1,47 @@
+package dev.flaymie.fcore.api.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Аннотация для прореживания частых событий перед вызовом обработчика
+ * Используется вместе с @org.bukkit.event.EventHandler в слушателях, зарегистрированных через EventManager
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+
+    /**
+     * Минимальное перемещение для PlayerMoveEvent: обработчик вызывается,
+     * только если игрок сменил блок или чанк
+     * @return шаг перемещения
+     */
+    MoveGranularity moveGranularity() default MoveGranularity.ANY;
+
+    /**
+     * Вызывать обработчик не чаще одного раза в указанное количество тиков.
+     * Для событий игрока интервал считается отдельно по каждому игроку
+     * @return интервал в тиках, 0 - без ограничения
+     */
+    int sampleEveryTicks() default 0;
+
+    /**
+     * Вызывать обработчик не больше одного раза за тик (для событий игрока - по каждому игроку)
+     * @return флаг отбрасывания повторов в пределах тика
+     */
+    boolean dedupePerTick() default false;
+
+    /**
+     * Шаг перемещения игрока
+     */
+    enum MoveGranularity {
+        /** Любое перемещение, включая повороты головы */
+        ANY,
+        /** Смена блока */
+        BLOCK,
+        /** Смена чанка */
+        CHUNK
+    }
+}
@@ -1,15 +1,28 @@
 package dev.flaymie.fcore.api.event;
 
+import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.api.annotation.AsyncEvent;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Базовый класс для всех кастомных событий FCore
  */
 public abstract class FCoreEvent extends Event implements Cancellable {
     
     private static final HandlerList handlers = new HandlerList();
+    private static final ClassValue<Boolean> ASYNC_DISPATCH = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(AsyncEvent.class);
+        }
+    };
+    // Классы асинхронных событий, попытка отмены которых уже записана в журнал
+    private static final Set<Class<?>> IGNORED_CANCELS = ConcurrentHashMap.newKeySet();
     private boolean cancelled = false;
     
     /**
@@ -41,8 +54,37 @@ public abstract class FCoreEvent extends Event implements Cancellable {
         return cancelled;
     }
     
+    /**
+     * Отменяет событие. Для событий {@link AsyncEvent} вызов игнорируется: вызвавший код
+     * уже не ждет результата, а общие обработчики, отменяющие любой {@link Cancellable}, не должны падать
+     * @param cancel true для отмены
+     */
     @Override
     public void setCancelled(boolean cancel) {
+        if (cancel && isDispatchedAsync()) {
+            if (IGNORED_CANCELS.add(getClass()) && FCore.getInstance() != null) {
+                FCore.getInstance().getLogger().fine("Событие " + getEventName() +
+                        " доставляется асинхронно, отмена игнорируется");
+            }
+            return;
+        }
         this.cancelled = cancel;
     }
+    
+    /**
+     * Проверяет, помечено ли событие {@link AsyncEvent} для асинхронной доставки
+     * @return true, если событие доставляется через асинхронную очередь
+     */
+    public final boolean isDispatchedAsync() {
+        return ASYNC_DISPATCH.get(getClass());
+    }
+    
+    /**
+     * Ключ упорядочивания для асинхронной доставки: события с равными ключами
+     * обрабатываются по одному и в порядке вызова. Например, UUID игрока
+     * @return ключ или null, если порядок важен только внутри класса события
+     */
+    public Object getOrderingKey() {
+        return null;
+    }
 } 
\ No newline at end of file
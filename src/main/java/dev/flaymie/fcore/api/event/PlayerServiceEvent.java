@@ -120,6 +120,15 @@ public class PlayerServiceEvent extends FCoreEvent {
         return null;
     }
     
+    /**
+     * События одного игрока доставляются по порядку
+     * @return UUID игрока
+     */
+    @Override
+    public Object getOrderingKey() {
+        return player != null ? player.getUniqueId() : null;
+    }
+    
     @Override
     public String toString() {
         return "PlayerServiceEvent{" +
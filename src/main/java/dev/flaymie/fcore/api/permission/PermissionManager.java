@@ -3,6 +3,8 @@ package dev.flaymie.fcore.api.permission;
 import dev.flaymie.fcore.api.service.FCoreService;
 import org.bukkit.entity.Player;
 
+import java.util.UUID;
+
 /**
  * Интерфейс для управления правами
  */
@@ -88,4 +90,16 @@ public interface PermissionManager extends FCoreService {
      * @return группа или null, если не найдена
      */
     PermissionGroup getGroup(String groupName);
+    
+    /**
+     * Загружает хранилище прав игрока до его входа на сервер.
+     * Метод можно вызывать из асинхронного потока. Реализация по умолчанию
+     * ничего не загружает заранее: права загрузятся при первом обращении
+     * @param playerId UUID игрока
+     * @param playerName имя игрока
+     * @return хранилище прав или null, если предзагрузка не поддерживается
+     */
+    default UserPermissionHolder loadUser(UUID playerId, String playerName) {
+        return null;
+    }
 } 
\ No newline at end of file
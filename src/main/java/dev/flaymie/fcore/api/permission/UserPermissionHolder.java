@@ -22,8 +22,17 @@ public class UserPermissionHolder {
      * @param player игрок
      */
     public UserPermissionHolder(Player player) {
-        this.playerId = player.getUniqueId();
-        this.playerName = player.getName();
+        this(player.getUniqueId(), player.getName());
+    }
+    
+    /**
+     * Создает хранилище прав игрока, который еще не вошел на сервер
+     * @param playerId UUID игрока
+     * @param playerName имя игрока
+     */
+    public UserPermissionHolder(UUID playerId, String playerName) {
+        this.playerId = playerId;
+        this.playerName = playerName;
         this.permissions = new HashMap<>();
         this.contextualPermissions = new HashMap<>();
         this.temporaryPermissions = new HashMap<>();
@@ -36,7 +45,17 @@ public class UserPermissionHolder {
      * @param data карта с данными
      */
     public UserPermissionHolder(Player player, Map<String, Object> data) {
-        this(player);
+        this(player.getUniqueId(), player.getName(), data);
+    }
+    
+    /**
+     * Загружает хранилище прав игрока, который еще не вошел на сервер, из карты значений
+     * @param playerId UUID игрока
+     * @param playerName имя игрока
+     * @param data карта с данными
+     */
+    public UserPermissionHolder(UUID playerId, String playerName, Map<String, Object> data) {
+        this(playerId, playerName);
         
         // Загружаем права
         if (data.containsKey("permissions")) {
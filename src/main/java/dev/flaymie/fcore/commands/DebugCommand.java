@@ -128,6 +128,38 @@ public class DebugCommand {
         }
     }
     
+    /**
+     * Показывает статистику кэшей
+     */
+    @Subcommand("cache")
+    public void showCacheStats(Player player) {
+        debugManager.showCacheStats(player);
+    }
+    
+    /**
+     * Показывает метрики FCore, например "/debug metrics db.pool"
+     */
+    @Subcommand("metrics")
+    public void showMetrics(Player player, String prefix) {
+        debugManager.showMetrics(player, prefix == null ? "" : prefix);
+    }
+    
+    /**
+     * Показывает самые затратные запросы к базе данных
+     */
+    @Subcommand("sql")
+    public void showQueryStats(Player player) {
+        debugManager.showQueryStats(player, 10);
+    }
+    
+    /**
+     * Профилировщик обработчиков событий: "/debug events [on|off|reset]"
+     */
+    @Subcommand("events")
+    public void showEventProfile(Player player, String action) {
+        debugManager.showEventProfile(player, action);
+    }
+    
     /**
      * Проверяет использование памяти
      */
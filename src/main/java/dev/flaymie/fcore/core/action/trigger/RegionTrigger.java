@@ -1,12 +1,12 @@
 package dev.flaymie.fcore.core.action.trigger;
 
 import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.api.annotation.Coalesce;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
-import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerMoveEvent;
 
@@ -74,16 +74,10 @@ public class RegionTrigger extends AbstractActionTrigger implements Listener {
     }
     
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
+    @Coalesce(moveGranularity = Coalesce.MoveGranularity.BLOCK)
     public void onPlayerMove(PlayerMoveEvent event) {
         if (!active) return;
         
-        // Оптимизация: проверяем только если игрок изменил блок
-        if (event.getFrom().getBlockX() == event.getTo().getBlockX() &&
-            event.getFrom().getBlockY() == event.getTo().getBlockY() &&
-            event.getFrom().getBlockZ() == event.getTo().getBlockZ()) {
-            return;
-        }
-        
         Player player = event.getPlayer();
         if (!matchesPlayer(player)) {
             return;
@@ -130,7 +124,8 @@ public class RegionTrigger extends AbstractActionTrigger implements Listener {
     
     @Override
     protected void onActivate() {
-        Bukkit.getPluginManager().registerEvents(this, FCore.getInstance());
+        // Через EventManager, чтобы перемещения внутри блока отсекались фильтром @Coalesce
+        FCore.getInstance().getEventManager().registerHandlers(this);
         
         // Проверяем всех онлайн игроков
         for (Player player : Bukkit.getOnlinePlayers()) {
@@ -142,7 +137,7 @@ public class RegionTrigger extends AbstractActionTrigger implements Listener {
     
     @Override
     protected void onDeactivate() {
-        HandlerList.unregisterAll(this);
+        FCore.getInstance().getEventManager().unregisterHandlers(this);
         playersInRegion.clear();
     }
     
@@ -6,6 +6,7 @@ import dev.flaymie.fcore.api.annotation.Command;
 import dev.flaymie.fcore.api.annotation.Subcommand;
 import dev.flaymie.fcore.api.service.FCoreService;
 import dev.flaymie.fcore.core.di.DependencyContainer;
+import dev.flaymie.fcore.core.index.ComponentIndex;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.CommandSender;
@@ -64,11 +65,31 @@ public class CommandManager implements FCoreService {
     }
     
     /**
-     * Регистрирует все команды из указанного пакета
+     * Регистрирует все команды из указанного пакета по индексу компонентов
      * @param packageName имя пакета
      */
     public void registerCommands(String packageName) {
-        // TODO: Реализовать сканирование классов в пакете и регистрацию команд
+        ComponentIndex index = plugin.getComponentIndex();
+        if (index == null) {
+            logger.warning("Индекс компонентов не найден, команды пакета " + packageName + " не зарегистрированы");
+            return;
+        }
+        
+        String prefix = packageName + ".";
+        for (Class<?> commandClass : index.getClasses(ComponentIndex.Kind.COMMAND)) {
+            if (commandClass.getName().startsWith(prefix) && !isRegistered(commandClass)) {
+                registerCommand(commandClass);
+            }
+        }
+    }
+    
+    private boolean isRegistered(Class<?> commandClass) {
+        for (CommandInfo info : commands.values()) {
+            if (info.getCommandClass() == commandClass) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -138,6 +159,15 @@ public class CommandManager implements FCoreService {
     private void registerSubcommands(CommandInfo commandInfo) {
         List<SubcommandInfo> cmdSubcommands = new ArrayList<>();
         
+        // Индекс знает, в каких классах есть @Subcommand, методы остальных не перебираем
+        ComponentIndex index = plugin.getComponentIndex();
+        Class<?> commandClass = commandInfo.getCommandClass();
+        if (index != null && index.covers(commandClass) &&
+            !index.getClassNames(ComponentIndex.Kind.SUBCOMMAND).contains(commandClass.getName())) {
+            subcommands.put(commandInfo, cmdSubcommands);
+            return;
+        }
+        
         // Перебираем все методы класса
         for (Method method : commandInfo.getCommandClass().getDeclaredMethods()) {
             // Проверяем, есть ли у метода аннотация @Subcommand
@@ -2,11 +2,15 @@ package dev.flaymie.fcore.core.data;
 
 import dev.flaymie.fcore.FCore;
 import dev.flaymie.fcore.api.service.FCoreService;
+import dev.flaymie.fcore.core.data.cache.CacheInvalidationBus;
 import dev.flaymie.fcore.core.data.cache.CacheManager;
 import dev.flaymie.fcore.core.data.config.ConfigManager;
 import dev.flaymie.fcore.core.data.migration.MigrationManager;
 import dev.flaymie.fcore.core.data.orm.ConnectionManager;
 import dev.flaymie.fcore.core.data.orm.Database;
+import dev.flaymie.fcore.core.data.orm.DatabaseConfig;
+import dev.flaymie.fcore.core.data.orm.JdbcInvalidationChannel;
+import dev.flaymie.fcore.core.data.orm.UserData;
 import dev.flaymie.fcore.core.data.user.UserManager;
 
 import java.util.logging.Logger;
@@ -26,6 +30,7 @@ public class DataManager implements FCoreService {
     private CacheManager cacheManager;
     private MigrationManager migrationManager;
     private UserManager userManager;
+    private CacheInvalidationBus invalidationBus;
     
     public DataManager(FCore plugin) {
         this.plugin = plugin;
@@ -41,12 +46,21 @@ public class DataManager implements FCoreService {
         initCacheManager();
         initConnectionManager();
         initDatabase();
+        initInvalidationBus();
         initMigrationManager();
         initUserManager();
         
         // Запускаем миграции при запуске
         runMigrations();
         
+        // Таблица сообщений создается миграцией, поэтому опрос запускается после миграций
+        if (invalidationBus != null) {
+            invalidationBus.start();
+        }
+        
+        // Регистрируем сущности ядра после миграций, чтобы схема проверялась один раз
+        database.registerEntity(UserData.class);
+        
         logger.info("Менеджер данных успешно инициализирован");
     }
     
@@ -67,6 +81,11 @@ public class DataManager implements FCoreService {
             database.onDisable();
         }
         
+        // Отправляем изменения, записанные при отключении
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
+        
         if (connectionManager != null) {
             connectionManager.onDisable();
         }
@@ -127,6 +146,22 @@ public class DataManager implements FCoreService {
         plugin.getDependencyContainer().registerSingleton(Database.class, database);
     }
     
+    /**
+     * Инициализация шины сброса кэшей. Нужна только при общей базе MySQL,
+     * когда одни и те же строки изменяют несколько серверов
+     */
+    private void initInvalidationBus() {
+        DatabaseConfig config = connectionManager.getConfig();
+        if (!config.isMysqlEnabled() || !config.isInvalidationEnabled()) {
+            return;
+        }
+        
+        invalidationBus = new CacheInvalidationBus(logger, new JdbcInvalidationChannel(plugin, connectionManager,
+                config.getInvalidationPollInterval(), config.getInvalidationRetention()));
+        database.setInvalidationBus(invalidationBus);
+        plugin.getDependencyContainer().registerSingleton(CacheInvalidationBus.class, invalidationBus);
+    }
+    
     /**
      * Инициализация менеджера миграций
      */
@@ -193,6 +228,14 @@ public class DataManager implements FCoreService {
         return cacheManager;
     }
     
+    /**
+     * Получение шины сброса кэшей между серверами
+     * @return шина или null, если она не используется
+     */
+    public CacheInvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+    
     /**
      * Получение менеджера миграций
      * @return менеджер миграций
@@ -0,0 +1,19 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронная загрузка значения для ключа кэша
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+@FunctionalInterface
+public interface AsyncCacheLoader<K, V> {
+
+    /**
+     * Запускает загрузку значения
+     * @param key ключ
+     * @return future со значением или null, если его нет
+     */
+    CompletableFuture<V> load(K key);
+}
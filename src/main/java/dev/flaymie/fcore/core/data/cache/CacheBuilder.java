@@ -0,0 +1,183 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Построитель именованного кэша
+ * <pre>
+ * NamedCache&lt;UUID, UserData&gt; users = cacheManager.builder("users", UUID.class, UserData.class)
+ *         .maximumSize(2000)
+ *         .expireAfterWrite(600)
+ *         .build();
+ * </pre>
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class CacheBuilder<K, V> {
+
+    private final CacheManager cacheManager;
+    final String name;
+    final Class<K> keyType;
+    final Class<V> valueType;
+
+    EvictionPolicy policy = EvictionPolicy.TINY_LFU;
+    long maximum;
+    Weigher<? super K, ? super V> weigher;
+    long expireAfterWrite;
+    long expireAfterAccess;
+    long refreshAfterWrite;
+    CacheLoader<? super K, ? extends V> refreshLoader;
+    long negativeTtl;
+    CacheSerializer<V> secondTierSerializer;
+    long secondTierCapacity;
+    RemovalListener<? super K, ? super V> removalListener;
+
+    CacheBuilder(CacheManager cacheManager, String name, Class<K> keyType, Class<V> valueType) {
+        this.cacheManager = cacheManager;
+        this.name = name;
+        this.keyType = keyType;
+        this.valueType = valueType;
+        this.maximum = cacheManager.getDefaultMaximumSize();
+        this.expireAfterWrite = cacheManager.getDefaultExpirationTime();
+    }
+
+    /**
+     * Максимальное количество элементов
+     * @param maximumSize количество элементов
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> maximumSize(long maximumSize) {
+        this.maximum = maximumSize;
+        this.weigher = null;
+        return this;
+    }
+
+    /**
+     * Максимальный суммарный вес элементов
+     * @param maximumWeight суммарный вес
+     * @param weigher вычисление веса элемента
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> maximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        this.maximum = maximumWeight;
+        this.weigher = weigher;
+        return this;
+    }
+
+    /**
+     * Кэш без ограничения размера (только время жизни)
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> unbounded() {
+        this.maximum = Long.MAX_VALUE;
+        this.weigher = null;
+        return this;
+    }
+
+    /**
+     * Время жизни элемента после записи
+     * @param seconds время жизни в секундах (0 - без ограничения)
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> expireAfterWrite(long seconds) {
+        this.expireAfterWrite = seconds;
+        return this;
+    }
+
+    /**
+     * Время жизни элемента после последнего обращения.
+     * Может сочетаться с {@link #expireAfterWrite(long)}: элемент удаляется по первому из сроков
+     * @param seconds время жизни в секундах (0 - без ограничения)
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> expireAfterAccess(long seconds) {
+        this.expireAfterAccess = seconds;
+        return this;
+    }
+
+    /**
+     * Фоновое обновление элемента после записи.
+     * Когда к элементу обращаются позже указанного времени, возвращается текущее значение,
+     * а новое загружается асинхронно; при ошибке загрузки остается старое значение
+     * @param seconds время в секундах до обновления
+     * @param loader загрузка нового значения (null - удалить элемент)
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> refreshAfterWrite(long seconds, CacheLoader<? super K, ? extends V> loader) {
+        this.refreshAfterWrite = seconds;
+        this.refreshLoader = loader;
+        return this;
+    }
+
+    /**
+     * Время, на которое запоминается отсутствие значения при загрузке
+     * через {@link NamedCache#get(Object, CacheLoader)}. Повторные запросы
+     * отсутствующего ключа в это время не обращаются к источнику данных
+     * @param seconds время в секундах (0 - не запоминать)
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> negativeTtl(long seconds) {
+        this.negativeTtl = seconds;
+        return this;
+    }
+
+    /**
+     * Второй уровень вне кучи размера по умолчанию (performance.l2-cache).
+     * Вытесненные по размеру значения сериализуются во второй уровень и при обращении
+     * возвращаются на первый. Если второй уровень выключен в конфигурации, настройка игнорируется
+     * @param serializer сериализация значений
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> secondTier(CacheSerializer<V> serializer) {
+        return secondTier(serializer, cacheManager.getSecondTierCapacity());
+    }
+
+    /**
+     * Второй уровень вне кучи
+     * @param serializer сериализация значений
+     * @param capacityBytes размер второго уровня в байтах
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> secondTier(CacheSerializer<V> serializer, long capacityBytes) {
+        this.secondTierSerializer = serializer;
+        this.secondTierCapacity = capacityBytes;
+        return this;
+    }
+
+    /**
+     * Получатель удаленных элементов: вызывается при явном удалении, замене,
+     * истечении срока жизни и вытеснении по размеру
+     * @param listener получатель
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> removalListener(RemovalListener<? super K, ? super V> listener) {
+        this.removalListener = listener;
+        return this;
+    }
+
+    /**
+     * Политика вытеснения
+     * @param policy политика
+     * @return этот построитель
+     */
+    public CacheBuilder<K, V> policy(EvictionPolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    /**
+     * Создает кэш и регистрирует его в менеджере.
+     * Если кэш с таким именем уже существует, возвращается он
+     * @return кэш
+     */
+    public NamedCache<K, V> build() {
+        OffHeapStore<K, V> secondTier = secondTierSerializer != null
+                ? cacheManager.createSecondTier(name, secondTierSerializer, secondTierCapacity)
+                : null;
+        NamedCache<K, V> cache = new NamedCache<>(this, cacheManager.getExecutor(), secondTier);
+
+        NamedCache<K, V> registered = cacheManager.register(cache);
+        if (registered != cache) {
+            cache.close();
+        }
+        return registered;
+    }
+}
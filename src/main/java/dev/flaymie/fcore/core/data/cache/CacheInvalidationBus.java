@@ -0,0 +1,177 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Шина сброса кэшей между серверами, использующими одну базу данных.
+ * Изменения публикуются как пара "имя кэша, ключ" с версией; остальные серверы
+ * получают их через {@link InvalidationChannel} и удаляют или обновляют свои копии.
+ * Собственные сообщения сервера отбрасываются
+ * <pre>
+ * bus.bind(stats, UUID::fromString);
+ * bus.publish("stats", uuid, System.currentTimeMillis());
+ * </pre>
+ */
+public class CacheInvalidationBus {
+
+    /**
+     * Обработчик входящих изменений одного кэша
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * Применяет изменение ключа, сделанное другим сервером
+         * @param key ключ в строковом виде
+         * @param version версия изменения
+         */
+        void invalidate(String key, long version);
+    }
+
+    private final Logger logger;
+    private final InvalidationChannel channel;
+    private final String serverId = UUID.randomUUID().toString();
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+
+    // Метрики
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong unhandled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public CacheInvalidationBus(Logger logger, InvalidationChannel channel) {
+        this.logger = logger;
+        this.channel = channel;
+        channel.subscribe(this::receive);
+    }
+
+    /**
+     * Запускает доставку сообщений
+     */
+    public void start() {
+        channel.start();
+    }
+
+    /**
+     * Останавливает доставку и отправляет накопленные сообщения
+     */
+    public void close() {
+        channel.close();
+    }
+
+    /**
+     * Регистрирует обработчик изменений кэша
+     * @param cacheName имя кэша
+     * @param handler обработчик
+     */
+    public void register(String cacheName, Handler handler) {
+        handlers.put(cacheName, handler);
+    }
+
+    /**
+     * Удаляет обработчик изменений кэша
+     * @param cacheName имя кэша
+     */
+    public void unregister(String cacheName) {
+        handlers.remove(cacheName);
+    }
+
+    /**
+     * Подписывает именованный кэш: измененные другими серверами ключи удаляются из него
+     * @param cache кэш
+     * @param keyParser преобразование строкового ключа в ключ кэша
+     * @param <K> тип ключа
+     */
+    public <K> void bind(NamedCache<K, ?> cache, Function<String, K> keyParser) {
+        register(cache.getName(), (key, version) -> cache.remove(keyParser.apply(key)));
+    }
+
+    /**
+     * Публикует изменение ключа для остальных серверов
+     * @param cacheName имя кэша
+     * @param key ключ
+     * @param version версия изменения
+     */
+    public void publish(String cacheName, Object key, long version) {
+        published.incrementAndGet();
+        channel.publish(new InvalidationMessage(serverId, cacheName, String.valueOf(key), version));
+    }
+
+    /**
+     * Передает входящее сообщение обработчику кэша
+     * @param message сообщение
+     */
+    private void receive(InvalidationMessage message) {
+        if (serverId.equals(message.getOrigin())) {
+            return;
+        }
+
+        received.incrementAndGet();
+        Handler handler = handlers.get(message.getCacheName());
+        if (handler == null) {
+            unhandled.incrementAndGet();
+            return;
+        }
+
+        try {
+            handler.invalidate(message.getKey(), message.getVersion());
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logger.log(Level.WARNING, "Ошибка при сбросе кэша по сообщению " + message, e);
+        }
+    }
+
+    /**
+     * Получение идентификатора этого сервера в сообщениях
+     * @return идентификатор
+     */
+    public String getServerId() {
+        return serverId;
+    }
+
+    /**
+     * Получение канала доставки
+     * @return канал
+     */
+    public InvalidationChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Получение количества отправленных сообщений
+     * @return количество сообщений
+     */
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * Получение количества полученных от других серверов сообщений
+     * @return количество сообщений
+     */
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /**
+     * Получение количества сообщений для кэшей, не зарегистрированных на этом сервере
+     * @return количество сообщений
+     */
+    public long getUnhandledCount() {
+        return unhandled.get();
+    }
+
+    /**
+     * Получение количества сообщений, обработчик которых завершился ошибкой
+     * @return количество сообщений
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+}
@@ -0,0 +1,12 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Исключение при ошибке загрузки значения в кэш.
+ * Причина - исключение, выброшенное загрузчиком
+ */
+public class CacheLoadException extends RuntimeException {
+    
+    public CacheLoadException(String cacheName, Object key, Throwable cause) {
+        super("Failed to load key " + key + " into cache " + cacheName, cause);
+    }
+} 
\ No newline at end of file
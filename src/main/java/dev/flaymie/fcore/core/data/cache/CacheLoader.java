@@ -0,0 +1,18 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Загрузка значения для ключа кэша
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+    /**
+     * Загружает значение
+     * @param key ключ
+     * @return значение или null, если его нет
+     * @throws Exception при ошибке загрузки
+     */
+    V load(K key) throws Exception;
+}
@@ -3,38 +3,71 @@ package dev.flaymie.fcore.core.data.cache;
 import dev.flaymie.fcore.FCore;
 import dev.flaymie.fcore.api.service.FCoreService;
 
-import java.util.HashMap;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Менеджер кэширования данных
+ * Менеджер кэширования данных.
+ * Данные хранятся в именованных типизированных кэшах с ограничением размера
+ * ({@link #cache(String, Class, Class)}); строковые методы {@code get/put(type, key)}
+ * работают поверх общего кэша "default"
  */
 public class CacheManager implements FCoreService {
     
     private final FCore plugin;
     private final Logger logger;
     
-    // Хранилище кэша по типам
-    private final Map<String, Cache<?>> caches;
+    // Именованные кэши
+    private final Map<String, NamedCache<?, ?>> caches;
+    
+    // Общий кэш для строковых ключей
+    private NamedCache<String, Object> defaultCache;
     
     // Настройки
     private long defaultExpirationTime = 300; // 5 минут
-    private int cleanupInterval = 60; // 1 минута
+    private long defaultMaximumSize = 10000;
+    private int cleanupInterval = 5; // 5 секунд, очистка затрагивает только устаревшие записи
     private boolean enabled = true;
     
+    // Второй уровень кэша
+    private boolean secondTierEnabled = false;
+    private long secondTierCapacity = 64L * 1024 * 1024;
+    private boolean secondTierMapped = true;
+    
+    // Исполнитель фонового обновления значений
+    private final Executor executor;
+    
     public CacheManager(FCore plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.caches = new ConcurrentHashMap<>();
+        this.executor = task -> plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
     }
     
     @Override
     public void onEnable() {
         logger.info("Инициализация менеджера кэширования...");
         
+        // Загружаем настройки
+        enabled = plugin.getConfig().getBoolean("performance.caching", enabled);
+        defaultExpirationTime = plugin.getConfig().getLong("performance.cache-ttl", defaultExpirationTime);
+        defaultMaximumSize = plugin.getConfig().getLong("performance.cache-max-size", defaultMaximumSize);
+        secondTierEnabled = plugin.getConfig().getBoolean("performance.l2-cache.enabled", secondTierEnabled);
+        secondTierCapacity = plugin.getConfig().getLong("performance.l2-cache.size-mb", secondTierCapacity / 1024 / 1024) * 1024 * 1024;
+        secondTierMapped = plugin.getConfig().getBoolean("performance.l2-cache.memory-mapped", secondTierMapped);
+        
+        defaultCache = cache("default", String.class, Object.class);
+        
         // Запускаем задачу очистки старых данных
         startCleanupTask();
     }
@@ -43,8 +76,11 @@ public class CacheManager implements FCoreService {
     public void onDisable() {
         logger.info("Отключение менеджера кэширования...");
         
-        // Очищаем все кэши
+        // Очищаем все кэши и освобождаем второй уровень
         clearAll();
+        for (NamedCache<?, ?> cache : caches.values()) {
+            cache.close();
+        }
     }
     
     @Override
@@ -60,23 +96,7 @@ public class CacheManager implements FCoreService {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key) {
-        if (!enabled) {
-            return null;
-        }
-        
-        // Получаем кэш по имени
-        Cache<T> cache = (Cache<T>) caches.get(getCacheKey(key));
-        if (cache == null) {
-            return null;
-        }
-        
-        // Проверяем устаревшие данные
-        if (cache.isExpired()) {
-            caches.remove(getCacheKey(key));
-            return null;
-        }
-        
-        return cache.getValue();
+        return (T) defaultCache.get(getCacheKey(key));
     }
     
     /**
@@ -91,6 +111,20 @@ public class CacheManager implements FCoreService {
         return get(type + ":" + key);
     }
     
+    /**
+     * Получение объекта из кэша с загрузкой при отсутствии.
+     * Одновременные запросы одного ключа выполняют одну загрузку
+     * @param key ключ
+     * @param loader загрузка объекта по исходному ключу
+     * @param <T> тип объекта
+     * @return объект или null
+     * @throws CacheLoadException при ошибке загрузки
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, CacheLoader<String, T> loader) {
+        return (T) defaultCache.get(getCacheKey(key), cacheKey -> loader.load(key));
+    }
+    
     /**
      * Сохранение объекта в кэш
      * @param key ключ
@@ -109,12 +143,7 @@ public class CacheManager implements FCoreService {
      * @param <T> тип объекта
      */
     public <T> void put(String key, T value, long expirationTime) {
-        if (!enabled) {
-            return;
-        }
-        
-        Cache<T> cache = new Cache<>(value, expirationTime);
-        caches.put(getCacheKey(key), cache);
+        defaultCache.put(getCacheKey(key), value, expirationTime);
     }
     
     /**
@@ -146,7 +175,7 @@ public class CacheManager implements FCoreService {
      * @return true, если объект был удален
      */
     public boolean remove(String key) {
-        return caches.remove(getCacheKey(key)) != null;
+        return defaultCache.remove(getCacheKey(key)) != null;
     }
     
     /**
@@ -178,11 +207,108 @@ public class CacheManager implements FCoreService {
         return contains(type + ":" + key);
     }
     
+    /**
+     * Получение всех актуальных объектов кэша по типу
+     * @param type тип кэша
+     * @param <T> тип объектов
+     * @return список объектов
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getAll(String type) {
+        List<T> result = new ArrayList<>();
+        String prefix = getCacheKey(type + ":");
+        defaultCache.forEach((key, value) -> {
+            if (key.startsWith(prefix)) {
+                result.add((T) value);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Получение именованного кэша; при первом обращении кэш создается
+     * с настройками по умолчанию (performance.cache-max-size, performance.cache-ttl)
+     * @param name имя кэша
+     * @param keyType тип ключа
+     * @param valueType тип значения
+     * @param <K> тип ключа
+     * @param <V> тип значения
+     * @return кэш
+     */
+    public <K, V> NamedCache<K, V> cache(String name, Class<K> keyType, Class<V> valueType) {
+        NamedCache<?, ?> existing = caches.get(name);
+        if (existing != null) {
+            return checkTypes(existing, keyType, valueType);
+        }
+        return builder(name, keyType, valueType).build();
+    }
+    
+    /**
+     * Создание построителя именованного кэша с собственными ограничениями
+     * @param name имя кэша
+     * @param keyType тип ключа
+     * @param valueType тип значения
+     * @param <K> тип ключа
+     * @param <V> тип значения
+     * @return построитель кэша
+     */
+    public <K, V> CacheBuilder<K, V> builder(String name, Class<K> keyType, Class<V> valueType) {
+        return new CacheBuilder<>(this, name, keyType, valueType);
+    }
+    
+    /**
+     * Получение всех именованных кэшей
+     * @return кэши
+     */
+    public Collection<NamedCache<?, ?>> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+    
+    /**
+     * Получение статистики всех именованных кэшей
+     * @return снимки статистики, отсортированные по имени
+     */
+    public List<CacheStats> getStats() {
+        List<CacheStats> stats = new ArrayList<>(caches.size());
+        for (NamedCache<?, ?> cache : caches.values()) {
+            stats.add(cache.stats());
+        }
+        stats.sort(Comparator.comparing(CacheStats::getName));
+        return stats;
+    }
+    
+    /**
+     * Регистрирует созданный кэш; если кэш с таким именем уже есть, возвращает его
+     * @param cache новый кэш
+     * @param <K> тип ключа
+     * @param <V> тип значения
+     * @return зарегистрированный кэш
+     */
+    <K, V> NamedCache<K, V> register(NamedCache<K, V> cache) {
+        cache.setEnabled(enabled);
+        NamedCache<?, ?> existing = caches.putIfAbsent(cache.getName(), cache);
+        if (existing != null) {
+            return checkTypes(existing, cache.getKeyType(), cache.getValueType());
+        }
+        return cache;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <K, V> NamedCache<K, V> checkTypes(NamedCache<?, ?> cache, Class<K> keyType, Class<V> valueType) {
+        if (cache.getKeyType() != keyType || cache.getValueType() != valueType) {
+            throw new IllegalArgumentException("Cache " + cache.getName() + " already exists with types <" +
+                    cache.getKeyType().getSimpleName() + ", " + cache.getValueType().getSimpleName() + ">");
+        }
+        return (NamedCache<K, V>) cache;
+    }
+    
     /**
      * Очистка всего кэша
      */
     public void clearAll() {
-        caches.clear();
+        for (NamedCache<?, ?> cache : caches.values()) {
+            cache.invalidateAll();
+        }
     }
     
     /**
@@ -190,12 +316,62 @@ public class CacheManager implements FCoreService {
      * @param type тип кэша
      */
     public void clearType(String type) {
-        String prefix = type + ":";
-        caches.entrySet().removeIf(entry -> entry.getKey().startsWith(prefix));
+        String prefix = getCacheKey(type + ":");
+        defaultCache.removeIf(key -> key.startsWith(prefix));
     }
     
     /**
-     * Запуск задачи очистки устаревших данных
+     * Создает второй уровень кэша, если он включен в конфигурации
+     * @param name имя кэша
+     * @param serializer сериализация значений
+     * @param capacity размер в байтах
+     * @param <K> тип ключа
+     * @param <V> тип значения
+     * @return второй уровень или null
+     */
+    <K, V> OffHeapStore<K, V> createSecondTier(String name, CacheSerializer<V> serializer, long capacity) {
+        if (!secondTierEnabled || capacity <= 0) {
+            return null;
+        }
+        
+        File file = secondTierMapped
+                ? new File(new File(plugin.getDataFolder(), "cache"), name.replaceAll("[^a-zA-Z0-9._-]", "_") + ".l2")
+                : null;
+        try {
+            return new OffHeapStore<>(serializer, capacity, file);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Не удалось создать второй уровень кэша " + name, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Проверка, включен ли второй уровень кэша
+     * @return true, если второй уровень включен
+     */
+    public boolean isSecondTierEnabled() {
+        return secondTierEnabled;
+    }
+    
+    /**
+     * Получение размера второго уровня по умолчанию
+     * @return размер в байтах
+     */
+    public long getSecondTierCapacity() {
+        return secondTierCapacity;
+    }
+    
+    /**
+     * Получение исполнителя фоновых загрузок кэша
+     * @return исполнитель
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+    
+    /**
+     * Запуск задачи очистки устаревших данных.
+     * Каждый кэш обходит только наступившие ячейки колеса таймеров
      */
     private void startCleanupTask() {
         plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
@@ -204,11 +380,8 @@ public class CacheManager implements FCoreService {
             }
             
             int removed = 0;
-            for (Map.Entry<String, Cache<?>> entry : new HashMap<>(caches).entrySet()) {
-                if (entry.getValue().isExpired()) {
-                    caches.remove(entry.getKey());
-                    removed++;
-                }
+            for (NamedCache<?, ?> cache : caches.values()) {
+                removed += cache.cleanUp();
             }
             
             // Выводим в лог только если что-то было удалено
@@ -243,6 +416,22 @@ public class CacheManager implements FCoreService {
         this.defaultExpirationTime = defaultExpirationTime;
     }
     
+    /**
+     * Получение размера именованных кэшей по умолчанию
+     * @return максимальное количество элементов
+     */
+    public long getDefaultMaximumSize() {
+        return defaultMaximumSize;
+    }
+    
+    /**
+     * Установка размера именованных кэшей по умолчанию
+     * @param defaultMaximumSize максимальное количество элементов
+     */
+    public void setDefaultMaximumSize(long defaultMaximumSize) {
+        this.defaultMaximumSize = defaultMaximumSize;
+    }
+    
     /**
      * Получение интервала очистки
      * @return интервал в секундах
@@ -273,27 +462,8 @@ public class CacheManager implements FCoreService {
      */
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
-    }
-    
-    /**
-     * Класс для хранения объекта в кэше
-     * @param <T> тип объекта
-     */
-    private static class Cache<T> {
-        private final T value;
-        private final long expirationTime;
-        
-        public Cache(T value, long expirationTimeInSeconds) {
-            this.value = value;
-            this.expirationTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expirationTimeInSeconds);
-        }
-        
-        public T getValue() {
-            return value;
-        }
-        
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expirationTime;
+        for (NamedCache<?, ?> cache : caches.values()) {
+            cache.setEnabled(enabled);
         }
     }
 } 
\ No newline at end of file
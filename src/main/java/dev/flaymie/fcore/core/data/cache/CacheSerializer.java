@@ -0,0 +1,50 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Двоичная сериализация значений для второго уровня кэша
+ * @param <V> тип значения
+ */
+public interface CacheSerializer<V> {
+
+    /**
+     * Записывает значение
+     * @param out поток записи
+     * @param value значение
+     * @throws IOException при ошибке записи
+     */
+    void write(DataOutput out, V value) throws IOException;
+
+    /**
+     * Читает значение
+     * @param in поток чтения
+     * @return значение
+     * @throws IOException при ошибке чтения
+     */
+    V read(DataInput in) throws IOException;
+
+    /**
+     * Создает сериализатор, который обрабатывает прочитанное значение.
+     * Например, позволяет вернуть уже загруженный в память объект вместо копии
+     * @param resolver обработка прочитанного значения
+     * @return новый сериализатор
+     */
+    default CacheSerializer<V> onRead(UnaryOperator<V> resolver) {
+        CacheSerializer<V> delegate = this;
+        return new CacheSerializer<V>() {
+            @Override
+            public void write(DataOutput out, V value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            public V read(DataInput in) throws IOException {
+                return resolver.apply(delegate.read(in));
+            }
+        };
+    }
+}
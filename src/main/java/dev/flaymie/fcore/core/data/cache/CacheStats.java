@@ -0,0 +1,191 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимок статистики именованного кэша.
+ * Счетчики накапливаются с момента создания кэша
+ */
+public final class CacheStats {
+
+    private final String name;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTime;
+    private final long[] removalCounts;
+    private final long size;
+    private final long weightedSize;
+    private final long maximum;
+    private final long estimatedBytes;
+    private final boolean secondTier;
+    private final long secondTierHitCount;
+    private final long secondTierSize;
+    private final long secondTierBytes;
+    private final long secondTierCapacity;
+
+    CacheStats(String name, long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+               long totalLoadTime, long[] removalCounts, long size, long weightedSize, long maximum,
+               long estimatedBytes, boolean secondTier, long secondTierHitCount, long secondTierSize,
+               long secondTierBytes, long secondTierCapacity) {
+        this.name = name;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.removalCounts = removalCounts;
+        this.size = size;
+        this.weightedSize = weightedSize;
+        this.maximum = maximum;
+        this.estimatedBytes = estimatedBytes;
+        this.secondTier = secondTier;
+        this.secondTierHitCount = secondTierHitCount;
+        this.secondTierSize = secondTierSize;
+        this.secondTierBytes = secondTierBytes;
+        this.secondTierCapacity = secondTierCapacity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Получение количества обращений
+     * @return попадания и промахи
+     */
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Получение доли попаданий
+     * @return доля от 0 до 1 (1, если обращений не было)
+     */
+    public double getHitRate() {
+        long requests = getRequestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * Получение суммарного времени загрузок
+     * @return время в наносекундах
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * Получение среднего времени загрузки
+     * @return время в миллисекундах
+     */
+    public double getAverageLoadMillis() {
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0 : (double) totalLoadTime / loads / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Получение количества удалений по причине
+     * @param cause причина
+     * @return количество удаленных элементов
+     */
+    public long getRemovalCount(RemovalCause cause) {
+        return removalCounts[cause.ordinal()];
+    }
+
+    /**
+     * Получение количества вытеснений (по размеру и сроку жизни)
+     * @return количество вытесненных элементов
+     */
+    public long getEvictionCount() {
+        return getRemovalCount(RemovalCause.SIZE) + getRemovalCount(RemovalCause.EXPIRED);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Получение ограничения кэша
+     * @return ограничение или Long.MAX_VALUE, если кэш не ограничен
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Получение оценки занимаемой памяти (по выборке элементов)
+     * @return размер в байтах
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Проверка, есть ли у кэша второй уровень
+     * @return true, если второй уровень включен
+     */
+    public boolean hasSecondTier() {
+        return secondTier;
+    }
+
+    /**
+     * Получение количества попаданий во второй уровень
+     * (входят в {@link #getHitCount()})
+     * @return количество попаданий
+     */
+    public long getSecondTierHitCount() {
+        return secondTierHitCount;
+    }
+
+    public long getSecondTierSize() {
+        return secondTierSize;
+    }
+
+    /**
+     * Получение объема значений на втором уровне
+     * @return размер в байтах
+     */
+    public long getSecondTierBytes() {
+        return secondTierBytes;
+    }
+
+    /**
+     * Получение размера второго уровня
+     * @return размер в байтах
+     */
+    public long getSecondTierCapacity() {
+        return secondTierCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: size=%d, hitRate=%.1f%%, hits=%d, misses=%d, loads=%d/%d (%.2f ms), " +
+                        "evictions=%d (size=%d, expired=%d), explicit=%d, replaced=%d, ~%d KB",
+                name, size, getHitRate() * 100, hitCount, missCount, loadSuccessCount, loadFailureCount,
+                getAverageLoadMillis(), getEvictionCount(), getRemovalCount(RemovalCause.SIZE),
+                getRemovalCount(RemovalCause.EXPIRED), getRemovalCount(RemovalCause.EXPLICIT),
+                getRemovalCount(RemovalCause.REPLACED), estimatedBytes / 1024);
+    }
+}
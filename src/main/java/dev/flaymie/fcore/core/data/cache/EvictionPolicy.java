@@ -0,0 +1,18 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Политика вытеснения элементов из ограниченного кэша
+ */
+public enum EvictionPolicy {
+    /**
+     * Вытесняется элемент, к которому дольше всего не обращались
+     */
+    LRU,
+
+    /**
+     * W-TinyLFU: новые элементы попадают в небольшое окно LRU, а в основную
+     * область допускаются, только если обращались к ним чаще, чем к вытесняемому.
+     * Устойчива к однократным обходам (например, массовому входу игроков)
+     */
+    TINY_LFU
+}
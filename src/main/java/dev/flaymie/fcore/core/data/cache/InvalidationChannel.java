@@ -0,0 +1,35 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Канал доставки сообщений об изменениях между серверами, использующими одну базу данных.
+ * Канал доставляет подписчикам и собственные сообщения сервера;
+ * их отбрасывает {@link CacheInvalidationBus}
+ */
+public interface InvalidationChannel {
+
+    /**
+     * Отправляет сообщение. Метод не должен блокировать вызывающий поток надолго
+     * @param message сообщение
+     */
+    void publish(InvalidationMessage message);
+
+    /**
+     * Подписывает получателя на входящие сообщения
+     * @param listener получатель
+     */
+    void subscribe(Consumer<InvalidationMessage> listener);
+
+    /**
+     * Запускает доставку сообщений
+     */
+    default void start() {
+    }
+
+    /**
+     * Останавливает доставку и отправляет накопленные сообщения
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,47 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Сообщение об изменении ключа, рассылаемое другим серверам через {@link InvalidationChannel}
+ */
+public final class InvalidationMessage {
+
+    private final String origin;
+    private final String cacheName;
+    private final String key;
+    private final long version;
+
+    /**
+     * Создает сообщение
+     * @param origin идентификатор сервера-отправителя
+     * @param cacheName имя кэша
+     * @param key ключ в строковом виде
+     * @param version версия изменения (версия сущности или время записи)
+     */
+    public InvalidationMessage(String origin, String cacheName, String key, long version) {
+        this.origin = origin;
+        this.cacheName = cacheName;
+        this.key = key;
+        this.version = version;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return cacheName + "[" + key + "]@" + version + " from " + origin;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Канал внутри одного процесса: сообщение сразу доставляется всем подписчикам в потоке отправителя.
+ * Несколько {@link CacheInvalidationBus} на одном канале ведут себя как отдельные серверы,
+ * что удобно для тестов
+ */
+public class LoopbackInvalidationChannel implements InvalidationChannel {
+
+    private final List<Consumer<InvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        for (Consumer<InvalidationMessage> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationMessage> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,1048 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Именованный типизированный кэш с ограничением размера (или веса) и временем жизни.
+ * Чтение не блокируется; порядок вытеснения обновляется под блокировкой,
+ * а при конкуренции обращение к элементу может быть не учтено.
+ * Устаревшие элементы удаляются колесом таймеров ({@link TimerWheel}),
+ * поэтому очистка не обходит весь кэш.
+ * Загрузка через {@link #get(Object, CacheLoader)} объединяет одновременные
+ * запросы одного ключа в одну загрузку.
+ * Если задан второй уровень ({@link CacheBuilder#secondTier(CacheSerializer)}),
+ * вытесненные по размеру значения сохраняются вне кучи и возвращаются
+ * на первый уровень при следующем обращении.
+ * Создается через {@link CacheManager#cache(String, Class, Class)}
+ * или {@link CacheManager#builder(String, Class, Class)}
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class NamedCache<K, V> {
+
+    // Доля окна W-TinyLFU и защищенной области от основной части
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    // Количество элементов в выборке для оценки памяти
+    private static final int SIZE_SAMPLE = 32;
+
+    private final String name;
+    private final Class<K> keyType;
+    private final Class<V> valueType;
+    private final EvictionPolicy policy;
+    private final long maximum;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final long refreshAfterWriteNanos;
+    private final long negativeTtlNanos;
+    private final CacheLoader<? super K, ? extends V> refreshLoader;
+    private final Executor executor;
+    private final OffHeapStore<K, V> secondTier;
+    private final RemovalListener<? super K, ? super V> removalListener;
+
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // Состояние политики вытеснения (под evictionLock)
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final FrequencySketch sketch;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+    private final TimerWheel timerWheel = new TimerWheel(System.nanoTime());
+    private final TimerWheel.Expirer expirer = this::expireTimer;
+
+    // Статистика
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder secondTierHitCount = new LongAdder();
+    private final LongAdder[] removalCounts = new LongAdder[RemovalCause.values().length];
+
+    private volatile boolean enabled = true;
+
+    NamedCache(CacheBuilder<K, V> builder, Executor executor, OffHeapStore<K, V> secondTier) {
+        this.name = builder.name;
+        this.keyType = builder.keyType;
+        this.valueType = builder.valueType;
+        this.policy = builder.policy;
+        this.maximum = builder.maximum;
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = TimeUnit.SECONDS.toNanos(builder.expireAfterWrite);
+        this.expireAfterAccessNanos = TimeUnit.SECONDS.toNanos(builder.expireAfterAccess);
+        this.refreshAfterWriteNanos = TimeUnit.SECONDS.toNanos(builder.refreshAfterWrite);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(builder.negativeTtl);
+        this.refreshLoader = builder.refreshLoader;
+        this.executor = executor;
+        this.secondTier = secondTier;
+        this.removalListener = builder.removalListener;
+
+        for (int i = 0; i < removalCounts.length; i++) {
+            removalCounts[i] = new LongAdder();
+        }
+
+        if (policy == EvictionPolicy.TINY_LFU && maximum != Long.MAX_VALUE) {
+            this.sketch = new FrequencySketch(maximum);
+            this.windowMaximum = Math.max(1, maximum * WINDOW_PERCENT / 100);
+            this.protectedMaximum = (maximum - windowMaximum) * PROTECTED_PERCENT / 100;
+        } else {
+            this.sketch = null;
+            this.windowMaximum = 0;
+            this.protectedMaximum = 0;
+        }
+    }
+
+    /**
+     * Получение значения
+     * @param key ключ
+     * @return значение или null, если его нет или срок его жизни истек
+     */
+    public V get(K key) {
+        Node<K, V> node = getNode(key);
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Получение значения первого уровня без учета статистики и без обращения ко второму уровню
+     * @param key ключ
+     * @return значение или null
+     */
+    public V peek(K key) {
+        Node<K, V> node = enabled ? currentNode(key) : null;
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Получение значения с загрузкой при отсутствии.
+     * Если значение уже загружается другим потоком, вызов дожидается этой загрузки
+     * вместо повторного запроса. Отсутствующее значение (null) запоминается
+     * на время {@link CacheBuilder#negativeTtl(long)}.
+     * Загрузчик не должен обращаться к этому же ключу кэша
+     * @param key ключ
+     * @param loader загрузка значения
+     * @return значение или null, если его нет
+     * @throws CacheLoadException при ошибке загрузки
+     */
+    public V get(K key, CacheLoader<? super K, ? extends V> loader) {
+        if (!enabled) {
+            return load(key, loader);
+        }
+
+        Node<K, V> node = getNode(key);
+        if (node != null) {
+            return node.value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return join(key, inFlight);
+        }
+
+        // Другой поток мог завершить загрузку между проверками
+        node = currentNode(key);
+        if (node != null) {
+            loading.remove(key, future);
+            future.complete(node.value);
+            return node.value;
+        }
+
+        V value;
+        try {
+            value = load(key, loader);
+        } catch (CacheLoadException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e.getCause());
+            throw e;
+        }
+
+        finishLoad(key, future, value);
+        future.complete(value);
+        return value;
+    }
+
+    /**
+     * Асинхронное получение значения с загрузкой при отсутствии.
+     * Одновременные запросы одного ключа получают результат одной загрузки
+     * @param key ключ
+     * @param loader асинхронная загрузка значения
+     * @return future со значением или null, если его нет
+     */
+    public CompletableFuture<V> getAsync(K key, AsyncCacheLoader<? super K, V> loader) {
+        Node<K, V> node = getNode(key);
+        if (node != null) {
+            return CompletableFuture.completedFuture(node.value);
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = enabled ? loading.putIfAbsent(key, future) : null;
+        if (inFlight != null) {
+            return inFlight.thenApply(Function.identity());
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<V> source;
+        try {
+            source = loader.load(key);
+        } catch (RuntimeException e) {
+            source = new CompletableFuture<>();
+            source.completeExceptionally(e);
+        }
+
+        source.whenComplete((value, error) -> {
+            recordLoad(System.nanoTime() - start, error == null);
+            if (error != null) {
+                loading.remove(key, future);
+                future.completeExceptionally(error);
+            } else {
+                finishLoad(key, future, value);
+                future.complete(value);
+            }
+        });
+
+        // Вызывающий код не должен иметь возможности завершить общую загрузку
+        return future.thenApply(Function.identity());
+    }
+
+    /**
+     * Поиск элемента с учетом статистики, времени обращения и фонового обновления
+     * @param key ключ
+     * @return элемент или null
+     */
+    private Node<K, V> getNode(K key) {
+        if (!enabled) {
+            return null;
+        }
+
+        Node<K, V> node = data.get(key);
+        if (node == null && secondTier != null) {
+            node = promote(key);
+            if (node != null) {
+                hitCount.increment();
+                secondTierHitCount.increment();
+                return node;
+            }
+        }
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (isExpired(node, now)) {
+            missCount.increment();
+            removeNode(node, RemovalCause.EXPIRED);
+            return null;
+        }
+
+        hitCount.increment();
+        if (expireAfterAccessNanos > 0) {
+            node.accessTime = now;
+        }
+        if (refreshLoader != null && now - node.writeTime > refreshAfterWriteNanos) {
+            refresh(node);
+        }
+
+        afterRead(node);
+        return node;
+    }
+
+    /**
+     * Сохранение значения со временем жизни кэша
+     * @param key ключ
+     * @param value значение
+     */
+    public void put(K key, V value) {
+        putNode(key, value, expireAfterWriteNanos, null, null);
+    }
+
+    /**
+     * Сохранение значения с собственным временем жизни
+     * @param key ключ
+     * @param value значение
+     * @param expirationTime время жизни в секундах (0 - без ограничения)
+     */
+    public void put(K key, V value, long expirationTime) {
+        putNode(key, value, TimeUnit.SECONDS.toNanos(expirationTime), null, null);
+    }
+
+    /**
+     * Удаление значения
+     * @param key ключ
+     * @return удаленное значение или null
+     */
+    public V remove(K key) {
+        evictionLock.lock();
+        try {
+            // Результат идущей загрузки устарел и не должен попасть в кэш
+            loading.remove(key);
+            if (secondTier != null) {
+                secondTier.invalidate(key);
+            }
+
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            recordRemoval(RemovalCause.EXPLICIT, 1);
+            notifyRemoval(node, RemovalCause.EXPLICIT);
+            return node.value;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Удаление всех значений, ключи которых подходят под условие
+     * @param filter условие
+     */
+    public void removeIf(Predicate<? super K> filter) {
+        evictionLock.lock();
+        try {
+            loading.keySet().removeIf(filter);
+            if (secondTier != null) {
+                secondTier.removeIf(filter);
+            }
+            for (Node<K, V> node : data.values()) {
+                if (filter.test(node.key)) {
+                    removeNode(node, RemovalCause.EXPLICIT);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Проверка наличия актуального значения
+     * @param key ключ
+     * @return true, если значение есть в кэше
+     */
+    public boolean contains(K key) {
+        Node<K, V> node = enabled ? currentNode(key) : null;
+        return node != null && node.value != null;
+    }
+
+    /**
+     * Очистка кэша
+     */
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                node.alive = false;
+                notifyRemoval(node, RemovalCause.EXPLICIT);
+            }
+            recordRemoval(RemovalCause.EXPLICIT, data.size());
+            loading.clear();
+            if (secondTier != null) {
+                secondTier.clear();
+            }
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+            timerWheel.clear();
+            windowWeight = 0;
+            protectedWeight = 0;
+            totalWeight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Получение всех актуальных значений
+     * @return список значений
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>(data.size());
+        forEach((key, value) -> result.add(value));
+        return result;
+    }
+
+    /**
+     * Обход всех актуальных элементов без изменения порядка вытеснения
+     * @param action действие для ключа и значения
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        for (Node<K, V> node : data.values()) {
+            if (node.value != null && !isExpired(node, now)) {
+                action.accept(node.key, node.value);
+            }
+        }
+    }
+
+    /**
+     * Удаляет элементы с истекшим сроком жизни.
+     * Обходятся только наступившие ячейки колеса таймеров
+     * @return количество удаленных элементов
+     */
+    public int cleanUp() {
+        evictionLock.lock();
+        try {
+            return timerWheel.advance(System.nanoTime(), expirer);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Получение имени кэша
+     * @return имя кэша
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Class<K> getKeyType() {
+        return keyType;
+    }
+
+    public Class<V> getValueType() {
+        return valueType;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Получение ограничения кэша (размер или суммарный вес)
+     * @return ограничение или Long.MAX_VALUE, если кэш не ограничен
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Проверка наличия второго уровня, куда переносятся вытесненные по размеру элементы
+     * @return true, если второй уровень включен
+     */
+    public boolean hasSecondTier() {
+        return secondTier != null;
+    }
+
+    /**
+     * Получение количества элементов (включая еще не удаленные устаревшие)
+     * @return количество элементов
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Получение суммарного веса элементов
+     * @return суммарный вес
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Получение снимка статистики кэша.
+     * Оценка памяти строится по выборке элементов
+     * @return статистика
+     */
+    public CacheStats stats() {
+        long[] removals = new long[removalCounts.length];
+        for (int i = 0; i < removals.length; i++) {
+            removals[i] = removalCounts[i].sum();
+        }
+
+        int size = data.size();
+        return new CacheStats(name, hitCount.sum(), missCount.sum(), loadSuccessCount.sum(),
+                loadFailureCount.sum(), totalLoadTime.sum(), removals, size, weightedSize(), maximum,
+                estimateBytes(size), secondTier != null, secondTierHitCount.sum(),
+                secondTier != null ? secondTier.size() : 0, secondTier != null ? secondTier.usedBytes() : 0,
+                secondTier != null ? secondTier.capacity() : 0);
+    }
+
+    /**
+     * Учитывает загрузку значения
+     * @param loadTime время загрузки в наносекундах
+     * @param success true, если загрузка завершилась без ошибки
+     */
+    void recordLoad(long loadTime, boolean success) {
+        totalLoadTime.add(loadTime);
+        if (success) {
+            loadSuccessCount.increment();
+        } else {
+            loadFailureCount.increment();
+        }
+    }
+
+    private void recordRemoval(RemovalCause cause, int count) {
+        removalCounts[cause.ordinal()].add(count);
+    }
+
+    /**
+     * Сообщает получателю об удаленном элементе; запомненное отсутствие значения не передается
+     * @param node удаленный элемент
+     * @param cause причина удаления
+     */
+    private void notifyRemoval(Node<K, V> node, RemovalCause cause) {
+        if (removalListener == null || node.value == null) {
+            return;
+        }
+        try {
+            removalListener.onRemoval(node.key, node.value, cause);
+        } catch (RuntimeException ignored) {
+            // Ошибка получателя не должна нарушать состояние кэша
+        }
+    }
+
+    private long estimateBytes(int size) {
+        if (size == 0) {
+            return 0;
+        }
+
+        long sampled = 0;
+        int count = 0;
+        for (Node<K, V> node : data.values()) {
+            sampled += SizeEstimator.estimate(node.key) + SizeEstimator.estimate(node.value);
+            if (++count == SIZE_SAMPLE) {
+                break;
+            }
+        }
+        return count == 0 ? 0 : (sampled / count + SizeEstimator.ENTRY_OVERHEAD) * size;
+    }
+
+    /**
+     * Освобождает второй уровень кэша
+     */
+    void close() {
+        if (secondTier != null) {
+            secondTier.close();
+        }
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Поиск актуального элемента без учета статистики
+     * @param key ключ
+     * @return элемент или null
+     */
+    private Node<K, V> currentNode(K key) {
+        Node<K, V> node = data.get(key);
+        return node != null && !isExpired(node, System.nanoTime()) ? node : null;
+    }
+
+    /**
+     * Вызывает загрузчик с учетом статистики
+     * @param key ключ
+     * @param loader загрузка значения
+     * @return загруженное значение
+     * @throws CacheLoadException при ошибке загрузки
+     */
+    private V load(K key, CacheLoader<? super K, ? extends V> loader) {
+        long start = System.nanoTime();
+        try {
+            V value = loader.load(key);
+            recordLoad(System.nanoTime() - start, true);
+            return value;
+        } catch (Exception e) {
+            recordLoad(System.nanoTime() - start, false);
+            throw new CacheLoadException(name, key, e);
+        }
+    }
+
+    /**
+     * Ожидает загрузку, начатую другим потоком
+     * @param key ключ
+     * @param future загрузка
+     * @return загруженное значение
+     * @throws CacheLoadException при ошибке загрузки
+     */
+    private V join(K key, CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new CacheLoadException(name, key, e.getCause() != null ? e.getCause() : e);
+        } catch (CancellationException e) {
+            throw new CacheLoadException(name, key, e);
+        }
+    }
+
+    /**
+     * Сохраняет результат загрузки, если ключ не был изменен или удален во время загрузки
+     * @param key ключ
+     * @param future загрузка
+     * @param value загруженное значение
+     */
+    private void finishLoad(K key, CompletableFuture<V> future, V value) {
+        if (value != null) {
+            putNode(key, value, expireAfterWriteNanos, null, future);
+        } else if (negativeTtlNanos > 0) {
+            putNode(key, null, negativeTtlNanos, null, future);
+        } else {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Сохраняет элемент
+     * @param key ключ
+     * @param value значение (null - запомнить отсутствие значения)
+     * @param ttlNanos время жизни после записи (0 - без ограничения)
+     * @param expected элемент, который должен быть текущим (null - заменить любой)
+     * @param load загрузка, результат которой сохраняется (null - прямая запись)
+     */
+    private void putNode(K key, V value, long ttlNanos, Node<K, V> expected, CompletableFuture<V> load) {
+        if (!enabled) {
+            if (load != null) {
+                loading.remove(key, load);
+            }
+            return;
+        }
+
+        int weight = weigher != null && value != null ? weigher.weigh(key, value) : 1;
+        long now = System.nanoTime();
+        Node<K, V> node = new Node<>(key, value, weight, now, ttlNanos);
+
+        evictionLock.lock();
+        try {
+            timerWheel.advance(now, expirer);
+            if (expected != null && data.get(key) != expected) {
+                return;
+            }
+            if (load != null) {
+                // Ключ записан или удален во время загрузки - результат устарел
+                if (!loading.remove(key, load)) {
+                    return;
+                }
+            } else if (expected == null) {
+                loading.remove(key);
+            }
+
+            Node<K, V> previous = data.put(key, node);
+            if (previous != null) {
+                unlink(previous);
+                recordRemoval(RemovalCause.REPLACED, 1);
+                notifyRemoval(previous, RemovalCause.REPLACED);
+            } else if (secondTier != null) {
+                // Копия на втором уровне устарела
+                secondTier.invalidate(key);
+            }
+
+            insert(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Добавляет элемент, уже помещенный в карту, в очереди вытеснения и колесо таймеров.
+     * Вызывается под evictionLock
+     * @param node элемент
+     */
+    private void insert(Node<K, V> node) {
+        if (sketch != null) {
+            sketch.increment(node.key);
+            link(node, WINDOW);
+        } else {
+            link(node, PROBATION);
+        }
+
+        node.time = deadline(node);
+        if (node.time != Long.MAX_VALUE) {
+            timerWheel.schedule(node);
+        }
+
+        evict();
+    }
+
+    /**
+     * Переносит значение со второго уровня на первый
+     * @param key ключ
+     * @return элемент или null, если значения нет на втором уровне
+     */
+    private Node<K, V> promote(K key) {
+        evictionLock.lock();
+        try {
+            // Значение могло быть записано, пока ожидалась блокировка
+            Node<K, V> current = data.get(key);
+            if (current != null) {
+                return current;
+            }
+
+            OffHeapStore.Entry<V> entry = secondTier.remove(key);
+            if (entry == null) {
+                return null;
+            }
+
+            long now = System.nanoTime();
+            int weight = weigher != null ? weigher.weigh(key, entry.value) : 1;
+            Node<K, V> node = new Node<>(key, entry.value, weight, entry.writeTime, entry.ttlNanos);
+            node.accessTime = now;
+            if (isExpired(node, now)) {
+                recordRemoval(RemovalCause.EXPIRED, 1);
+                return null;
+            }
+
+            data.put(key, node);
+            insert(node);
+            return node;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет элемент, если он все еще находится в кэше
+     * @param node элемент
+     * @param cause причина удаления
+     * @return true, если элемент удален
+     */
+    private boolean removeNode(Node<K, V> node, RemovalCause cause) {
+        evictionLock.lock();
+        try {
+            if (data.remove(node.key, node)) {
+                unlink(node);
+                recordRemoval(cause, 1);
+                notifyRemoval(node, cause);
+                return true;
+            }
+            return false;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Время, когда элемент устареет
+     * @param node элемент
+     * @return время в наносекундах или Long.MAX_VALUE, если срок жизни не ограничен
+     */
+    private long deadline(Node<K, V> node) {
+        long deadline = node.ttlNanos > 0 ? node.writeTime + node.ttlNanos : Long.MAX_VALUE;
+        if (expireAfterAccessNanos > 0) {
+            deadline = Math.min(deadline, node.accessTime + expireAfterAccessNanos);
+        }
+        return deadline;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        long deadline = deadline(node);
+        return deadline != Long.MAX_VALUE && now - deadline > 0;
+    }
+
+    /**
+     * Обработка наступившего таймера: элемент удаляется, если он действительно устарел.
+     * Срок по времени обращения мог продлиться после планирования, тогда таймер переносится
+     * @param timer таймер элемента
+     * @param now текущее время
+     * @return true, если элемент удален
+     */
+    @SuppressWarnings("unchecked")
+    private boolean expireTimer(TimerWheel.Timer timer, long now) {
+        Node<K, V> node = (Node<K, V>) timer;
+        if (!isExpired(node, now)) {
+            node.time = deadline(node);
+            return false;
+        }
+        evictNode(node, RemovalCause.EXPIRED);
+        return true;
+    }
+
+    /**
+     * Запускает фоновую загрузку нового значения, если она еще не выполняется
+     * @param node элемент
+     */
+    private void refresh(Node<K, V> node) {
+        if (!Node.REFRESHING.compareAndSet(node, 0, 1)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    V value = refreshLoader.load(node.key);
+                    recordLoad(System.nanoTime() - start, true);
+                    // Значение могли заменить или удалить, пока шла загрузка
+                    if (value != null) {
+                        putNode(node.key, value, node.ttlNanos, node, null);
+                    } else {
+                        removeNode(node, RemovalCause.EXPLICIT);
+                    }
+                } catch (Exception e) {
+                    recordLoad(System.nanoTime() - start, false);
+                    // Остается старое значение; следующее обращение повторит загрузку
+                    node.refreshing = 0;
+                }
+            });
+        } catch (RuntimeException e) {
+            node.refreshing = 0;
+        }
+    }
+
+    /**
+     * Учитывает обращение к элементу, если блокировка свободна
+     * @param node элемент
+     */
+    private void afterRead(Node<K, V> node) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            if (!node.alive) {
+                return;
+            }
+
+            if (sketch == null) {
+                probation.moveToBack(node);
+                return;
+            }
+
+            sketch.increment(node.key);
+            switch (node.queue) {
+                case WINDOW:
+                    window.moveToBack(node);
+                    break;
+                case PROBATION:
+                    // Повторное обращение переводит элемент в защищенную область
+                    probation.remove(node);
+                    node.queue = PROTECTED;
+                    protectedQueue.addLast(node);
+                    protectedWeight += node.weight;
+                    demoteProtected();
+                    break;
+                default:
+                    protectedQueue.moveToBack(node);
+                    break;
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void link(Node<K, V> node, byte queue) {
+        node.queue = queue;
+        totalWeight += node.weight;
+        if (queue == WINDOW) {
+            window.addLast(node);
+            windowWeight += node.weight;
+        } else {
+            probation.addLast(node);
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.alive = false;
+        totalWeight -= node.weight;
+        timerWheel.deschedule(node);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedQueue.remove(node);
+                protectedWeight -= node.weight;
+                break;
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum) {
+            Node<K, V> node = protectedQueue.pollFirst();
+            protectedWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+    }
+
+    /**
+     * Вытесняет элементы, пока кэш превышает ограничение
+     */
+    private void evict() {
+        if (maximum == Long.MAX_VALUE) {
+            return;
+        }
+
+        if (sketch == null) {
+            while (totalWeight > maximum) {
+                evictNode(probation.peekFirst(), RemovalCause.SIZE);
+            }
+            return;
+        }
+
+        // Переполнение окна: вышедшие из окна элементы становятся кандидатами
+        while (windowWeight > windowMaximum) {
+            Node<K, V> node = window.pollFirst();
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+
+        // Кандидат (последний допущенный) соревнуется с жертвой (самый старый) по частоте
+        while (totalWeight > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+            Node<K, V> candidate = probation.peekLast();
+
+            if (victim == null) {
+                victim = protectedQueue.peekFirst() != null ? protectedQueue.peekFirst() : window.peekFirst();
+                evictNode(victim, RemovalCause.SIZE);
+            } else if (victim == candidate || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evictNode(victim, RemovalCause.SIZE);
+            } else {
+                evictNode(candidate, RemovalCause.SIZE);
+            }
+        }
+    }
+
+    private void evictNode(Node<K, V> node, RemovalCause cause) {
+        data.remove(node.key, node);
+        unlink(node);
+        recordRemoval(cause, 1);
+        notifyRemoval(node, cause);
+
+        // Вытесненное по размеру значение переносится на второй уровень
+        if (cause == RemovalCause.SIZE && secondTier != null && node.value != null) {
+            secondTier.put(node.key, node.value, node.writeTime, node.ttlNanos);
+        }
+    }
+
+    /**
+     * Элемент кэша
+     */
+    private static final class Node<K, V> extends TimerWheel.Timer {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Node> REFRESHING =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "refreshing");
+
+        final K key;
+        final V value;
+        final int weight;
+        final long writeTime;
+        final long ttlNanos;
+        volatile long accessTime;
+        volatile int refreshing;
+
+        // Поля очереди вытеснения (под evictionLock)
+        Node<K, V> prev;
+        Node<K, V> next;
+        byte queue;
+        volatile boolean alive = true;
+
+        Node(K key, V value, int weight, long writeTime, long ttlNanos) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+            this.ttlNanos = ttlNanos;
+            this.accessTime = writeTime;
+        }
+    }
+
+    /**
+     * Двусвязная очередь элементов в порядке обращения
+     */
+    private static final class AccessQueue<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+
+        Node<K, V> peekFirst() {
+            return head;
+        }
+
+        Node<K, V> peekLast() {
+            return tail;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Второй уровень кэша вне кучи: кольцевой журнал сериализованных значений
+ * в прямом буфере или в отображенном в память файле.
+ * Записи добавляются в конец журнала; при переполнении новые записи затирают
+ * самые старые (FIFO). В куче хранится только индекс "ключ -> позиция"
+ */
+final class OffHeapStore<K, V> {
+
+    private final CacheSerializer<V> serializer;
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final File file;
+
+    private final Map<K, Slot<K>> index = new HashMap<>();
+    private final ArrayDeque<Slot<K>> writeOrder = new ArrayDeque<>();
+    private long writePosition;
+    private long usedBytes;
+
+    /**
+     * Создает хранилище
+     * @param serializer сериализация значений
+     * @param capacity размер журнала в байтах
+     * @param file файл для отображения в память или null для прямого буфера
+     * @throws IOException при ошибке создания файла
+     */
+    OffHeapStore(CacheSerializer<V> serializer, long capacity, File file) throws IOException {
+        this.serializer = serializer;
+        this.capacity = (int) Math.min(capacity, Integer.MAX_VALUE);
+        this.file = file;
+
+        if (file != null) {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Cannot create directory " + parent);
+            }
+            // Отображение остается действительным после закрытия файла
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(this.capacity);
+                this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+            }
+        } else {
+            this.buffer = ByteBuffer.allocateDirect(this.capacity);
+        }
+    }
+
+    /**
+     * Запись, прочитанная из хранилища
+     */
+    static final class Entry<V> {
+        final V value;
+        final long writeTime;
+        final long ttlNanos;
+
+        Entry(V value, long writeTime, long ttlNanos) {
+            this.value = value;
+            this.writeTime = writeTime;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    /**
+     * Позиция значения в журнале
+     */
+    private static final class Slot<K> {
+        final K key;
+        final long offset;
+        final int length;
+        final long writeTime;
+        final long ttlNanos;
+
+        Slot(K key, long offset, int length, long writeTime, long ttlNanos) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.writeTime = writeTime;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    /**
+     * Сохраняет значение
+     * @param key ключ
+     * @param value значение
+     * @param writeTime время записи значения
+     * @param ttlNanos время жизни после записи (0 - без ограничения)
+     * @return true, если значение сохранено
+     */
+    boolean put(K key, V value, long writeTime, long ttlNanos) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+            serializer.write(new DataOutputStream(out), value);
+            bytes = out.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+
+        // Слишком большие значения вытеснили бы значительную часть журнала
+        if (bytes.length > capacity / 16) {
+            invalidate(key);
+            return false;
+        }
+
+        synchronized (this) {
+            unindex(index.remove(key));
+
+            int physical = (int) (writePosition % capacity);
+            if (physical + bytes.length > capacity) {
+                // Запись не помещается до конца буфера - переходим в начало
+                writePosition += capacity - physical;
+                physical = 0;
+            }
+
+            Slot<K> slot = new Slot<>(key, writePosition, bytes.length, writeTime, ttlNanos);
+            writePosition += bytes.length;
+            dropOverwritten();
+
+            ByteBuffer target = buffer.duplicate();
+            target.position(physical);
+            target.put(bytes);
+
+            index.put(key, slot);
+            writeOrder.addLast(slot);
+            usedBytes += bytes.length;
+            return true;
+        }
+    }
+
+    /**
+     * Извлекает значение из хранилища (значение переносится на первый уровень)
+     * @param key ключ
+     * @return запись или null, если значения нет или его не удалось прочитать
+     */
+    Entry<V> remove(K key) {
+        Slot<K> slot;
+        byte[] bytes;
+        synchronized (this) {
+            slot = index.remove(key);
+            if (slot == null) {
+                return null;
+            }
+            unindex(slot);
+
+            bytes = new byte[slot.length];
+            ByteBuffer source = buffer.duplicate();
+            source.position((int) (slot.offset % capacity));
+            source.get(bytes);
+        }
+
+        try {
+            V value = serializer.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+            return value != null ? new Entry<>(value, slot.writeTime, slot.ttlNanos) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Удаляет значение
+     * @param key ключ
+     */
+    synchronized void invalidate(K key) {
+        unindex(index.remove(key));
+    }
+
+    /**
+     * Удаляет значения, ключи которых подходят под условие
+     * @param filter условие
+     */
+    synchronized void removeIf(Predicate<? super K> filter) {
+        Iterator<Slot<K>> iterator = index.values().iterator();
+        while (iterator.hasNext()) {
+            Slot<K> slot = iterator.next();
+            if (filter.test(slot.key)) {
+                iterator.remove();
+                unindex(slot);
+            }
+        }
+    }
+
+    /**
+     * Удаляет все значения
+     */
+    synchronized void clear() {
+        index.clear();
+        writeOrder.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Освобождает хранилище и удаляет файл
+     */
+    void close() {
+        clear();
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Получение объема актуальных значений
+     * @return размер в байтах
+     */
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    private void unindex(Slot<K> slot) {
+        if (slot != null) {
+            usedBytes -= slot.length;
+        }
+    }
+
+    /**
+     * Удаляет из индекса записи, затертые последней записью
+     */
+    private void dropOverwritten() {
+        Slot<K> oldest;
+        while ((oldest = writeOrder.peekFirst()) != null && writePosition > oldest.offset + capacity) {
+            writeOrder.pollFirst();
+            if (index.remove(oldest.key, oldest)) {
+                usedBytes -= oldest.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Причина удаления элемента из кэша
+ */
+public enum RemovalCause {
+    /**
+     * Удален вызовом remove, removeIf или очисткой кэша
+     */
+    EXPLICIT,
+
+    /**
+     * Заменен новым значением
+     */
+    REPLACED,
+
+    /**
+     * Истек срок жизни
+     */
+    EXPIRED,
+
+    /**
+     * Вытеснен из-за ограничения размера
+     */
+    SIZE
+}
@@ -0,0 +1,19 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Получатель удаленных из кэша элементов.
+ * Вызывается под блокировкой кэша, поэтому должен работать быстро и не обращаться к этому же кэшу
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+
+    /**
+     * Элемент удален из кэша
+     * @param key ключ
+     * @param value удаленное значение
+     * @param cause причина удаления
+     */
+    void onRemoval(K key, V value, RemovalCause cause);
+}
@@ -0,0 +1,158 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Приблизительная оценка размера объектов в памяти (64-битная JVM со сжатыми ссылками).
+ * Обходит поля через рефлексию с ограничением глубины; используется только для статистики
+ */
+final class SizeEstimator {
+
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAX_DEPTH = 4;
+
+    // Накладные расходы элемента кэша: узел, запись ConcurrentHashMap и таймер
+    static final int ENTRY_OVERHEAD = 96;
+
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Long> SHALLOW_SIZES = new ConcurrentHashMap<>();
+
+    private SizeEstimator() {
+    }
+
+    /**
+     * Оценка размера объекта вместе с достижимыми объектами
+     * @param object объект
+     * @return размер в байтах
+     */
+    static long estimate(Object object) {
+        return estimate(object, new IdentityHashMap<>(), 0);
+    }
+
+    private static long estimate(Object object, IdentityHashMap<Object, Boolean> visited, int depth) {
+        if (object == null || visited.put(object, Boolean.TRUE) != null) {
+            return 0;
+        }
+
+        Class<?> type = object.getClass();
+        if (type == String.class) {
+            return align(HEADER + 12) + align(ARRAY_HEADER + ((String) object).length() * 2L);
+        }
+        if (type.isArray()) {
+            int length = Array.getLength(object);
+            Class<?> component = type.getComponentType();
+            long size = align(ARRAY_HEADER + (long) length * primitiveSize(component));
+            if (!component.isPrimitive() && depth < MAX_DEPTH) {
+                for (int i = 0; i < length; i++) {
+                    size += estimate(Array.get(object, i), visited, depth + 1);
+                }
+            }
+            return size;
+        }
+        if (depth >= MAX_DEPTH) {
+            return shallowSize(type);
+        }
+        // Коллекции кэшированных объектов могут изменяться во время обхода;
+        // тогда учитывается только сама коллекция без элементов
+        if (object instanceof Collection) {
+            long shallow = shallowSize(type) + ((Collection<?>) object).size() * 16L;
+            try {
+                long size = shallow;
+                for (Object element : (Collection<?>) object) {
+                    size += estimate(element, visited, depth + 1);
+                }
+                return size;
+            } catch (ConcurrentModificationException e) {
+                return shallow;
+            }
+        }
+        if (object instanceof Map) {
+            long shallow = shallowSize(type) + ((Map<?, ?>) object).size() * 32L;
+            try {
+                long size = shallow;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                    size += estimate(entry.getKey(), visited, depth + 1);
+                    size += estimate(entry.getValue(), visited, depth + 1);
+                }
+                return size;
+            } catch (ConcurrentModificationException e) {
+                return shallow;
+            }
+        }
+
+        long size = shallowSize(type);
+        for (Field field : referenceFields(type)) {
+            try {
+                size += estimate(field.get(object), visited, depth + 1);
+            } catch (IllegalAccessException e) {
+                // Поле недоступно, учитываем только ссылку
+            }
+        }
+        return size;
+    }
+
+    private static long shallowSize(Class<?> type) {
+        return SHALLOW_SIZES.computeIfAbsent(type, key -> {
+            long size = HEADER;
+            for (Class<?> current = key; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += primitiveSize(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        });
+    }
+
+    private static List<Field> referenceFields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, key -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = key; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    } catch (RuntimeException e) {
+                        // Поля закрытых модулей JDK не обходятся
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,210 @@
+package dev.flaymie.fcore.core.data.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Иерархическое колесо таймеров для истечения срока жизни элементов кэша.
+ * Элемент попадает в ячейку по времени истечения; при продвижении времени
+ * обходятся только наступившие ячейки, а элементы верхних уровней
+ * переносятся на нижние по мере приближения срока. Стоимость обслуживания
+ * зависит от количества истекших элементов, а не от размера кэша.
+ * Не потокобезопасно: вызывается под блокировкой кэша
+ */
+final class TimerWheel {
+
+    // Количество ячеек на каждом уровне
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+    // Длительность одной ячейки уровня (степень двойки, ~1 сек, ~1 мин, ~1 ч, ~1 день, ~6.5 дней)
+    private static final long[] SPANS = {
+            ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)),
+            ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)),
+            ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),
+            ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1))
+    };
+
+    private static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4])
+    };
+
+    private final Timer[][] wheel;
+    private long nanos;
+
+    /**
+     * Элемент колеса: время срабатывания и ссылки в списке ячейки
+     */
+    static class Timer {
+        long time;
+        Timer prevInWheel;
+        Timer nextInWheel;
+
+        boolean isScheduled() {
+            return nextInWheel != null;
+        }
+    }
+
+    /**
+     * Обработчик наступившего таймера
+     */
+    interface Expirer {
+        /**
+         * Вызывается, когда время таймера наступило
+         * @param timer таймер
+         * @param now текущее время в наносекундах
+         * @return true, если элемент удален; false, чтобы запланировать его заново
+         *         по обновленному {@link Timer#time}
+         */
+        boolean expire(Timer timer, long now);
+    }
+
+    TimerWheel(long now) {
+        this.nanos = now;
+        this.wheel = new Timer[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Timer[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                Timer sentinel = new Timer();
+                sentinel.prevInWheel = sentinel;
+                sentinel.nextInWheel = sentinel;
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Продвигает время колеса и обрабатывает наступившие таймеры
+     * @param now текущее время в наносекундах
+     * @param expirer обработчик наступивших таймеров
+     * @return количество удаленных элементов
+     */
+    int advance(long now, Expirer expirer) {
+        long previous = nanos;
+        if (now - previous <= 0) {
+            return 0;
+        }
+        nanos = now;
+
+        int expired = 0;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previous >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expired += expire(i, previousTicks, delta, expirer);
+        }
+        return expired;
+    }
+
+    /**
+     * Добавляет таймер в колесо по его {@link Timer#time}
+     * @param timer таймер
+     */
+    void schedule(Timer timer) {
+        Timer sentinel = findBucket(timer.time);
+        timer.prevInWheel = sentinel.prevInWheel;
+        timer.nextInWheel = sentinel;
+        sentinel.prevInWheel.nextInWheel = timer;
+        sentinel.prevInWheel = timer;
+    }
+
+    /**
+     * Переносит таймер в ячейку, соответствующую новому времени
+     * @param timer таймер
+     */
+    void reschedule(Timer timer) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+        }
+        schedule(timer);
+    }
+
+    /**
+     * Удаляет таймер из колеса
+     * @param timer таймер
+     */
+    void deschedule(Timer timer) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+        }
+    }
+
+    /**
+     * Удаляет все таймеры
+     */
+    void clear() {
+        for (Timer[] level : wheel) {
+            for (Timer sentinel : level) {
+                Timer timer = sentinel.nextInWheel;
+                while (timer != sentinel) {
+                    Timer next = timer.nextInWheel;
+                    timer.prevInWheel = null;
+                    timer.nextInWheel = null;
+                    timer = next;
+                }
+                sentinel.prevInWheel = sentinel;
+                sentinel.nextInWheel = sentinel;
+            }
+        }
+    }
+
+    private int expire(int level, long previousTicks, long delta, Expirer expirer) {
+        Timer[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+
+        int expired = 0;
+        for (int i = start; i < start + steps; i++) {
+            // Ячейка отсоединяется целиком; несработавшие таймеры планируются заново
+            Timer sentinel = buckets[i & mask];
+            Timer timer = sentinel.nextInWheel;
+            sentinel.prevInWheel = sentinel;
+            sentinel.nextInWheel = sentinel;
+
+            while (timer != sentinel) {
+                Timer next = timer.nextInWheel;
+                timer.prevInWheel = null;
+                timer.nextInWheel = null;
+
+                if (timer.time - nanos > 0 || !expirer.expire(timer, nanos)) {
+                    schedule(timer);
+                } else {
+                    expired++;
+                }
+                timer = next;
+            }
+        }
+        return expired;
+    }
+
+    private Timer findBucket(long time) {
+        long duration = time - nanos;
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private static void unlink(Timer timer) {
+        timer.prevInWheel.nextInWheel = timer.nextInWheel;
+        timer.nextInWheel.prevInWheel = timer.prevInWheel;
+        timer.prevInWheel = null;
+        timer.nextInWheel = null;
+    }
+
+    private static long ceilingPowerOfTwo(long x) {
+        return 1L << -Long.numberOfLeadingZeros(x - 1);
+    }
+}
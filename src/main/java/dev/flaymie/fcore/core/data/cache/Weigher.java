@@ -0,0 +1,18 @@
+package dev.flaymie.fcore.core.data.cache;
+
+/**
+ * Вычисление веса элемента кэша для ограничения по суммарному весу
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Вес элемента
+     * @param key ключ
+     * @param value значение
+     * @return неотрицательный вес
+     */
+    int weigh(K key, V value);
+}
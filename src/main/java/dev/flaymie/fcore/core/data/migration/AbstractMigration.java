@@ -4,34 +4,75 @@ import dev.flaymie.fcore.core.data.orm.ConnectionManager;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Абстрактный класс для миграций базы данных
+ * Абстрактный класс для миграций базы данных.
+ * Во время выполнения через {@link MigrationManager} вспомогательные методы используют соединение менеджера:
+ * в режиме производительности SQLite в пуле писателя одно соединение, и второе получить нельзя
  */
 public abstract class AbstractMigration implements Migration {
     
     protected final ConnectionManager connectionManager;
     protected final Logger logger;
     
+    // Соединение MigrationManager на время up()/down()
+    private Connection boundConnection;
+    
     public AbstractMigration(ConnectionManager connectionManager, Logger logger) {
         this.connectionManager = connectionManager;
         this.logger = logger;
     }
     
+    /**
+     * Работа с соединением
+     * @param <R> тип результата
+     */
+    @FunctionalInterface
+    protected interface ConnectionWork<R> {
+        R execute(Connection connection) throws SQLException;
+    }
+    
+    /**
+     * Задает соединение, на котором выполняются вспомогательные методы
+     * @param connection соединение или null, чтобы брать соединения из пула
+     */
+    void bindConnection(Connection connection) {
+        this.boundConnection = connection;
+    }
+    
+    /**
+     * Выполняет работу на соединении менеджера миграций, а вне его - на отдельном соединении из пула
+     * @param work работа
+     * @param <R> тип результата
+     * @return результат работы
+     * @throws SQLException при ошибке запроса
+     */
+    protected <R> R withConnection(ConnectionWork<R> work) throws SQLException {
+        if (boundConnection != null) {
+            return work.execute(boundConnection);
+        }
+        try (Connection connection = connectionManager.getConnection()) {
+            return work.execute(connection);
+        }
+    }
+    
     /**
      * Выполнение SQL запроса
      * @param sql SQL запрос
      * @return true, если запрос выполнен успешно
      */
     protected boolean executeQuery(String sql) {
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
-            
-            stmt.executeUpdate();
-            return true;
+        try {
+            return withConnection(connection -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    stmt.executeUpdate();
+                    return true;
+                }
+            });
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Ошибка при выполнении SQL запроса: " + sql, e);
             return false;
@@ -45,16 +86,18 @@ public abstract class AbstractMigration implements Migration {
      * @return true, если запрос выполнен успешно
      */
     protected boolean executeQuery(String sql, Object... params) {
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
-            
-            // Устанавливаем параметры
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
-            }
-            
-            stmt.executeUpdate();
-            return true;
+        try {
+            return withConnection(connection -> {
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    // Устанавливаем параметры
+                    for (int i = 0; i < params.length; i++) {
+                        stmt.setObject(i + 1, params[i]);
+                    }
+                    
+                    stmt.executeUpdate();
+                    return true;
+                }
+            });
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Ошибка при выполнении SQL запроса с параметрами: " + sql, e);
             return false;
@@ -67,13 +110,56 @@ public abstract class AbstractMigration implements Migration {
      * @return true, если таблица существует
      */
     protected boolean tableExists(String tableName) {
-        try (Connection connection = connectionManager.getConnection()) {
-            return connection.getMetaData()
-                    .getTables(null, null, tableName, null)
-                    .next();
+        try {
+            return withConnection(connection -> {
+                try (ResultSet tables = connection.getMetaData().getTables(null, null, tableName, null)) {
+                    return tables.next();
+                }
+            });
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Ошибка при проверке существования таблицы: " + tableName, e);
             return false;
         }
     }
+    
+    /**
+     * Проверка существования индекса
+     * @param tableName имя таблицы
+     * @param indexName имя индекса
+     * @return true, если индекс существует
+     */
+    protected boolean indexExists(String tableName, String indexName) {
+        try {
+            return withConnection(connection -> {
+                try (ResultSet indexes = connection.getMetaData().getIndexInfo(null, null, tableName, false, false)) {
+                    while (indexes.next()) {
+                        if (indexName.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            });
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Ошибка при проверке существования индекса: " + indexName, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Создание индекса, если он еще не существует
+     * @param tableName имя таблицы
+     * @param indexName имя индекса
+     * @param unique уникальный индекс
+     * @param columns колонки индекса
+     * @return true, если индекс существует или создан
+     */
+    protected boolean createIndex(String tableName, String indexName, boolean unique, String... columns) {
+        if (indexExists(tableName, indexName)) {
+            return true;
+        }
+        
+        return executeQuery("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + indexName +
+                " ON " + tableName + " (" + String.join(", ", columns) + ")");
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,41 @@
+package dev.flaymie.fcore.core.data.migration;
+
+import dev.flaymie.fcore.core.data.orm.ConnectionManager;
+
+import java.util.logging.Logger;
+
+/**
+ * Миграция для добавления индекса по имени игрока в таблицу пользователей.
+ * В MySQL индекс не создавался первой миграцией, в SQLite он уже существует
+ */
+public class AddUserIndexesMigration extends AbstractMigration {
+    
+    public AddUserIndexesMigration(ConnectionManager connectionManager, Logger logger) {
+        super(connectionManager, logger);
+    }
+    
+    @Override
+    public int getVersion() {
+        return 20261017; // Формат: YYYYMMDD
+    }
+    
+    @Override
+    public String getName() {
+        return "add_user_indexes";
+    }
+    
+    @Override
+    public boolean up() {
+        return createIndex("fcore_users", "idx_username", false, "username");
+    }
+    
+    @Override
+    public boolean down() {
+        // В SQLite индекс принадлежит первой миграции
+        if (!connectionManager.isUseMysql()) {
+            return true;
+        }
+        
+        return executeQuery("DROP INDEX idx_username ON fcore_users");
+    }
+}
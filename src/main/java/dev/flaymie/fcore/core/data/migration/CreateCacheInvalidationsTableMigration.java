@@ -0,0 +1,52 @@
+package dev.flaymie.fcore.core.data.migration;
+
+import dev.flaymie.fcore.core.data.orm.ConnectionManager;
+
+import java.util.logging.Logger;
+
+/**
+ * Миграция для создания таблицы сообщений сброса кэшей между серверами
+ */
+public class CreateCacheInvalidationsTableMigration extends AbstractMigration {
+    
+    public CreateCacheInvalidationsTableMigration(ConnectionManager connectionManager, Logger logger) {
+        super(connectionManager, logger);
+    }
+    
+    @Override
+    public int getVersion() {
+        return 20261018; // Формат: YYYYMMDD
+    }
+    
+    @Override
+    public String getName() {
+        return "create_cache_invalidations_table";
+    }
+    
+    @Override
+    public boolean up() {
+        if (tableExists("fcore_cache_invalidations")) {
+            return true;
+        }
+        
+        boolean isMysql = connectionManager.isUseMysql();
+        String createTableSQL =
+            "CREATE TABLE fcore_cache_invalidations (" +
+            "id " + (isMysql ? "BIGINT AUTO_INCREMENT" : "INTEGER PRIMARY KEY AUTOINCREMENT") + ", " +
+            "origin VARCHAR(36) NOT NULL, " +
+            "cache_name VARCHAR(191) NOT NULL, " +
+            "cache_key VARCHAR(191) NOT NULL, " +
+            "version BIGINT NOT NULL, " +
+            "created_at BIGINT NOT NULL" +
+            (isMysql ? ", PRIMARY KEY (id)" : "") +
+            ")" + (isMysql ? " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4" : "");
+        
+        return executeQuery(createTableSQL) &&
+               createIndex("fcore_cache_invalidations", "idx_invalidations_created", false, "created_at");
+    }
+    
+    @Override
+    public boolean down() {
+        return executeQuery("DROP TABLE IF EXISTS fcore_cache_invalidations");
+    }
+}
@@ -1,7 +1,10 @@
 package dev.flaymie.fcore.core.data.migration;
 
 /**
- * Интерфейс для миграций базы данных
+ * Интерфейс для миграций базы данных.
+ * Менеджер миграций держит соединение пула писателя, пока выполняются up() и down();
+ * миграции на основе {@link AbstractMigration} используют его же, а собственным реализациям
+ * нельзя рассчитывать на второе соединение в режиме производительности SQLite
  */
 public interface Migration {
     
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -93,6 +94,8 @@ public class MigrationManager implements FCoreService {
     private void registerMigrations() {
         // Пример регистрации миграций (в проекте будут конкретные классы миграций)
         registerMigration(new CreateUsersTableMigration(connectionManager, logger));
+        registerMigration(new AddUserIndexesMigration(connectionManager, logger));
+        registerMigration(new CreateCacheInvalidationsTableMigration(connectionManager, logger));
         
         logger.info("Зарегистрировано миграций: " + migrations.size());
     }
@@ -104,7 +107,7 @@ public class MigrationManager implements FCoreService {
     public int migrate() {
         try (Connection connection = connectionManager.getConnection()) {
             // Получаем выполненные миграции
-            List<Integer> executedVersions = getExecutedMigrations();
+            List<Integer> executedVersions = getExecutedMigrations(connection);
             
             // Находим новые миграции
             List<Migration> pendingMigrations = new ArrayList<>();
@@ -134,7 +137,7 @@ public class MigrationManager implements FCoreService {
                 
                 try {
                     // Выполняем миграцию
-                    boolean success = migration.up();
+                    boolean success = runOnConnection(connection, migration, migration::up);
                     
                     if (success) {
                         // Записываем информацию о выполненной миграции
@@ -190,7 +193,7 @@ public class MigrationManager implements FCoreService {
                 
                 try {
                     // Откатываем миграцию
-                    boolean success = migration.down();
+                    boolean success = runOnConnection(connection, migration, migration::down);
                     
                     if (success) {
                         // Удаляем информацию о миграции
@@ -214,15 +217,37 @@ public class MigrationManager implements FCoreService {
         }
     }
     
+    /**
+     * Выполняет шаг миграции на соединении менеджера. Пока оно занято, второе соединение
+     * из пула писателя может быть недоступно, поэтому запросы {@link AbstractMigration} идут через него же
+     * @param connection соединение менеджера миграций
+     * @param migration миграция
+     * @param step up() или down()
+     * @return результат шага
+     */
+    private boolean runOnConnection(Connection connection, Migration migration, BooleanSupplier step) {
+        if (!(migration instanceof AbstractMigration)) {
+            return step.getAsBoolean();
+        }
+        
+        AbstractMigration bound = (AbstractMigration) migration;
+        bound.bindConnection(connection);
+        try {
+            return step.getAsBoolean();
+        } finally {
+            bound.bindConnection(null);
+        }
+    }
+    
     /**
      * Получение списка выполненных миграций
+     * @param connection соединение с базой данных
      * @return список версий выполненных миграций
      */
-    private List<Integer> getExecutedMigrations() throws SQLException {
+    private List<Integer> getExecutedMigrations(Connection connection) throws SQLException {
         List<Integer> versions = new ArrayList<>();
         
-        try (Connection connection = connectionManager.getConnection();
-             PreparedStatement stmt = connection.prepareStatement("SELECT version FROM fcore_migrations");
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT version FROM fcore_migrations");
              ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
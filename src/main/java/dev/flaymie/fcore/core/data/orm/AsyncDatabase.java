@@ -0,0 +1,343 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import dev.flaymie.fcore.FCore;
+import org.bukkit.Bukkit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Асинхронное представление {@link Database}.
+ * Операции выполняются на выделенном пуле потоков, размер которого совпадает
+ * с размером пула соединений, и возвращают {@link CompletableFuture}.
+ * При переполнении очереди фоновый поток ждет освобождения места, а основной поток сервера
+ * никогда не выполняет запрос сам: его future сразу завершается с {@link RejectedExecutionException}.
+ * Поток самого пула не ждет места в своей очереди, а выполняет вложенную задачу сразу
+ */
+public class AsyncDatabase {
+
+    // Максимальное количество задач в очереди на один поток
+    private static final int QUEUE_CAPACITY_PER_THREAD = 256;
+
+    private final FCore plugin;
+    private final Logger logger;
+    private final Database database;
+    private final ThreadPoolExecutor executor;
+    private final Executor mainThreadExecutor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    AsyncDatabase(FCore plugin, Database database, int threads) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.database = database;
+
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(poolSize * QUEUE_CAPACITY_PER_THREAD),
+                new DatabaseThreadFactory(),
+                new SaturationPolicy()
+        );
+        this.mainThreadExecutor = runnable -> {
+            if (Bukkit.isPrimaryThread()) {
+                runnable.run();
+            } else {
+                plugin.getServer().getScheduler().runTask(plugin, runnable);
+            }
+        };
+    }
+
+    /**
+     * Асинхронно сохраняет объект
+     * @param entity объект для сохранения
+     * @param <T> тип объекта
+     * @return future с результатом сохранения
+     */
+    public <T> CompletableFuture<Boolean> save(T entity) {
+        return supply(() -> database.save(entity));
+    }
+
+    /**
+     * Асинхронно сохраняет коллекцию объектов одной транзакцией
+     * @param entities объекты для сохранения
+     * @param <T> тип объектов
+     * @return future с результатом сохранения
+     */
+    public <T> CompletableFuture<Boolean> saveAll(Collection<T> entities) {
+        return supply(() -> database.saveAll(entities));
+    }
+
+    /**
+     * Асинхронно загружает объект по первичному ключу
+     * @param entityClass класс сущности
+     * @param id значение первичного ключа
+     * @param <T> тип объекта
+     * @param <ID> тип первичного ключа
+     * @return future с объектом или null
+     */
+    public <T, ID> CompletableFuture<T> find(Class<T> entityClass, ID id) {
+        return supply(() -> database.find(entityClass, id));
+    }
+
+    /**
+     * Асинхронно загружает список объектов по условию
+     * @param entityClass класс сущности
+     * @param whereClause условие WHERE (без слова WHERE)
+     * @param params параметры для условия
+     * @param <T> тип объекта
+     * @return future со списком объектов
+     */
+    public <T> CompletableFuture<List<T>> findAll(Class<T> entityClass, String whereClause, Object... params) {
+        return supply(() -> database.findAll(entityClass, whereClause, params));
+    }
+
+    /**
+     * Асинхронно удаляет объект
+     * @param entity объект для удаления
+     * @param <T> тип объекта
+     * @return future с результатом удаления
+     */
+    public <T> CompletableFuture<Boolean> delete(T entity) {
+        return supply(() -> database.delete(entity));
+    }
+
+    /**
+     * Асинхронно удаляет коллекцию объектов одной транзакцией
+     * @param entities объекты для удаления
+     * @param <T> тип объектов
+     * @return future с результатом удаления
+     */
+    public <T> CompletableFuture<Boolean> deleteAll(Collection<T> entities) {
+        return supply(() -> database.deleteAll(entities));
+    }
+
+    /**
+     * Асинхронно выполняет произвольный SQL запрос
+     * @param sql запрос SQL
+     * @param params параметры запроса
+     * @return future с результатом запроса или -1 при ошибке
+     */
+    public CompletableFuture<Integer> executeUpdate(String sql, Object... params) {
+        return supply(() -> database.executeUpdate(sql, params));
+    }
+
+    /**
+     * Асинхронно выполняет работу в одной транзакции
+     * @param work работа с базой данных
+     * @return future с результатом: true, если транзакция зафиксирована
+     */
+    public CompletableFuture<Boolean> inTransaction(Transaction.Work work) {
+        return supply(() -> database.inTransaction(work));
+    }
+    
+    /**
+     * Выполняет произвольную работу с базой данных на пуле потоков БД
+     * @param supplier работа с базой данных
+     * @param <T> тип результата
+     * @return future с результатом
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        DatabaseTask<T> task = new DatabaseTask<>(supplier);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            task.future.completeExceptionally(e);
+        }
+        return task.future;
+    }
+
+    /**
+     * Переносит завершение future в основной поток сервера
+     * @param future исходный future
+     * @param <T> тип результата
+     * @return future, продолжения которого выполняются в основном потоке
+     */
+    public <T> CompletableFuture<T> sync(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, error) -> mainThreadExecutor.execute(() -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Получение пула потоков БД
+     * @return пул потоков
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Получение исполнителя в основном потоке сервера
+     * @return исполнитель
+     */
+    public Executor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * Получение количества задач в очереди
+     * @return количество задач
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Получение количества выполняемых задач
+     * @return количество задач
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Получение количества задач, отклоненных из-за переполнения очереди или остановки пула
+     * @return количество задач
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Останавливает пул, дожидаясь выполнения поставленных задач
+     * @param timeout максимальное время ожидания
+     * @param unit единица измерения времени
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                List<Runnable> dropped = executor.shutdownNow();
+                cancel(dropped);
+                logger.warning("Пул потоков БД остановлен принудительно, отменено задач: " + dropped.size());
+            }
+        } catch (InterruptedException e) {
+            cancel(executor.shutdownNow());
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Ожидание завершения задач БД прервано", e);
+        }
+    }
+
+    private void cancel(List<Runnable> dropped) {
+        for (Runnable runnable : dropped) {
+            if (runnable instanceof DatabaseTask) {
+                ((DatabaseTask<?>) runnable).future.completeExceptionally(
+                        new RejectedExecutionException("Пул потоков БД остановлен"));
+            }
+        }
+    }
+
+    /**
+     * Задача пула БД, завершающая свой future
+     */
+    private static final class DatabaseTask<T> implements Runnable {
+        final Supplier<T> supplier;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        DatabaseTask(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Поведение при переполненной очереди: фоновые потоки ждут места,
+     * основной поток сервера и задачи после остановки пула отклоняются.
+     * Поток пула выполняет вложенную задачу сам: если все потоки ждут места в очереди, ее некому разбирать
+     */
+    private final class SaturationPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Пул потоков БД остановлен");
+            }
+            if (Bukkit.isPrimaryThread()) {
+                throw new RejectedExecutionException("Очередь пула потоков БД переполнена");
+            }
+            if (Thread.currentThread() instanceof DatabaseThread) {
+                runInline(runnable);
+                return;
+            }
+            try {
+                executor.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Ожидание места в очереди пула БД прервано", e);
+            }
+            // Пул мог остановиться, пока задача ждала места
+            if (executor.isShutdown() && executor.getQueue().remove(runnable)) {
+                throw new RejectedExecutionException("Пул потоков БД остановлен");
+            }
+        }
+    }
+
+    /**
+     * Выполняет задачу в текущем потоке пула вне его транзакции: задача из очереди
+     * выполнялась бы в отдельной единице работы
+     * @param runnable задача
+     */
+    private void runInline(Runnable runnable) {
+        Transaction suspended = database.suspendTransaction();
+        try {
+            runnable.run();
+        } finally {
+            database.resumeTransaction(suspended);
+        }
+    }
+
+    /**
+     * Поток пула БД
+     */
+    private static final class DatabaseThread extends Thread {
+        DatabaseThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+
+    /**
+     * Фабрика потоков пула БД
+     */
+    private static class DatabaseThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new DatabaseThread(runnable, "FCore-DB-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
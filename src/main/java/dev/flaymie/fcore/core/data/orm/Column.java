@@ -30,4 +30,15 @@ public @interface Column {
      * Указывает, что колонка не может быть NULL
      */
     boolean notNull() default false;
+    
+    /**
+     * Создать индекс по колонке; значения индексированных колонок
+     * также кэшируются для поиска через {@link Database#findBy(Class, String, Object)}
+     */
+    boolean indexed() default false;
+    
+    /**
+     * Создать уникальный индекс по колонке (подразумевает indexed)
+     */
+    boolean unique() default false;
 } 
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.zaxxer.hikari.HikariDataSource;
 import dev.flaymie.fcore.FCore;
 import dev.flaymie.fcore.api.service.FCoreService;
 import dev.flaymie.fcore.core.data.config.ConfigManager;
+import dev.flaymie.fcore.core.debug.MetricsRegistry;
 
 import java.io.File;
 import java.sql.Connection;
@@ -22,7 +23,13 @@ public class ConnectionManager implements FCoreService {
     private final ConfigManager configManager;
     private DatabaseConfig config;
     private HikariDataSource dataSource;
+    private HikariDataSource readDataSource;
     private boolean useMysql;
+    private boolean sqlitePerformanceMode;
+    private MetricsRegistry metrics;
+    private volatile PoolMetricsTracker metricsTracker;
+    private volatile PoolMetricsTracker readMetricsTracker;
+    private PoolAutoTuner autoTuner;
     
     public ConnectionManager(FCore plugin, ConfigManager configManager) {
         this.plugin = plugin;
@@ -39,16 +46,36 @@ public class ConnectionManager implements FCoreService {
         
         // Определяем какой тип БД использовать
         useMysql = config.isMysqlEnabled();
+        sqlitePerformanceMode = !useMysql && config.isSqlitePerformanceMode();
         
         // Инициализируем соединение
         initializeDataSource();
         
-        logger.info("Используется " + (useMysql ? "MySQL" : "SQLite") + " база данных");
+        // Подстройка размера пула имеет смысл только для MySQL
+        if (useMysql && config.isAutoTuneEnabled() && metricsTracker != null) {
+            autoTuner = new PoolAutoTuner(plugin, dataSource, metricsTracker, config.getPoolSize(),
+                    config.getAutoTuneMaxPoolSize(), config.getAutoTuneTargetWait(),
+                    metrics.counter(PoolMetricsTracker.PREFIX + "resizes"));
+            autoTuner.start(Math.max(20, config.getAutoTuneInterval()));
+            logger.info("Подстройка пула соединений включена: " + config.getPoolSize() + "-" +
+                    config.getAutoTuneMaxPoolSize() + " соединений");
+        }
+        
+        logger.info("Используется " + (useMysql ? "MySQL" : "SQLite") + " база данных" +
+                (sqlitePerformanceMode ? " (WAL, один писатель и " + config.getSqliteReaderPoolSize() + " читателей)" : ""));
     }
     
     @Override
     public void onDisable() {
+        if (autoTuner != null) {
+            autoTuner.stop();
+            autoTuner = null;
+        }
+        
         // Закрываем соединения при отключении
+        if (readDataSource != null && !readDataSource.isClosed()) {
+            readDataSource.close();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("Соединение с базой данных закрыто");
@@ -72,10 +99,17 @@ public class ConnectionManager implements FCoreService {
             hikariConfig.setJdbcUrl("jdbc:mysql://" + config.getHost() + ":" + config.getPort() + 
                                    "/" + config.getDatabase() + 
                                    "?useSSL=" + config.isUseSSL() +
-                                   "&useUnicode=true&characterEncoding=utf8");
+                                   "&useUnicode=true&characterEncoding=utf8" +
+                                   "&rewriteBatchedStatements=true");
             hikariConfig.setUsername(config.getUsername());
             hikariConfig.setPassword(config.getPassword());
             hikariConfig.setDriverClassName("com.mysql.jdbc.Driver");
+            
+            // Кэш подготовленных запросов драйвера
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
         } else {
             // SQLite настройки
             File dbFile = new File(plugin.getDataFolder(), config.getSqliteFile());
@@ -87,14 +121,32 @@ public class ConnectionManager implements FCoreService {
             
             hikariConfig.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
             hikariConfig.setDriverClassName("org.sqlite.JDBC");
+            
+            if (sqlitePerformanceMode) {
+                applySqlitePragmas(hikariConfig);
+            }
         }
         
         // Общие настройки HikariCP
         hikariConfig.setPoolName("FCore-HikariPool");
-        hikariConfig.setMaximumPoolSize(config.getPoolSize());
+        // В режиме производительности SQLite все записи идут через одно соединение:
+        // писатели ждут его в очереди пула, а не получают SQLITE_BUSY на блокировке файла
+        hikariConfig.setMaximumPoolSize(sqlitePerformanceMode ? 1 : config.getPoolSize());
         hikariConfig.setConnectionTimeout(config.getConnectionTimeout());
         hikariConfig.setLeakDetectionThreshold(60000);
         
+        // При подстройке пул растет сверх pool-size, а лишние соединения закрываются по idleTimeout
+        if (useMysql && config.isAutoTuneEnabled()) {
+            hikariConfig.setMinimumIdle(config.getPoolSize());
+        }
+        
+        // Метрики пула: занятые, свободные и ожидающие соединения, время получения и использования
+        if (plugin.getDebugManager() != null) {
+            metrics = plugin.getDebugManager().getMetrics();
+            hikariConfig.setMetricsTrackerFactory((poolName, poolStats) ->
+                    metricsTracker = new PoolMetricsTracker(metrics, poolStats));
+        }
+        
         // Отображение SQL запросов в лог
         if (config.isShowSql()) {
             hikariConfig.setConnectionTestQuery("SELECT 1");
@@ -103,17 +155,67 @@ public class ConnectionManager implements FCoreService {
         try {
             // Создаем пул соединений
             dataSource = new HikariDataSource(hikariConfig);
+            if (metrics != null) {
+                metrics.gauge(PoolMetricsTracker.PREFIX + "max", dataSource::getMaximumPoolSize);
+            }
             
             // Тестируем соединение
             try (Connection conn = dataSource.getConnection()) {
                 logger.info("Соединение с базой данных установлено успешно");
             }
+            
+            if (sqlitePerformanceMode) {
+                readDataSource = createSqliteReaderPool(hikariConfig.getJdbcUrl());
+            }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Ошибка при инициализации соединения с базой данных", e);
             throw new RuntimeException("Не удалось установить соединение с базой данных: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * Задает прагмы SQLite через свойства драйвера, чтобы они применялись к каждому новому соединению
+     * @param hikariConfig конфигурация пула
+     */
+    private void applySqlitePragmas(HikariConfig hikariConfig) {
+        hikariConfig.addDataSourceProperty("journal_mode", "WAL");
+        hikariConfig.addDataSourceProperty("synchronous", "NORMAL");
+        hikariConfig.addDataSourceProperty("busy_timeout", String.valueOf(config.getSqliteBusyTimeout()));
+        // Отрицательное значение cache_size задает размер в килобайтах, а не в страницах
+        hikariConfig.addDataSourceProperty("cache_size", String.valueOf(-Math.abs(config.getSqliteCacheSize())));
+        hikariConfig.addDataSourceProperty("mmap_size", String.valueOf(config.getSqliteMmapSize()));
+        hikariConfig.addDataSourceProperty("temp_store", "MEMORY");
+    }
+    
+    /**
+     * Создает пул соединений только для чтения. В режиме WAL читатели не блокируют писателя и друг друга
+     * @param jdbcUrl адрес файла базы данных
+     * @return пул читателей
+     */
+    private HikariDataSource createSqliteReaderPool(String jdbcUrl) {
+        HikariConfig readerConfig = new HikariConfig();
+        readerConfig.setJdbcUrl(jdbcUrl);
+        readerConfig.setDriverClassName("org.sqlite.JDBC");
+        applySqlitePragmas(readerConfig);
+        readerConfig.setConnectionInitSql("PRAGMA query_only = ON");
+        
+        readerConfig.setPoolName("FCore-SQLiteReaders");
+        readerConfig.setMaximumPoolSize(Math.max(1, config.getSqliteReaderPoolSize()));
+        readerConfig.setConnectionTimeout(config.getConnectionTimeout());
+        readerConfig.setLeakDetectionThreshold(60000);
+        
+        if (metrics != null) {
+            readerConfig.setMetricsTrackerFactory((poolName, poolStats) ->
+                    readMetricsTracker = new PoolMetricsTracker(metrics, PoolMetricsTracker.READ_PREFIX, poolStats));
+        }
+        
+        HikariDataSource readers = new HikariDataSource(readerConfig);
+        if (metrics != null) {
+            metrics.gauge(PoolMetricsTracker.READ_PREFIX + "max", readers::getMaximumPoolSize);
+        }
+        return readers;
+    }
+    
     /**
      * Возвращает соединение с базой данных из пула
      * @return объект Connection
@@ -126,6 +228,83 @@ public class ConnectionManager implements FCoreService {
         return dataSource.getConnection();
     }
     
+    /**
+     * Возвращает соединение для запросов на чтение. Для SQLite в режиме производительности
+     * это соединение из пула читателей, в остальных случаях - обычное соединение из пула
+     * @return объект Connection
+     * @throws SQLException при ошибке получения соединения
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (readDataSource == null) {
+            return getConnection();
+        }
+        if (readDataSource.isClosed()) {
+            throw new SQLException("Пул читателей SQLite закрыт");
+        }
+        return readDataSource.getConnection();
+    }
+    
+    /**
+     * Возвращает конфигурацию базы данных
+     * @return конфигурация
+     */
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Возвращает максимальный размер пула соединений
+     * @return размер пула
+     */
+    public int getPoolSize() {
+        return dataSource != null ? dataSource.getMaximumPoolSize() : config.getPoolSize();
+    }
+    
+    /**
+     * Возвращает верхнюю границу размера пула с учетом подстройки
+     * @return наибольший возможный размер пула
+     */
+    public int getMaxPoolSize() {
+        if (sqlitePerformanceMode) {
+            return 1 + Math.max(1, config.getSqliteReaderPoolSize());
+        }
+        return useMysql && config.isAutoTuneEnabled()
+                ? Math.max(config.getPoolSize(), config.getAutoTuneMaxPoolSize())
+                : config.getPoolSize();
+    }
+    
+    /**
+     * Возвращает метрики пула соединений
+     * @return метрики или null, если реестр метрик недоступен
+     */
+    public PoolMetricsTracker getMetricsTracker() {
+        return metricsTracker;
+    }
+    
+    /**
+     * Возвращает метрики пула читателей SQLite
+     * @return метрики или null, если пул читателей не используется
+     */
+    public PoolMetricsTracker getReadMetricsTracker() {
+        return readMetricsTracker;
+    }
+    
+    /**
+     * Проверяет, включен ли режим производительности SQLite (WAL, один писатель, пул читателей)
+     * @return true, если режим включен
+     */
+    public boolean isSqlitePerformanceMode() {
+        return sqlitePerformanceMode;
+    }
+    
+    /**
+     * Возвращает автоподстройку размера пула
+     * @return автоподстройка или null, если она выключена
+     */
+    public PoolAutoTuner getAutoTuner() {
+        return autoTuner;
+    }
+    
     /**
      * Проверяет используется ли MySQL
      * @return true, если используется MySQL, false для SQLite
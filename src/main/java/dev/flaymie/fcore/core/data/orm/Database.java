@@ -2,13 +2,22 @@ package dev.flaymie.fcore.core.data.orm;
 
 import dev.flaymie.fcore.FCore;
 import dev.flaymie.fcore.api.service.FCoreService;
+import dev.flaymie.fcore.core.data.cache.CacheInvalidationBus;
 import dev.flaymie.fcore.core.data.cache.CacheManager;
+import dev.flaymie.fcore.core.data.cache.NamedCache;
 
 import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Класс для работы с базой данных (простой ORM)
@@ -19,23 +28,55 @@ public class Database implements FCoreService {
     private final Logger logger;
     private final ConnectionManager connectionManager;
     private final CacheManager cacheManager;
-    private final Map<Class<?>, EntityInfo> entityInfoCache = new HashMap<>();
+    private final Map<Class<?>, EntityInfo> entityInfoCache = new ConcurrentHashMap<>();
+    private AsyncDatabase asyncDatabase;
+    private int fetchSize = 500;
+    private StatementProfiler profiler;
+    
+    // Шина сброса кэшей между серверами (только при общей базе MySQL)
+    private volatile CacheInvalidationBus invalidationBus;
+    private boolean refreshOnInvalidation;
+    
+    // Сбрасывается, если драйвер вернул SUCCESS_NO_INFO для пакета: дальше версионные обновления
+    // выполняются по одному, чтобы конфликт версий определялся по количеству строк
+    private volatile boolean batchUpdateCounts = true;
+    
+    // Транзакция, привязанная к текущему потоку
+    private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
     
     public Database(FCore plugin, ConnectionManager connectionManager, CacheManager cacheManager) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.connectionManager = connectionManager;
         this.cacheManager = cacheManager;
+        this.profiler = new StatementProfiler(logger, null, false, false, 0);
     }
     
     @Override
     public void onEnable() {
         logger.info("Инициализация базы данных...");
+        
+        fetchSize = connectionManager.getConfig().getFetchSize();
+        refreshOnInvalidation = connectionManager.getConfig().isInvalidationRefresh();
+        
+        // Замер запросов и журнал медленных запросов
+        DatabaseConfig config = connectionManager.getConfig();
+        profiler = new StatementProfiler(logger,
+                plugin.getDebugManager() != null ? plugin.getDebugManager().getMetrics() : null,
+                config.isProfileStatements(), config.isShowSql(), config.getSlowQueryThreshold());
+        
+        // Пул потоков БД по размеру пула соединений
+        asyncDatabase = new AsyncDatabase(plugin, this, connectionManager.getMaxPoolSize());
     }
     
     @Override
     public void onDisable() {
         logger.info("Отключение базы данных...");
+        
+        // Дожидаемся выполнения поставленных асинхронных операций
+        if (asyncDatabase != null) {
+            asyncDatabase.shutdown(30, TimeUnit.SECONDS);
+        }
     }
     
     @Override
@@ -43,6 +84,288 @@ public class Database implements FCoreService {
         return "Database";
     }
     
+    /**
+     * Получение профилировщика запросов
+     * @return статистика и журнал медленных запросов
+     */
+    public StatementProfiler getProfiler() {
+        return profiler;
+    }
+    
+    /**
+     * Получение асинхронного представления базы данных
+     * @return асинхронное представление
+     */
+    public AsyncDatabase async() {
+        return asyncDatabase;
+    }
+    
+    /**
+     * Подключает шину сброса кэшей: сохранение и удаление публикуют измененные ключи,
+     * а изменения других серверов удаляют устаревшие объекты из кэша сущностей
+     * @param invalidationBus шина или null для отключения
+     */
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+        if (invalidationBus != null) {
+            for (Map.Entry<Class<?>, EntityInfo> entry : entityInfoCache.entrySet()) {
+                subscribe(invalidationBus, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Получение шины сброса кэшей
+     * @return шина или null, если она не используется
+     */
+    public CacheInvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+    
+    /**
+     * Проверка, перезагружаются ли объекты, измененные другими серверами
+     * @return true, если объекты перезагружаются, false - только удаляются из кэша
+     */
+    public boolean isRefreshOnInvalidation() {
+        return refreshOnInvalidation;
+    }
+    
+    /**
+     * Регистрирует получателя изменений сущности, сделанных другими серверами.
+     * Вызывается после удаления объекта из кэша сущностей с первичным ключом
+     * и устаревшим объектом (null, если объекта не было в кэше)
+     * @param entityClass класс сущности
+     * @param listener получатель
+     * @param <T> тип сущности
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void onRemoteChange(Class<T> entityClass, BiConsumer<Object, ? super T> listener) {
+        getEntityInfo(entityClass).getRemoteChangeListeners().add((BiConsumer<Object, Object>) listener);
+    }
+    
+    /**
+     * Удаляет объект из кэша на этом и на остальных серверах.
+     * Используется после изменения строк в обход ORM, например через {@link #executeUpdate(String, Object...)}
+     * @param entityClass класс сущности
+     * @param id значение первичного ключа
+     */
+    public void invalidate(Class<?> entityClass, Object id) {
+        EntityInfo entityInfo = getEntityInfo(entityClass);
+        Object cachedEntity = entityInfo.getEntityCache().peek(cacheId(id));
+        if (cachedEntity != null) {
+            evictEntity(entityInfo, cachedEntity, id);
+        } else {
+            entityInfo.getEntityCache().remove(cacheId(id));
+        }
+        publishChange(entityInfo, null, id);
+    }
+    
+    /**
+     * Выполняет работу в одной транзакции.
+     * Все операции этого объекта в текущем потоке используют одно соединение;
+     * при исключении или ошибке любой операции изменения откатываются целиком.
+     * Вложенный вызов создает точку сохранения и при ошибке откатывает только свои изменения
+     * <pre>
+     * boolean ok = db.inTransaction(tx -&gt; {
+     *     from.setBalance(from.getBalance() - amount);
+     *     to.setBalance(to.getBalance() + amount);
+     *     db.save(from);
+     *     db.save(to);
+     * });
+     * </pre>
+     * @param work работа с базой данных
+     * @return true, если транзакция зафиксирована
+     */
+    public boolean inTransaction(Transaction.Work work) {
+        Transaction current = currentTransaction.get();
+        if (current != null) {
+            return runNested(current, work);
+        }
+        
+        Connection connection = null;
+        
+        try {
+            connection = connectionManager.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            
+            Transaction transaction = new Transaction(connection);
+            currentTransaction.set(transaction);
+            
+            try {
+                work.execute(transaction);
+                
+                if (transaction.isRollbackOnly()) {
+                    connection.rollback();
+                    transaction.runAfterRollback();
+                    logger.warning("Транзакция откачена из-за ошибки одной из операций");
+                    return false;
+                }
+                
+                connection.commit();
+            } catch (Exception e) {
+                try {
+                    connection.rollback();
+                } finally {
+                    transaction.runAfterRollback();
+                }
+                throw e;
+            } finally {
+                currentTransaction.remove();
+                connection.setAutoCommit(autoCommit);
+            }
+            
+            transaction.runAfterCommit();
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при выполнении транзакции", e);
+            return false;
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+    
+    /**
+     * Выполняет вложенную работу внутри точки сохранения
+     * @param transaction текущая транзакция
+     * @param work работа с базой данных
+     * @return true, если изменения вложенной работы сохранены
+     */
+    private boolean runNested(Transaction transaction, Transaction.Work work) {
+        boolean outerRollbackOnly = transaction.isRollbackOnly();
+        int commitMark = transaction.getAfterCommitCount();
+        int rollbackMark = transaction.getAfterRollbackCount();
+        Savepoint savepoint = null;
+        
+        try {
+            savepoint = transaction.savepoint();
+            transaction.setRollbackOnly(false);
+            
+            work.execute(transaction);
+            
+            if (!transaction.isRollbackOnly()) {
+                transaction.release(savepoint);
+                transaction.setRollbackOnly(outerRollbackOnly);
+                return true;
+            }
+            
+            logger.warning("Вложенная транзакция откачена из-за ошибки одной из операций");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка во вложенной транзакции", e);
+        }
+        
+        try {
+            if (savepoint != null) {
+                transaction.rollbackTo(savepoint);
+            }
+            transaction.discardSince(commitMark, rollbackMark);
+            transaction.setRollbackOnly(outerRollbackOnly);
+        } catch (Exception e) {
+            // Не удалось вернуться к точке сохранения - откатываем всю транзакцию
+            logger.log(Level.SEVERE, "Ошибка при откате к точке сохранения", e);
+            transaction.setRollbackOnly(true);
+        }
+        return false;
+    }
+    
+    /**
+     * Проверка, выполняется ли текущий поток внутри {@link #inTransaction(Transaction.Work)}
+     * @return true, если есть активная транзакция
+     */
+    public boolean isInTransaction() {
+        return currentTransaction.get() != null;
+    }
+    
+    /**
+     * Отвязывает транзакцию от текущего потока
+     * @return отвязанная транзакция или null
+     */
+    Transaction suspendTransaction() {
+        Transaction transaction = currentTransaction.get();
+        currentTransaction.remove();
+        return transaction;
+    }
+    
+    /**
+     * Снова привязывает транзакцию к текущему потоку
+     * @param transaction транзакция из {@link #suspendTransaction()} или null
+     */
+    void resumeTransaction(Transaction transaction) {
+        if (transaction != null) {
+            currentTransaction.set(transaction);
+        }
+    }
+    
+    /**
+     * Получает соединение: внутри транзакции - соединение транзакции,
+     * иначе - соединение из пула
+     * @return соединение
+     * @throws SQLException если не удалось получить соединение
+     */
+    private Connection getConnection() throws SQLException {
+        Transaction transaction = currentTransaction.get();
+        return transaction != null ? transaction.getConnection() : connectionManager.getConnection();
+    }
+    
+    /**
+     * Получает соединение для чтения: внутри транзакции - соединение транзакции,
+     * чтобы видеть ее незафиксированные изменения, иначе - соединение из пула читателей
+     * @return соединение
+     * @throws SQLException если не удалось получить соединение
+     */
+    private Connection getReadConnection() throws SQLException {
+        Transaction transaction = currentTransaction.get();
+        return transaction != null ? transaction.getConnection() : connectionManager.getReadConnection();
+    }
+    
+    /**
+     * Регистрирует действие для отмены изменений в памяти при откате транзакции
+     * @param action действие
+     */
+    private void afterRollback(Runnable action) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.afterRollback(action);
+        }
+    }
+    
+    /**
+     * Помечает текущую транзакцию для отката после ошибки операции
+     */
+    private void markRollbackOnly() {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.setRollbackOnly();
+        }
+    }
+    
+    /**
+     * Регистрирует сущность: строит информацию о ней, кэширует SQL
+     * и один раз проверяет (или создает) таблицу
+     * @param entityClass класс сущности
+     * @return true, если регистрация успешна
+     */
+    public boolean registerEntity(Class<?> entityClass) {
+        try (Connection connection = getConnection()) {
+            ensureTableExists(connection, getEntityInfo(entityClass));
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при регистрации сущности " + entityClass.getName(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Регистрирует собственное отображение для сущности вместо реализации по умолчанию
+     * @param entityClass класс сущности
+     * @param mapper отображение сущности
+     * @param <T> тип сущности
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void registerMapper(Class<T> entityClass, EntityMapper<T> mapper) {
+        getEntityInfo(entityClass).setMapper((EntityMapper<Object>) mapper);
+    }
+    
     /**
      * Сохраняет объект в базу данных
      * @param entity объект для сохранения
@@ -50,82 +373,108 @@ public class Database implements FCoreService {
      * @return true, если сохранение успешно
      */
     public <T> boolean save(T entity) {
+        try {
+            saveOrThrow(entity);
+            return true;
+        } catch (OptimisticLockException e) {
+            return false;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при сохранении в базу данных", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Сохраняет объект в базу данных, передавая ошибку вызывающему коду,
+     * чтобы он мог отличить конфликт или нарушение ограничения от временной ошибки
+     * @param entity объект для сохранения
+     * @param <T> тип объекта
+     * @throws OptimisticLockException если версия в базе уже другая
+     * @throws SQLException при ошибке запроса
+     */
+    public <T> void saveOrThrow(T entity) throws SQLException {
         try {
             // Получаем информацию о сущности
             EntityInfo entityInfo = getEntityInfo(entity.getClass());
-            String tableName = entityInfo.getTableName();
             
-            // Проверяем существование таблицы
-            ensureTableExists(entityInfo);
+            EntityMapper<Object> mapper = entityInfo.getMapper();
             
             // Получаем значение первичного ключа
-            Field idField = entityInfo.getIdField();
-            idField.setAccessible(true);
-            Object idValue = idField.get(entity);
+            Object idValue = mapper.getId(entity);
             
             // Определяем операцию - вставка или обновление
-            boolean isInsert = idValue == null || 
-                              (idValue instanceof Number && ((Number) idValue).longValue() == 0) ||
-                              (idValue instanceof String && ((String) idValue).isEmpty());
+            boolean isInsert = isNewEntity(idValue);
             
             Connection connection = null;
             PreparedStatement statement = null;
             
             try {
-                connection = connectionManager.getConnection();
+                connection = getConnection();
+                
+                // Проверяем существование таблицы (только при первом обращении)
+                ensureTableExists(connection, entityInfo);
+                
+                EntityChangeTracker tracker = entityInfo.getChangeTracker();
                 
                 if (isInsert) {
                     // Выполняем вставку
-                    String sql = generateInsertSQL(entityInfo);
-                    statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                    statement = connection.prepareStatement(entityInfo.getInsertSql(), Statement.RETURN_GENERATED_KEYS);
                     
                     // Устанавливаем параметры
-                    int paramIndex = 1;
-                    for (Field field : entityInfo.getFields()) {
-                        if (field != idField || !entityInfo.isAutoIncrement()) {
-                            field.setAccessible(true);
-                            Object value = field.get(entity);
-                            setParameter(statement, paramIndex++, value);
-                        }
-                    }
+                    EntityChangeTracker.Snapshot written = tracker.capture(entity);
+                    mapper.bindInsert(statement, entity);
                     
                     // Выполняем запрос
-                    statement.executeUpdate();
+                    long start = profiler.start();
+                    int rows = statement.executeUpdate();
+                    profiler.record(entityInfo.getInsertSql(), start, rows, entityInfo.getInsertFields());
+                    tracker.remember(entity, written);
                     
                     // Получаем сгенерированный ID
                     if (entityInfo.isAutoIncrement()) {
-                        ResultSet generatedKeys = statement.getGeneratedKeys();
-                        if (generatedKeys.next()) {
-                            Object generatedId = generatedKeys.getObject(1);
-                            idField.set(entity, convertToFieldType(generatedId, idField.getType()));
+                        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                            if (generatedKeys.next()) {
+                                mapper.setId(entity, generatedKeys.getObject(1));
+                                idValue = mapper.getId(entity);
+                                afterRollback(() -> mapper.setId(entity, 0));
+                            }
                         }
                     }
                 } else {
-                    // Выполняем обновление
-                    String sql = generateUpdateSQL(entityInfo);
-                    statement = connection.prepareStatement(sql);
+                    EntityChangeTracker.Update update = tracker.prepare(entity, idValue);
                     
-                    // Устанавливаем параметры
-                    int paramIndex = 1;
-                    for (Field field : entityInfo.getFields()) {
-                        if (field != idField) {
-                            field.setAccessible(true);
-                            Object value = field.get(entity);
-                            setParameter(statement, paramIndex++, value);
+                    if (update == null) {
+                        // Объект не отслеживается - обновляем все колонки
+                        statement = connection.prepareStatement(entityInfo.getUpdateSql());
+                        
+                        // Устанавливаем параметры
+                        EntityChangeTracker.Snapshot written = tracker.capture(entity);
+                        mapper.bindUpdate(statement, entity);
+                        
+                        // Выполняем запрос
+                        long start = profiler.start();
+                        int rows = statement.executeUpdate();
+                        profiler.record(entityInfo.getUpdateSql(), start, rows, entityInfo.getUpdateFields());
+                        tracker.remember(entity, written);
+                    } else if (!update.isEmpty()) {
+                        // Обновляем только изменившиеся колонки
+                        statement = connection.prepareStatement(update.getSql());
+                        update.bind(statement);
+                        
+                        long start = profiler.start();
+                        int rows = statement.executeUpdate();
+                        profiler.record(update.getSql(), start, rows, update.getParams());
+                        if (rows == 0 && tracker.isVersioned()) {
+                            throw new OptimisticLockException(entity, idValue, update.getExpectedVersion());
                         }
+                        tracker.apply(entity, update);
+                        afterRollback(() -> tracker.revert(entity, update));
                     }
-                    
-                    // Добавляем ID в where
-                    setParameter(statement, paramIndex, idValue);
-                    
-                    // Выполняем запрос
-                    statement.executeUpdate();
                 }
                 
                 // Обновляем кэш
-                cacheManager.put(entity.getClass().getName() + ":" + idValue, entity);
-                
-                return true;
+                cacheSaved(entityInfo, entity, idValue);
+                publishChange(entityInfo, entity, idValue);
             } finally {
                 if (statement != null) {
                     statement.close();
@@ -134,147 +483,799 @@ public class Database implements FCoreService {
                     connection.close();
                 }
             }
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Ошибка при сохранении в базу данных", e);
-            return false;
+        } catch (OptimisticLockException e) {
+            handleConflict(e);
+            throw e;
+        } catch (SQLException | RuntimeException e) {
+            markRollbackOnly();
+            throw e;
         }
     }
     
     /**
-     * Загружает объект из базы данных по первичному ключу
-     * @param entityClass класс сущности
-     * @param id значение первичного ключа
-     * @param <T> тип объекта
-     * @param <ID> тип первичного ключа
-     * @return загруженный объект или null
+     * Сохраняет коллекцию объектов в базу данных одной транзакцией.
+     * Объекты группируются по типу сущности, вставки и обновления
+     * выполняются пакетами через addBatch/executeBatch на одном соединении.
+     * @param entities объекты для сохранения
+     * @param <T> тип объектов
+     * @return true, если сохранение успешно
      */
-    public <T, ID> T find(Class<T> entityClass, ID id) {
-        // Проверяем кэш
-        String cacheKey = entityClass.getName() + ":" + id;
-        T cachedEntity = (T) cacheManager.get(cacheKey);
-        if (cachedEntity != null) {
-            return cachedEntity;
+    public <T> boolean saveAll(Collection<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return true;
         }
         
+        Connection connection = null;
+        
         try {
-            // Получаем информацию о сущности
-            EntityInfo entityInfo = getEntityInfo(entityClass);
-            String tableName = entityInfo.getTableName();
+            Map<EntityInfo, List<Object>> groups = groupByEntity(entities);
             
-            // Формируем SQL запрос
-            String sql = "SELECT * FROM " + tableName + " WHERE " + 
-                        entityInfo.getIdColumn() + " = ?";
+            connection = getConnection();
             
-            Connection connection = null;
-            PreparedStatement statement = null;
-            ResultSet resultSet = null;
+            // Проверяем существование таблиц до начала транзакции
+            for (EntityInfo entityInfo : groups.keySet()) {
+                ensureTableExists(connection, entityInfo);
+            }
             
+            // Внутри inTransaction фиксацией управляет внешняя транзакция
+            boolean ownTransaction = !isInTransaction();
+            boolean autoCommit = connection.getAutoCommit();
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
+            }
+            
+            List<Runnable> afterCommit = new ArrayList<>();
+            List<Runnable> afterRollback = new ArrayList<>();
             try {
-                connection = connectionManager.getConnection();
-                statement = connection.prepareStatement(sql);
-                
-                // Устанавливаем ID как параметр
-                setParameter(statement, 1, id);
-                
-                // Выполняем запрос
-                resultSet = statement.executeQuery();
-                
-                // Преобразуем результат в объект
-                if (resultSet.next()) {
-                    T entity = mapResultSetToEntity(resultSet, entityClass, entityInfo);
-                    
-                    // Сохраняем в кэш
-                    cacheManager.put(cacheKey, entity);
-                    
-                    return entity;
+                for (Map.Entry<EntityInfo, List<Object>> group : groups.entrySet()) {
+                    saveBatch(connection, group.getKey(), group.getValue(), afterCommit, afterRollback);
                 }
                 
-                return null;
-            } finally {
-                if (resultSet != null) {
-                    resultSet.close();
+                if (ownTransaction) {
+                    connection.commit();
                 }
-                if (statement != null) {
-                    statement.close();
+            } catch (Exception e) {
+                if (ownTransaction) {
+                    connection.rollback();
                 }
-                if (connection != null) {
-                    connection.close();
+                for (Runnable action : afterRollback) {
+                    action.run();
+                }
+                throw e;
+            } finally {
+                if (ownTransaction) {
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
+            
+            // Обновляем версии, снимки и кэш только после успешной фиксации транзакции
+            for (Runnable action : afterCommit) {
+                action.run();
+            }
+            for (Map.Entry<EntityInfo, List<Object>> group : groups.entrySet()) {
+                EntityInfo entityInfo = group.getKey();
+                EntityMapper<Object> mapper = entityInfo.getMapper();
+                for (Object entity : group.getValue()) {
+                    Object idValue = mapper.getId(entity);
+                    cacheSaved(entityInfo, entity, idValue);
+                    publishChange(entityInfo, entity, idValue);
                 }
             }
+            for (Runnable action : afterRollback) {
+                afterRollback(action);
+            }
+            
+            return true;
+        } catch (OptimisticLockException e) {
+            handleConflict(e);
+            return false;
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Ошибка при загрузке из базы данных", e);
-            return null;
+            logger.log(Level.SEVERE, "Ошибка при пакетном сохранении в базу данных", e);
+            markRollbackOnly();
+            return false;
+        } finally {
+            closeQuietly(connection);
         }
     }
     
     /**
-     * Удаляет объект из базы данных
-     * @param entity объект для удаления
-     * @param <T> тип объекта
+     * Удаляет коллекцию объектов из базы данных одной транзакцией
+     * @param entities объекты для удаления
+     * @param <T> тип объектов
      * @return true, если удаление успешно
      */
-    public <T> boolean delete(T entity) {
+    public <T> boolean deleteAll(Collection<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return true;
+        }
+        
+        Connection connection = null;
+        
         try {
-            // Получаем информацию о сущности
-            EntityInfo entityInfo = getEntityInfo(entity.getClass());
-            String tableName = entityInfo.getTableName();
+            Map<EntityInfo, List<Object>> groups = groupByEntity(entities);
             
-            // Получаем значение первичного ключа
-            Field idField = entityInfo.getIdField();
-            idField.setAccessible(true);
-            Object idValue = idField.get(entity);
+            connection = getConnection();
             
-            if (idValue == null) {
-                return false;
+            // Внутри inTransaction фиксацией управляет внешняя транзакция
+            boolean ownTransaction = !isInTransaction();
+            boolean autoCommit = connection.getAutoCommit();
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
             }
             
-            // Формируем SQL запрос
-            String sql = "DELETE FROM " + tableName + " WHERE " + 
-                        entityInfo.getIdColumn() + " = ?";
-            
-            Connection connection = null;
-            PreparedStatement statement = null;
-            
             try {
-                connection = connectionManager.getConnection();
-                statement = connection.prepareStatement(sql);
-                
-                // Устанавливаем ID как параметр
-                setParameter(statement, 1, idValue);
-                
-                // Выполняем запрос
-                int rowsAffected = statement.executeUpdate();
-                
-                // Удаляем из кэша
-                cacheManager.remove(entity.getClass().getName() + ":" + idValue);
+                for (Map.Entry<EntityInfo, List<Object>> group : groups.entrySet()) {
+                    EntityInfo entityInfo = group.getKey();
+                    
+                    try (PreparedStatement statement = connection.prepareStatement(entityInfo.getDeleteSql())) {
+                        for (Object entity : group.getValue()) {
+                            Object idValue = entityInfo.getMapper().getId(entity);
+                            if (idValue != null) {
+                                setParameter(statement, 1, idValue);
+                                statement.addBatch();
+                            }
+                        }
+                        
+                        long start = profiler.start();
+                        int[] counts = statement.executeBatch();
+                        profiler.record(entityInfo.getDeleteSql(), start, sum(counts),
+                                Collections.singletonList(entityInfo.getIdField()));
+                    }
+                }
                 
-                return rowsAffected > 0;
+                if (ownTransaction) {
+                    connection.commit();
+                }
+            } catch (Exception e) {
+                if (ownTransaction) {
+                    connection.rollback();
+                }
+                throw e;
             } finally {
-                if (statement != null) {
-                    statement.close();
+                if (ownTransaction) {
+                    connection.setAutoCommit(autoCommit);
                 }
-                if (connection != null) {
-                    connection.close();
+            }
+            
+            // Удаляем из кэша
+            for (Map.Entry<EntityInfo, List<Object>> group : groups.entrySet()) {
+                EntityMapper<Object> mapper = group.getKey().getMapper();
+                for (Object entity : group.getValue()) {
+                    Object idValue = mapper.getId(entity);
+                    evictEntity(group.getKey(), entity, idValue);
+                    publishChange(group.getKey(), null, idValue);
                 }
             }
+            
+            return true;
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Ошибка при удалении из базы данных", e);
+            logger.log(Level.SEVERE, "Ошибка при пакетном удалении из базы данных", e);
+            markRollbackOnly();
             return false;
+        } finally {
+            closeQuietly(connection);
         }
     }
     
     /**
-     * Выполняет произвольный SQL запрос
-     * @param sql запрос SQL
-     * @param params параметры запроса
-     * @return результат запроса или -1 при ошибке
+     * Выполняет пакетное сохранение объектов одного типа на переданном соединении
+     * @param connection соединение с открытой транзакцией
+     * @param entityInfo информация о сущности
+     * @param entities объекты для сохранения
+     * @throws SQLException при ошибке выполнения запроса
      */
-    public int executeUpdate(String sql, Object... params) {
-        Connection connection = null;
-        PreparedStatement statement = null;
+    private void saveBatch(Connection connection, EntityInfo entityInfo, List<Object> entities,
+                           List<Runnable> afterCommit, List<Runnable> afterRollback) throws SQLException {
+        EntityMapper<Object> mapper = entityInfo.getMapper();
+        EntityChangeTracker tracker = entityInfo.getChangeTracker();
+        List<Object> inserts = new ArrayList<>();
+        List<Object> updates = new ArrayList<>();
         
-        try {
-            connection = connectionManager.getConnection();
+        // Частичные обновления группируются по тексту SQL
+        Map<String, List<Object>> partialUpdates = new LinkedHashMap<>();
+        Map<Object, EntityChangeTracker.Update> prepared = new IdentityHashMap<>();
+        
+        for (Object entity : entities) {
+            Object idValue = mapper.getId(entity);
+            if (isNewEntity(idValue)) {
+                inserts.add(entity);
+                continue;
+            }
+            
+            EntityChangeTracker.Update update = tracker.prepare(entity, idValue);
+            if (update == null) {
+                updates.add(entity);
+            } else if (!update.isEmpty()) {
+                prepared.put(entity, update);
+                partialUpdates.computeIfAbsent(update.getSql(), sql -> new ArrayList<>()).add(entity);
+            }
+        }
+        
+        if (!inserts.isEmpty()) {
+            String sql = entityInfo.getInsertSql();
+            try (PreparedStatement statement = entityInfo.isAutoIncrement()
+                    ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(sql)) {
+                for (Object entity : inserts) {
+                    EntityChangeTracker.Snapshot written = tracker.capture(entity);
+                    mapper.bindInsert(statement, entity);
+                    statement.addBatch();
+                    afterCommit.add(() -> tracker.remember(entity, written));
+                }
+                
+                long start = profiler.start();
+                int[] counts = statement.executeBatch();
+                profiler.record(sql, start, sum(counts), entityInfo.getInsertFields());
+                
+                if (entityInfo.isAutoIncrement()) {
+                    assignGeneratedKeys(statement, entityInfo, inserts);
+                    for (Object entity : inserts) {
+                        afterRollback.add(() -> mapper.setId(entity, 0));
+                    }
+                }
+            }
+        }
+        
+        if (!updates.isEmpty()) {
+            try (PreparedStatement statement = connection.prepareStatement(entityInfo.getUpdateSql())) {
+                for (Object entity : updates) {
+                    EntityChangeTracker.Snapshot written = tracker.capture(entity);
+                    mapper.bindUpdate(statement, entity);
+                    statement.addBatch();
+                    afterCommit.add(() -> tracker.remember(entity, written));
+                }
+                
+                long start = profiler.start();
+                int[] counts = statement.executeBatch();
+                profiler.record(entityInfo.getUpdateSql(), start, sum(counts), entityInfo.getUpdateFields());
+            }
+        }
+        
+        for (Map.Entry<String, List<Object>> group : partialUpdates.entrySet()) {
+            List<Object> batch = group.getValue();
+            try (PreparedStatement statement = connection.prepareStatement(group.getKey())) {
+                if (tracker.isVersioned() && !reportsBatchCounts()) {
+                    updateOneByOne(statement, group.getKey(), batch, prepared, mapper);
+                } else {
+                    for (Object entity : batch) {
+                        prepared.get(entity).bind(statement);
+                        statement.addBatch();
+                    }
+                    
+                    long start = profiler.start();
+                    int[] counts = statement.executeBatch();
+                    profiler.record(group.getKey(), start, sum(counts), prepared.get(batch.get(0)).getParams());
+                    
+                    if (tracker.isVersioned()) {
+                        checkVersions(counts, batch, prepared, mapper);
+                    }
+                }
+            }
+            
+            for (Object entity : batch) {
+                EntityChangeTracker.Update update = prepared.get(entity);
+                afterCommit.add(() -> tracker.apply(entity, update));
+                afterRollback.add(() -> tracker.revert(entity, update));
+            }
+        }
+    }
+    
+    /**
+     * Проверяет, сообщает ли драйвер количество строк каждого запроса пакета.
+     * MySQL с rewriteBatchedStatements объединяет пакет в один запрос и возвращает SUCCESS_NO_INFO
+     * @return true, если по результату executeBatch можно определить конфликт версий
+     */
+    private boolean reportsBatchCounts() {
+        return batchUpdateCounts && !connectionManager.isUseMysql();
+    }
+    
+    /**
+     * Выполняет версионные обновления по одному, проверяя количество строк каждого запроса
+     * @param statement подготовленный запрос
+     * @param sql текст запроса
+     * @param batch объекты
+     * @param prepared подготовленные обновления
+     * @param mapper отображение сущности
+     * @throws SQLException при ошибке выполнения запроса
+     */
+    private void updateOneByOne(PreparedStatement statement, String sql, List<Object> batch,
+                                Map<Object, EntityChangeTracker.Update> prepared,
+                                EntityMapper<Object> mapper) throws SQLException {
+        long start = profiler.start();
+        long total = 0;
+        for (Object entity : batch) {
+            EntityChangeTracker.Update update = prepared.get(entity);
+            update.bind(statement);
+            int rows = statement.executeUpdate();
+            if (rows == 0) {
+                throw new OptimisticLockException(entity, mapper.getId(entity), update.getExpectedVersion());
+            }
+            total += rows;
+        }
+        profiler.record(sql, start, total, prepared.get(batch.get(0)).getParams());
+    }
+    
+    /**
+     * Проверяет результат пакета версионных обновлений: нулевое количество строк
+     * означает, что версия в базе уже другая
+     * @param counts результат executeBatch
+     * @param batch объекты в порядке добавления в пакет
+     * @param prepared подготовленные обновления
+     * @param mapper отображение сущности
+     * @throws SQLException если драйвер не сообщил количество строк и конфликт не проверен
+     */
+    private void checkVersions(int[] counts, List<Object> batch, Map<Object, EntityChangeTracker.Update> prepared,
+                               EntityMapper<Object> mapper) throws SQLException {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                // Пакет откатывается вместе с транзакцией, следующие записи пойдут по одному
+                batchUpdateCounts = false;
+                throw new SQLException("Драйвер не сообщил количество строк пакетного обновления, " +
+                        "конфликт версий не проверен");
+            }
+            if (counts[i] == 0) {
+                Object entity = batch.get(i);
+                throw new OptimisticLockException(entity, mapper.getId(entity),
+                        prepared.get(entity).getExpectedVersion());
+            }
+        }
+    }
+    
+    /**
+     * Считывает сгенерированные ключи после пакетной вставки и записывает их в объекты
+     * @param statement выполненный пакетный запрос
+     * @param entityInfo информация о сущности
+     * @param inserts вставленные объекты в порядке добавления в пакет
+     * @throws SQLException если драйвер не вернул ключи
+     */
+    private void assignGeneratedKeys(PreparedStatement statement, EntityInfo entityInfo, List<Object> inserts)
+            throws SQLException {
+        EntityMapper<Object> mapper = entityInfo.getMapper();
+        List<Object> keys = new ArrayList<>(inserts.size());
+        
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            while (generatedKeys.next()) {
+                keys.add(generatedKeys.getObject(1));
+            }
+        }
+        
+        if (keys.size() == inserts.size()) {
+            for (int i = 0; i < inserts.size(); i++) {
+                mapper.setId(inserts.get(i), keys.get(i));
+            }
+        } else if (keys.size() == 1 && !connectionManager.isUseMysql()) {
+            // sqlite-jdbc возвращает только last_insert_rowid(). Внутри одной
+            // пишущей транзакции SQLite выдает ключи подряд, поэтому восстанавливаем диапазон
+            long lastId = ((Number) keys.get(0)).longValue();
+            long firstId = lastId - inserts.size() + 1;
+            for (int i = 0; i < inserts.size(); i++) {
+                mapper.setId(inserts.get(i), firstId + i);
+            }
+        } else {
+            throw new SQLException("Драйвер вернул " + keys.size() + " сгенерированных ключей вместо " + inserts.size());
+        }
+    }
+    
+    /**
+     * Группирует объекты по информации о сущности с сохранением порядка
+     * @param entities объекты
+     * @return объекты, сгруппированные по сущности
+     */
+    private Map<EntityInfo, List<Object>> groupByEntity(Collection<?> entities) {
+        Map<EntityInfo, List<Object>> groups = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            EntityInfo entityInfo = getEntityInfo(entity.getClass());
+            groups.computeIfAbsent(entityInfo, k -> new ArrayList<>()).add(entity);
+        }
+        return groups;
+    }
+    
+    /**
+     * Суммирует количество измененных строк пакетного запроса
+     * @param counts результат executeBatch
+     * @return число строк, -1 если драйвер его не сообщил
+     */
+    private static long sum(int[] counts) {
+        long total = 0;
+        for (int count : counts) {
+            if (count < 0) {
+                return -1;
+            }
+            total += count;
+        }
+        return total;
+    }
+    
+    /**
+     * Проверяет, является ли объект новым (еще не сохраненным)
+     * @param idValue значение первичного ключа
+     * @return true, если нужна вставка
+     */
+    private boolean isNewEntity(Object idValue) {
+        return idValue == null ||
+               (idValue instanceof Number && ((Number) idValue).longValue() == 0) ||
+               (idValue instanceof String && ((String) idValue).isEmpty());
+    }
+    
+    /**
+     * Обрабатывает конфликт версий: устаревший объект удаляется из кэша,
+     * чтобы следующая загрузка получила актуальные данные
+     * @param e исключение конфликта
+     */
+    private void handleConflict(OptimisticLockException e) {
+        logger.warning("Конфликт версий при сохранении: " + e.getMessage());
+        markRollbackOnly();
+        
+        Object entity = e.getEntity();
+        EntityInfo entityInfo = getEntityInfo(entity.getClass());
+        evictEntity(entityInfo, entity, entityInfo.getMapper().getId(entity));
+    }
+    
+    /**
+     * Помещает объект в кэш и обновляет карты вторичных ключей
+     * @param entityInfo информация о сущности
+     * @param entity объект
+     * @param idValue значение первичного ключа
+     */
+    private void cacheEntity(EntityInfo entityInfo, Object entity, Object idValue) {
+        entityInfo.getEntityCache().put(cacheId(idValue), entity);
+        indexEntity(entityInfo, entity, idValue);
+    }
+    
+    /**
+     * Помещает в кэш загруженный объект. Внутри транзакции объект может содержать
+     * ее незафиксированные изменения, поэтому он попадает в кэш только после фиксации
+     * @param entityInfo информация о сущности
+     * @param entity объект
+     * @param idValue значение первичного ключа
+     */
+    private void cacheLoaded(EntityInfo entityInfo, Object entity, Object idValue) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.afterCommit(() -> cacheEntity(entityInfo, entity, idValue));
+        } else {
+            cacheEntity(entityInfo, entity, idValue);
+        }
+    }
+    
+    /**
+     * Помещает в кэш сохраненный объект. Внутри транзакции прежняя копия удаляется сразу,
+     * чтобы другие потоки читали зафиксированное состояние из базы, а новая попадает в кэш
+     * вместе с вторичными ключами только после фиксации
+     * @param entityInfo информация о сущности
+     * @param entity объект
+     * @param idValue значение первичного ключа
+     */
+    private void cacheSaved(EntityInfo entityInfo, Object entity, Object idValue) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction == null) {
+            cacheEntity(entityInfo, entity, idValue);
+            return;
+        }
+        
+        entityInfo.getEntityCache().remove(cacheId(idValue));
+        transaction.afterCommit(() -> cacheEntity(entityInfo, entity, idValue));
+        transaction.afterRollback(() -> evictEntity(entityInfo, entity, idValue));
+    }
+    
+    /**
+     * Добавляет объект в карты вторичных ключей
+     * @param entityInfo информация о сущности
+     * @param entity объект
+     * @param idValue значение первичного ключа
+     */
+    private void indexEntity(EntityInfo entityInfo, Object entity, Object idValue) {
+        for (Map.Entry<String, Field> indexed : entityInfo.getIndexedFields().entrySet()) {
+            Object value = readField(indexed.getValue(), entity);
+            if (value != null) {
+                entityInfo.getSecondaryKeys().get(indexed.getKey()).put(value, idValue);
+            }
+        }
+    }
+    
+    /**
+     * Удаляет объект из карт вторичных ключей, если они все еще указывают на его первичный ключ
+     * @param entityInfo информация о сущности
+     * @param entity объект
+     * @param cacheKey первичный ключ в виде ключа кэша
+     */
+    private void unindexEntity(EntityInfo entityInfo, Object entity, Object cacheKey) {
+        for (Map.Entry<String, Field> indexed : entityInfo.getIndexedFields().entrySet()) {
+            Object value = readField(indexed.getValue(), entity);
+            if (value != null) {
+                entityInfo.getSecondaryKeys().get(indexed.getKey())
+                        .computeIfPresent(value, (k, id) -> cacheId(id).equals(cacheKey) ? null : id);
+            }
+        }
+    }
+    
+    /**
+     * Удаляет объект из кэша и из карт вторичных ключей
+     * @param entityInfo информация о сущности
+     * @param entity объект
+     * @param idValue значение первичного ключа
+     */
+    private void evictEntity(EntityInfo entityInfo, Object entity, Object idValue) {
+        entityInfo.getEntityCache().remove(cacheId(idValue));
+        entityInfo.getChangeTracker().forget(entity);
+        
+        for (Map.Entry<String, Field> indexed : entityInfo.getIndexedFields().entrySet()) {
+            Object value = readField(indexed.getValue(), entity);
+            if (value != null) {
+                entityInfo.getSecondaryKeys().get(indexed.getKey()).remove(value, idValue);
+            }
+        }
+    }
+    
+    /**
+     * Публикует измененный ключ для остальных серверов; внутри транзакции - после ее фиксации.
+     * Версией служит колонка {@code @Version}, для сущностей без нее - время изменения
+     * @param entityInfo информация о сущности
+     * @param entity сохраненный объект или null для удаления
+     * @param idValue значение первичного ключа
+     */
+    private void publishChange(EntityInfo entityInfo, Object entity, Object idValue) {
+        CacheInvalidationBus bus = invalidationBus;
+        if (bus == null || isNewEntity(idValue)) {
+            return;
+        }
+        
+        // Удаление должно сбросить копию любой версии
+        long version = entity == null ? Long.MAX_VALUE : entityInfo.getChangeTracker().versionOf(entity);
+        if (version < 0) {
+            version = System.currentTimeMillis();
+        }
+        
+        String cacheName = entityInfo.getEntityCache().getName();
+        Object key = cacheId(idValue);
+        long published = version;
+        
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.afterCommit(() -> bus.publish(cacheName, key, published));
+        } else {
+            bus.publish(cacheName, key, published);
+        }
+    }
+    
+    /**
+     * Подписывает кэш сущности на изменения других серверов
+     * @param bus шина сброса кэшей
+     * @param entityClass класс сущности
+     * @param entityInfo информация о сущности
+     */
+    private void subscribe(CacheInvalidationBus bus, Class<?> entityClass, EntityInfo entityInfo) {
+        bus.register(entityInfo.getEntityCache().getName(),
+                (key, version) -> applyRemoteChange(entityClass, entityInfo, key, version));
+    }
+    
+    /**
+     * Удаляет из кэша объект, измененный другим сервером, и при необходимости перезагружает его
+     * @param entityClass класс сущности
+     * @param entityInfo информация о сущности
+     * @param key первичный ключ в строковом виде
+     * @param version версия изменения
+     */
+    private void applyRemoteChange(Class<?> entityClass, EntityInfo entityInfo, String key, long version) {
+        Object id = entityInfo.parseCacheId(key);
+        Object cachedEntity = entityInfo.getEntityCache().peek(id);
+        EntityChangeTracker tracker = entityInfo.getChangeTracker();
+        
+        // Копия загружена уже после этого изменения
+        if (cachedEntity != null && tracker.isVersioned() && tracker.versionOf(cachedEntity) >= version) {
+            return;
+        }
+        
+        if (cachedEntity != null) {
+            evictEntity(entityInfo, cachedEntity, id);
+        } else {
+            // Удаляем и запомненное отсутствие объекта
+            entityInfo.getEntityCache().remove(id);
+        }
+        
+        for (BiConsumer<Object, Object> listener : entityInfo.getRemoteChangeListeners()) {
+            listener.accept(id, cachedEntity);
+        }
+        
+        // Перезагружаются только объекты, которые были в памяти
+        if (refreshOnInvalidation && cachedEntity != null && version != Long.MAX_VALUE) {
+            asyncDatabase.find(entityClass, id);
+        }
+    }
+    
+    /**
+     * Приводит первичный ключ к ключу кэша: числовые ключи разных типов
+     * (int, long) должны находить один и тот же объект
+     * @param idValue значение первичного ключа
+     * @return ключ кэша
+     */
+    private static Object cacheId(Object idValue) {
+        return idValue instanceof Number ? (Object) ((Number) idValue).longValue() : idValue;
+    }
+    
+    /**
+     * Читает значение поля сущности
+     * @param field поле
+     * @param entity объект
+     * @return значение поля
+     */
+    private static Object readField(Field field, Object entity) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read field " + field.getName(), e);
+        }
+    }
+    
+    /**
+     * Закрывает ресурс JDBC, не выбрасывая исключений
+     * @param resource соединение, запрос или результат
+     */
+    private void closeQuietly(AutoCloseable resource) {
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Ошибка при закрытии " + resource.getClass().getSimpleName(), e);
+            }
+        }
+    }
+    
+    /**
+     * Загружает объект из базы данных по первичному ключу
+     * @param entityClass класс сущности
+     * @param id значение первичного ключа
+     * @param <T> тип объекта
+     * @param <ID> тип первичного ключа
+     * @return загруженный объект или null
+     */
+    public <T, ID> T find(Class<T> entityClass, ID id) {
+        try {
+            // Получаем информацию о сущности
+            EntityInfo entityInfo = getEntityInfo(entityClass);
+            
+            // Внутри транзакции объект читается через ее соединение,
+            // поэтому загрузка не разделяется с другими потоками
+            if (isInTransaction()) {
+                Object cachedEntity = entityInfo.getEntityCache().get(cacheId(id));
+                if (cachedEntity != null) {
+                    return entityClass.cast(cachedEntity);
+                }
+                
+                T entity = loadById(entityClass, entityInfo, id);
+                if (entity != null) {
+                    cacheLoaded(entityInfo, entity, id);
+                }
+                return entity;
+            }
+            
+            // Одновременные запросы одного ID выполняют один SELECT
+            return entityClass.cast(entityInfo.getEntityCache().get(cacheId(id), key -> {
+                T entity = loadById(entityClass, entityInfo, id);
+                if (entity != null) {
+                    indexEntity(entityInfo, entity, id);
+                }
+                return entity;
+            }));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при загрузке из базы данных", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Загружает объект по первичному ключу без обращения к кэшу
+     * @param entityClass класс сущности
+     * @param entityInfo информация о сущности
+     * @param id значение первичного ключа
+     * @param <T> тип объекта
+     * @return загруженный объект или null
+     * @throws Exception при ошибке загрузки
+     */
+    private <T> T loadById(Class<T> entityClass, EntityInfo entityInfo, Object id) throws Exception {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            connection = getReadConnection();
+            statement = connection.prepareStatement(entityInfo.getFindByIdSql());
+            
+            // Устанавливаем ID как параметр
+            setParameter(statement, 1, id);
+            
+            // Выполняем запрос
+            long start = profiler.start();
+            resultSet = statement.executeQuery();
+            
+            // Преобразуем результат в объект
+            if (resultSet.next()) {
+                T entity = entityClass.cast(entityInfo.getMapper().map(resultSet));
+                profiler.record(entityInfo.getFindByIdSql(), start, 1, new Object[]{id});
+                entityInfo.getChangeTracker().snapshot(entity);
+                return entity;
+            }
+            
+            profiler.record(entityInfo.getFindByIdSql(), start, 0, new Object[]{id});
+            return null;
+        } finally {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+    
+    /**
+     * Удаляет объект из базы данных
+     * @param entity объект для удаления
+     * @param <T> тип объекта
+     * @return true, если удаление успешно
+     */
+    public <T> boolean delete(T entity) {
+        try {
+            // Получаем информацию о сущности
+            EntityInfo entityInfo = getEntityInfo(entity.getClass());
+            
+            // Получаем значение первичного ключа
+            Object idValue = entityInfo.getMapper().getId(entity);
+            
+            if (idValue == null) {
+                return false;
+            }
+            
+            Connection connection = null;
+            PreparedStatement statement = null;
+            
+            try {
+                connection = getConnection();
+                statement = connection.prepareStatement(entityInfo.getDeleteSql());
+                
+                // Устанавливаем ID как параметр
+                setParameter(statement, 1, idValue);
+                
+                // Выполняем запрос
+                long start = profiler.start();
+                int rowsAffected = statement.executeUpdate();
+                profiler.record(entityInfo.getDeleteSql(), start, rowsAffected, new Object[]{idValue});
+                
+                // Удаляем из кэша
+                evictEntity(entityInfo, entity, idValue);
+                publishChange(entityInfo, null, idValue);
+                
+                return rowsAffected > 0;
+            } finally {
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при удалении из базы данных", e);
+            markRollbackOnly();
+            return false;
+        }
+    }
+    
+    /**
+     * Выполняет произвольный SQL запрос
+     * @param sql запрос SQL
+     * @param params параметры запроса
+     * @return результат запроса или -1 при ошибке
+     */
+    public int executeUpdate(String sql, Object... params) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        
+        try {
+            connection = getConnection();
             statement = connection.prepareStatement(sql);
             
             // Устанавливаем параметры
@@ -282,127 +1283,493 @@ public class Database implements FCoreService {
                 setParameter(statement, i + 1, params[i]);
             }
             
-            // Выполняем запрос
-            return statement.executeUpdate();
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Ошибка при выполнении SQL запроса", e);
-            return -1;
-        } finally {
-            try {
-                if (statement != null) {
-                    statement.close();
-                }
-                if (connection != null) {
-                    connection.close();
+            // Выполняем запрос
+            long start = profiler.start();
+            int rows = statement.executeUpdate();
+            profiler.record(sql, start, rows, params);
+            return rows;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Ошибка при выполнении SQL запроса", e);
+            markRollbackOnly();
+            return -1;
+        } finally {
+            try {
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Ошибка при закрытии соединения", e);
+            }
+        }
+    }
+    
+    /**
+     * Загружает список объектов по условию
+     * @param entityClass класс сущности
+     * @param whereClause условие WHERE (без слова WHERE)
+     * @param params параметры для условия
+     * @param <T> тип объекта
+     * @return список объектов
+     */
+    public <T> List<T> findAll(Class<T> entityClass, String whereClause, Object... params) {
+        // Получаем информацию о сущности
+        EntityInfo entityInfo = getEntityInfo(entityClass);
+        
+        // Формируем SQL запрос
+        String sql = entityInfo.getSelectSql();
+        if (whereClause != null && !whereClause.isEmpty()) {
+            sql += " WHERE " + whereClause;
+        }
+        
+        return executeQuery(entityClass, entityInfo, sql, params);
+    }
+    
+    /**
+     * Загружает объект по значению индексированной колонки.
+     * Для колонок с {@code @Column(indexed = true)} или {@code @Column(unique = true)}
+     * поиск сначала выполняется по карте "значение -> первичный ключ" и кэшу сущностей,
+     * и только при промахе обращается к базе данных
+     * @param entityClass класс сущности
+     * @param column имя колонки или поля сущности
+     * @param value значение колонки
+     * @param <T> тип объекта
+     * @return объект или null
+     */
+    public <T> T findBy(Class<T> entityClass, String column, Object value) {
+        EntityInfo entityInfo = getEntityInfo(entityClass);
+        String columnName = resolveColumn(entityClass, column);
+        
+        Map<Object, Object> keys = entityInfo.getSecondaryKeys().get(columnName);
+        if (keys != null && value != null) {
+            Object id = keys.get(value);
+            if (id != null) {
+                Object cachedEntity = entityInfo.getEntityCache().get(cacheId(id));
+                
+                // Значение могло измениться после записи в карту
+                if (cachedEntity != null &&
+                        value.equals(readField(entityInfo.getIndexedFields().get(columnName), cachedEntity))) {
+                    return entityClass.cast(cachedEntity);
+                }
+                keys.remove(value, id);
+            }
+        }
+        
+        return query(entityClass).where(columnName).eq(value).first();
+    }
+    
+    /**
+     * Создает двоичную сериализацию сущности для второго уровня кэша
+     * @param entityClass класс сущности
+     * @param <T> тип объекта
+     * @return сериализатор
+     * @throws IllegalArgumentException если тип одной из колонок не поддерживается
+     */
+    public <T> EntitySerializer<T> serializer(Class<T> entityClass) {
+        return new EntitySerializer<>(entityClass, getEntityInfo(entityClass).getFields());
+    }
+    
+    /**
+     * Связывает объект, восстановленный в обход базы данных (например, со второго уровня кэша),
+     * с кэшем сущностей. Если объект с тем же ID уже находится в памяти, возвращается он,
+     * чтобы не появилось двух копий одной строки
+     * @param entity восстановленный объект
+     * @param <T> тип объекта
+     * @return объект из кэша сущностей или переданный объект
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T attach(T entity) {
+        EntityInfo entityInfo = getEntityInfo(entity.getClass());
+        Object idValue = entityInfo.getMapper().getId(entity);
+        
+        Object cachedEntity = entityInfo.getEntityCache().get(cacheId(idValue));
+        if (cachedEntity != null) {
+            return (T) cachedEntity;
+        }
+        
+        // Снимок не берется: копия могла содержать несохраненные изменения,
+        // поэтому следующее сохранение запишет все колонки
+        cacheEntity(entityInfo, entity, idValue);
+        return entity;
+    }
+    
+    /**
+     * Создает типизированный запрос к таблице сущности
+     * @param entityClass класс сущности
+     * @param <T> тип объекта
+     * @return построитель запроса
+     */
+    public <T> Query<T> query(Class<T> entityClass) {
+        return new Query<>(this, entityClass);
+    }
+    
+    /**
+     * Выполняет типизированный запрос
+     * @param query запрос
+     * @param <T> тип объекта
+     * @return список объектов
+     */
+    <T> List<T> list(Query<T> query) {
+        EntityInfo entityInfo = getEntityInfo(query.getEntityClass());
+        String sql = compileQuery(entityInfo, query, false);
+        return executeQuery(query.getEntityClass(), entityInfo, sql, query.getParams(false));
+    }
+    
+    /**
+     * Подсчитывает количество строк типизированного запроса
+     * @param query запрос
+     * @return количество строк или -1 при ошибке
+     */
+    long count(Query<?> query) {
+        try {
+            EntityInfo entityInfo = getEntityInfo(query.getEntityClass());
+            String sql = compileQuery(entityInfo, query, true);
+            Object[] params = query.getParams(true);
+            
+            try (Connection connection = getReadConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    setParameter(statement, i + 1, params[i]);
+                }
+                
+                long start = profiler.start();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    long result = resultSet.next() ? resultSet.getLong(1) : 0;
+                    profiler.record(sql, start, 1, params);
+                    return result;
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при подсчете строк в базе данных", e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Открывает курсор по типизированному запросу
+     * @param query запрос
+     * @param <T> тип объекта
+     * @return поток объектов
+     */
+    <T> Stream<T> stream(Query<T> query) {
+        EntityInfo entityInfo = getEntityInfo(query.getEntityClass());
+        String sql = compileQuery(entityInfo, query, false);
+        return openCursor(query.getEntityClass(), entityInfo, sql, fetchSize, query.getParams(false));
+    }
+    
+    /**
+     * Проверяет имя колонки или поля сущности и возвращает имя колонки
+     * @param entityClass класс сущности
+     * @param name имя колонки или поля
+     * @return имя колонки
+     */
+    String resolveColumn(Class<?> entityClass, String name) {
+        String column = getEntityInfo(entityClass).getColumns().get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Entity " + entityClass.getName() + " has no column " + name);
+        }
+        return column;
+    }
+    
+    /**
+     * Возвращает текст SQL для формы запроса, компилируя его при первом обращении
+     * @param entityInfo информация о сущности
+     * @param query запрос
+     * @param count запрос количества
+     * @return текст SQL
+     */
+    private String compileQuery(EntityInfo entityInfo, Query<?> query, boolean count) {
+        return entityInfo.getQueryCache().computeIfAbsent(query.getShape(count), shape -> query.compile(
+                count ? "SELECT COUNT(*) FROM " + entityInfo.getTableName() : entityInfo.getSelectSql(), count));
+    }
+    
+    /**
+     * Выполняет запрос выборки и помещает объекты в кэш
+     * @param entityClass класс сущности
+     * @param entityInfo информация о сущности
+     * @param sql запрос SQL
+     * @param params параметры запроса
+     * @param <T> тип объекта
+     * @return список объектов
+     */
+    private <T> List<T> executeQuery(Class<T> entityClass, EntityInfo entityInfo, String sql, Object[] params) {
+        try {
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            
+            try {
+                connection = getReadConnection();
+                statement = connection.prepareStatement(sql);
+                
+                // Устанавливаем параметры
+                for (int i = 0; i < params.length; i++) {
+                    setParameter(statement, i + 1, params[i]);
+                }
+                
+                // Выполняем запрос
+                long start = profiler.start();
+                resultSet = statement.executeQuery();
+                
+                // Создаем список результатов
+                List<T> resultList = new ArrayList<>();
+                
+                // Преобразуем каждую строку в объект
+                while (resultSet.next()) {
+                    T entity = entityClass.cast(entityInfo.getMapper().map(resultSet));
+                    entityInfo.getChangeTracker().snapshot(entity);
+                    
+                    // Добавляем в список
+                    resultList.add(entity);
+                    
+                    // Сохраняем в кэш
+                    cacheLoaded(entityInfo, entity, entityInfo.getMapper().getId(entity));
+                }
+                
+                profiler.record(sql, start, resultList.size(), params);
+                return resultList;
+            } finally {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при загрузке списка из базы данных", e);
+            return Collections.emptyList();
+        }
+    }
+    
+    /**
+     * Возвращает ленивый поток объектов по условию.
+     * Строки читаются курсором порциями по fetchSize и не попадают в кэш,
+     * поэтому обход больших таблиц выполняется с постоянным расходом памяти.
+     * Соединение удерживается до исчерпания или закрытия потока,
+     * поэтому поток следует использовать в try-with-resources
+     * @param entityClass класс сущности
+     * @param whereClause условие WHERE (без слова WHERE)
+     * @param params параметры для условия
+     * @param <T> тип объекта
+     * @return поток объектов
+     */
+    public <T> Stream<T> stream(Class<T> entityClass, String whereClause, Object... params) {
+        return stream(entityClass, fetchSize, whereClause, params);
+    }
+    
+    /**
+     * Возвращает ленивый поток объектов по условию с указанным размером порции
+     * @param entityClass класс сущности
+     * @param fetchSize количество строк, получаемых драйвером за одно обращение
+     * @param whereClause условие WHERE (без слова WHERE)
+     * @param params параметры для условия
+     * @param <T> тип объекта
+     * @return поток объектов
+     */
+    public <T> Stream<T> stream(Class<T> entityClass, int fetchSize, String whereClause, Object... params) {
+        EntityInfo entityInfo = getEntityInfo(entityClass);
+        
+        String sql = entityInfo.getSelectSql();
+        if (whereClause != null && !whereClause.isEmpty()) {
+            sql += " WHERE " + whereClause;
+        }
+        
+        return openCursor(entityClass, entityInfo, sql, fetchSize, params);
+    }
+    
+    /**
+     * Открывает курсор только для чтения и оборачивает его в ленивый поток
+     * @param entityClass класс сущности
+     * @param entityInfo информация о сущности
+     * @param sql запрос SQL
+     * @param fetchSize количество строк, получаемых драйвером за одно обращение
+     * @param params параметры запроса
+     * @param <T> тип объекта
+     * @return поток объектов или пустой поток при ошибке
+     */
+    private <T> Stream<T> openCursor(Class<T> entityClass, EntityInfo entityInfo, String sql, int fetchSize,
+                                     Object[] params) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        
+        try {
+            connection = getReadConnection();
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(cursorFetchSize(fetchSize));
+            
+            // Устанавливаем параметры
+            for (int i = 0; i < params.length; i++) {
+                setParameter(statement, i + 1, params[i]);
+            }
+            
+            // Для курсора замеряется только открытие: строки читаются позже, по мере обхода
+            long start = profiler.start();
+            ResultSet resultSet = statement.executeQuery();
+            profiler.record(sql, start, -1, params);
+            CursorSpliterator<T> cursor = new CursorSpliterator<>(entityClass, entityInfo.getMapper(),
+                    connection, statement, resultSet);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при открытии курсора в базе данных", e);
+            closeQuietly(statement);
+            closeQuietly(connection);
+            return Stream.empty();
+        }
+    }
+    
+    /**
+     * Размер выборки для курсора. Драйвер MySQL без useCursorFetch передает строки потоком
+     * только при Integer.MIN_VALUE; такой результат занимает соединение до закрытия курсора,
+     * поэтому внутри транзакции, где соединение нужно другим операциям, результат читается целиком
+     * @param fetchSize запрошенный размер выборки
+     * @return размер выборки для драйвера
+     */
+    private int cursorFetchSize(int fetchSize) {
+        if (!connectionManager.isUseMysql()) {
+            return fetchSize;
+        }
+        return isInTransaction() ? fetchSize : Integer.MIN_VALUE;
+    }
+    
+    /**
+     * Обходит объекты по условию курсором, не загружая результат целиком
+     * @param entityClass класс сущности
+     * @param action действие для каждого объекта
+     * @param whereClause условие WHERE (без слова WHERE)
+     * @param params параметры для условия
+     * @param <T> тип объекта
+     */
+    public <T> void forEach(Class<T> entityClass, Consumer<? super T> action, String whereClause, Object... params) {
+        try (Stream<T> stream = stream(entityClass, whereClause, params)) {
+            stream.forEach(action);
+        }
+    }
+    
+    /**
+     * Возвращает ленивый поток объектов с постраничной загрузкой по первичному ключу
+     * ({@code WHERE id > ? ORDER BY id LIMIT n}). Каждая страница загружается
+     * отдельным коротким запросом, соединение между страницами не удерживается
+     * @param entityClass класс сущности
+     * @param pageSize размер страницы
+     * @param whereClause дополнительное условие WHERE (без слова WHERE), может быть null
+     * @param params параметры для условия
+     * @param <T> тип объекта
+     * @return поток объектов, упорядоченный по первичному ключу
+     */
+    public <T> Stream<T> streamByKeyset(Class<T> entityClass, int pageSize, String whereClause, Object... params) {
+        EntityInfo entityInfo = getEntityInfo(entityClass);
+        String idColumn = entityInfo.getIdColumn();
+        
+        String filter = whereClause != null && !whereClause.isEmpty() ? "(" + whereClause + ")" : null;
+        String base = entityInfo.getSelectSql();
+        String firstPageSql = base + (filter != null ? " WHERE " + filter : "") +
+                " ORDER BY " + idColumn + " LIMIT " + pageSize;
+        String nextPageSql = base + " WHERE " + (filter != null ? filter + " AND " : "") + idColumn + " > ?" +
+                " ORDER BY " + idColumn + " LIMIT " + pageSize;
+        
+        return StreamSupport.stream(new KeysetSpliterator<>(entityClass, entityInfo.getMapper(),
+                pageSize, firstPageSql, nextPageSql, params), false);
+    }
+    
+    /**
+     * Загружает одну страницу объектов без помещения в кэш
+     * @param entityClass класс сущности
+     * @param mapper отображение сущности
+     * @param sql запрос SQL
+     * @param params параметры запроса
+     * @param <T> тип объекта
+     * @return список объектов страницы
+     * @throws SQLException при ошибке выполнения запроса
+     */
+    private <T> List<T> loadPage(Class<T> entityClass, EntityMapper<Object> mapper, String sql, Object[] params)
+            throws SQLException {
+        try (Connection connection = getReadConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                setParameter(statement, i + 1, params[i]);
+            }
+            
+            List<T> page = new ArrayList<>();
+            long start = profiler.start();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    page.add(entityClass.cast(mapper.map(resultSet)));
                 }
-            } catch (SQLException e) {
-                logger.log(Level.SEVERE, "Ошибка при закрытии соединения", e);
             }
+            profiler.record(sql, start, page.size(), params);
+            return page;
         }
     }
     
     /**
-     * Загружает список объектов по условию
-     * @param entityClass класс сущности
-     * @param whereClause условие WHERE (без слова WHERE)
-     * @param params параметры для условия
-     * @param <T> тип объекта
-     * @return список объектов
+     * Создает таблицу для сущности, если она не существует.
+     * Проверка выполняется один раз на сущность, результат запоминается в EntityInfo.
+     * В MySQL DDL неявно фиксирует открытую транзакцию, поэтому внутри транзакции таблица
+     * создается на отдельном соединении; в SQLite DDL транзакционен и выполняется на переданном
+     * соединении, так как второго соединения писателя может не быть
+     * @param connection соединение, на котором выполняется проверка
+     * @param entityInfo информация о сущности
+     * @throws SQLException при ошибке создания таблицы
      */
-    public <T> List<T> findAll(Class<T> entityClass, String whereClause, Object... params) {
-        try {
-            // Получаем информацию о сущности
-            EntityInfo entityInfo = getEntityInfo(entityClass);
-            String tableName = entityInfo.getTableName();
-            
-            // Формируем SQL запрос
-            String sql = "SELECT * FROM " + tableName;
-            if (whereClause != null && !whereClause.isEmpty()) {
-                sql += " WHERE " + whereClause;
+    private void ensureTableExists(Connection connection, EntityInfo entityInfo) throws SQLException {
+        if (entityInfo.isTableVerified()) {
+            return;
+        }
+        
+        synchronized (entityInfo) {
+            if (entityInfo.isTableVerified()) {
+                return;
             }
             
-            Connection connection = null;
-            PreparedStatement statement = null;
-            ResultSet resultSet = null;
-            
-            try {
-                connection = connectionManager.getConnection();
-                statement = connection.prepareStatement(sql);
-                
-                // Устанавливаем параметры
-                for (int i = 0; i < params.length; i++) {
-                    setParameter(statement, i + 1, params[i]);
-                }
-                
-                // Выполняем запрос
-                resultSet = statement.executeQuery();
-                
-                // Создаем список результатов
-                List<T> resultList = new ArrayList<>();
-                
-                // Преобразуем каждую строку в объект
-                while (resultSet.next()) {
-                    T entity = mapResultSetToEntity(resultSet, entityClass, entityInfo);
-                    
-                    // Добавляем в список
-                    resultList.add(entity);
-                    
-                    // Сохраняем в кэш
-                    Field idField = entityInfo.getIdField();
-                    idField.setAccessible(true);
-                    Object idValue = idField.get(entity);
-                    cacheManager.put(entityClass.getName() + ":" + idValue, entity);
-                }
-                
-                return resultList;
-            } finally {
-                if (resultSet != null) {
-                    resultSet.close();
-                }
-                if (statement != null) {
-                    statement.close();
-                }
-                if (connection != null) {
-                    connection.close();
+            if (isInTransaction()) {
+                if (connectionManager.isUseMysql()) {
+                    try (Connection ddlConnection = connectionManager.getConnection()) {
+                        createTableIfMissing(ddlConnection, entityInfo);
+                    }
+                } else {
+                    createTableIfMissing(connection, entityInfo);
+                    // При откате таблица, созданная в транзакции, исчезает
+                    afterRollback(() -> entityInfo.setTableVerified(false));
                 }
+            } else {
+                createTableIfMissing(connection, entityInfo);
             }
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Ошибка при загрузке списка из базы данных", e);
-            return Collections.emptyList();
+            
+            entityInfo.setTableVerified(true);
         }
     }
     
     /**
-     * Создает таблицу для сущности, если она не существует
+     * Проверяет наличие таблицы и создает ее вместе с индексами
+     * @param connection соединение
      * @param entityInfo информация о сущности
      * @throws SQLException при ошибке создания таблицы
      */
-    private void ensureTableExists(EntityInfo entityInfo) throws SQLException {
+    private void createTableIfMissing(Connection connection, EntityInfo entityInfo) throws SQLException {
         String tableName = entityInfo.getTableName();
         
         // Проверяем существует ли таблица
-        boolean tableExists = false;
-        Connection connection = null;
+        boolean tableExists;
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(null, null, tableName, null)) {
+            tableExists = tables.next();
+        }
         
-        try {
-            connection = connectionManager.getConnection();
-            DatabaseMetaData metaData = connection.getMetaData();
-            
-            try (ResultSet tables = metaData.getTables(null, null, tableName, null)) {
-                tableExists = tables.next();
-            }
-            
-            // Если таблица не существует, создаем ее
-            if (!tableExists) {
-                String createTableSql = generateCreateTableSQL(entityInfo);
-                try (Statement statement = connection.createStatement()) {
-                    statement.executeUpdate(createTableSql);
-                    logger.info("Создана таблица: " + tableName);
+        // Если таблица не существует, создаем ее вместе с индексами
+        if (!tableExists) {
+            String createTableSql = generateCreateTableSQL(entityInfo);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(createTableSql);
+                for (String createIndexSql : generateCreateIndexSQL(entityInfo)) {
+                    statement.executeUpdate(createIndexSql);
                 }
-            }
-        } finally {
-            if (connection != null) {
-                connection.close();
+                logger.info("Создана таблица: " + tableName);
             }
         }
     }
@@ -491,6 +1858,28 @@ public class Database implements FCoreService {
         return sql.toString();
     }
     
+    /**
+     * Генерирует SQL для создания индексов колонок с {@code indexed} или {@code unique}
+     * @param entityInfo информация о сущности
+     * @return список SQL запросов
+     */
+    private List<String> generateCreateIndexSQL(EntityInfo entityInfo) {
+        List<String> statements = new ArrayList<>();
+        String tableName = entityInfo.getTableName();
+        
+        for (Field field : entityInfo.getFields()) {
+            Column column = field.getAnnotation(Column.class);
+            if (column == null || field == entityInfo.getIdField() || !(column.indexed() || column.unique())) {
+                continue;
+            }
+            
+            statements.add("CREATE " + (column.unique() ? "UNIQUE " : "") + "INDEX idx_" + tableName + "_" +
+                    column.value() + " ON " + tableName + " (" + column.value() + ")");
+        }
+        
+        return statements;
+    }
+    
     /**
      * Генерирует SQL для вставки
      * @param entityInfo информация о сущности
@@ -502,25 +1891,16 @@ public class Database implements FCoreService {
         
         sql.append("INSERT INTO ").append(entityInfo.getTableName()).append(" (");
         
+        // Порядок колонок совпадает с порядком привязки параметров
         boolean first = true;
-        for (Field field : entityInfo.getFields()) {
-            Column column = field.getAnnotation(Column.class);
-            Id id = field.getAnnotation(Id.class);
-            
-            // Пропускаем автоинкрементные ID
-            if (id != null && id.autoIncrement()) {
-                continue;
-            }
-            
-            if (column != null) {
-                if (!first) {
-                    sql.append(", ");
-                    values.append(", ");
-                }
-                sql.append(column.value());
-                values.append("?");
-                first = false;
+        for (Field field : entityInfo.getInsertFields()) {
+            if (!first) {
+                sql.append(", ");
+                values.append(", ");
             }
+            sql.append(getColumnName(field));
+            values.append("?");
+            first = false;
         }
         
         sql.append(") VALUES (").append(values).append(")");
@@ -538,18 +1918,14 @@ public class Database implements FCoreService {
         
         sql.append("UPDATE ").append(entityInfo.getTableName()).append(" SET ");
         
+        // Порядок колонок совпадает с порядком привязки параметров
         boolean first = true;
-        for (Field field : entityInfo.getFields()) {
-            if (field != entityInfo.getIdField()) {
-                Column column = field.getAnnotation(Column.class);
-                if (column != null) {
-                    if (!first) {
-                        sql.append(", ");
-                    }
-                    sql.append(column.value()).append(" = ?");
-                    first = false;
-                }
+        for (Field field : entityInfo.getUpdateFields()) {
+            if (!first) {
+                sql.append(", ");
             }
+            sql.append(getColumnName(field)).append(" = ?");
+            first = false;
         }
         
         sql.append(" WHERE ").append(entityInfo.getIdColumn()).append(" = ?");
@@ -558,34 +1934,13 @@ public class Database implements FCoreService {
     }
     
     /**
-     * Преобразует ResultSet в объект сущности
-     * @param resultSet результаты запроса
-     * @param entityClass класс сущности
-     * @param entityInfo информация о сущности
-     * @param <T> тип объекта
-     * @return созданный объект
+     * Возвращает имя колонки для поля
+     * @param field поле сущности
+     * @return имя колонки
      */
-    private <T> T mapResultSetToEntity(ResultSet resultSet, Class<T> entityClass, EntityInfo entityInfo) 
-            throws SQLException, InstantiationException, IllegalAccessException, NoSuchMethodException, java.lang.reflect.InvocationTargetException {
-        
-        // Создаем новый экземпляр
-        T entity = entityClass.getDeclaredConstructor().newInstance();
-        
-        // Заполняем поля
-        for (Field field : entityInfo.getFields()) {
-            field.setAccessible(true);
-            
-            Column column = field.getAnnotation(Column.class);
-            if (column != null) {
-                String columnName = column.value();
-                Object value = resultSet.getObject(columnName);
-                
-                // Преобразуем значение в нужный тип
-                field.set(entity, convertToFieldType(value, field.getType()));
-            }
-        }
-        
-        return entity;
+    private static String getColumnName(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        return column != null ? column.value() : field.getName();
     }
     
     /**
@@ -595,7 +1950,7 @@ public class Database implements FCoreService {
      * @param value значение параметра
      * @throws SQLException при ошибке установки параметра
      */
-    private void setParameter(PreparedStatement statement, int index, Object value) throws SQLException {
+    static void setParameter(PreparedStatement statement, int index, Object value) throws SQLException {
         if (value == null) {
             statement.setNull(index, Types.NULL);
         } else if (value instanceof String) {
@@ -627,7 +1982,7 @@ public class Database implements FCoreService {
      * @param targetType целевой тип Java
      * @return преобразованное значение
      */
-    private Object convertToFieldType(Object value, Class<?> targetType) {
+    static Object convertToFieldType(Object value, Class<?> targetType) {
         if (value == null) {
             return null;
         }
@@ -711,12 +2066,16 @@ public class Database implements FCoreService {
      * @return информация о сущности
      */
     private EntityInfo getEntityInfo(Class<?> entityClass) {
-        // Проверяем кэш
-        EntityInfo entityInfo = entityInfoCache.get(entityClass);
-        if (entityInfo != null) {
-            return entityInfo;
-        }
-        
+        return entityInfoCache.computeIfAbsent(entityClass, this::createEntityInfo);
+    }
+    
+    /**
+     * Создает информацию о сущности по аннотациям и подготавливает SQL
+     * @param entityClass класс сущности
+     * @return информация о сущности
+     */
+    @SuppressWarnings("unchecked")
+    private EntityInfo createEntityInfo(Class<?> entityClass) {
         // Проверяем наличие аннотации @Entity
         if (!entityClass.isAnnotationPresent(Entity.class)) {
             throw new IllegalArgumentException("Class " + entityClass.getName() + " must be annotated with @Entity");
@@ -738,12 +2097,7 @@ public class Database implements FCoreService {
                 autoIncrement = idAnnotation.autoIncrement();
                 
                 // Получаем имя колонки для ID
-                if (field.isAnnotationPresent(Column.class)) {
-                    Column column = field.getAnnotation(Column.class);
-                    idColumn = column.value();
-                } else {
-                    idColumn = field.getName();
-                }
+                idColumn = getColumnName(field);
                 
                 break;
             }
@@ -761,13 +2115,192 @@ public class Database implements FCoreService {
             }
         }
         
-        // Создаем и кэшируем информацию
-        entityInfo = new EntityInfo(tableName, idField, idColumn, autoIncrement, fields);
-        entityInfoCache.put(entityClass, entityInfo);
+        EntityInfo entityInfo = new EntityInfo(tableName, idField, idColumn, autoIncrement, fields);
+        // Вытесненный по размеру или сроку жизни объект удаляется и из карт вторичных ключей
+        entityInfo.setEntityCache(cacheManager.builder("orm:" + entityClass.getName(), Object.class, Object.class)
+                .removalListener((key, entity, cause) -> unindexEntity(entityInfo, entity, key))
+                .build());
+        
+        // Выбираем только отображаемые колонки
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < fields.size(); i++) {
+            String column = getColumnName(fields.get(i));
+            if (i > 0) {
+                select.append(", ");
+            }
+            select.append(column);
+            
+            entityInfo.getColumns().put(fields.get(i).getName(), column);
+            entityInfo.getColumns().put(column, column);
+        }
+        entityInfo.setSelectSql(select.append(" FROM ").append(tableName).toString());
+        
+        // Индексированные колонки получают карты "значение -> первичный ключ"
+        for (Field field : fields) {
+            Column column = field.getAnnotation(Column.class);
+            if (column != null && field != idField && (column.indexed() || column.unique())) {
+                field.setAccessible(true);
+                entityInfo.getIndexedFields().put(column.value(), field);
+                entityInfo.getSecondaryKeys().put(column.value(), new ConcurrentHashMap<>());
+            }
+        }
+        
+        // Ищем колонку версии
+        Field versionField = null;
+        for (Field field : fields) {
+            if (field.isAnnotationPresent(Version.class)) {
+                Class<?> type = field.getType();
+                if (type != int.class && type != long.class && type != Integer.class && type != Long.class) {
+                    throw new IllegalArgumentException("@Version field " + field.getName() + " must be int or long");
+                }
+                versionField = field;
+                break;
+            }
+        }
+        
+        List<String> updateColumns = new ArrayList<>();
+        for (Field field : entityInfo.getUpdateFields()) {
+            updateColumns.add(getColumnName(field));
+        }
+        entityInfo.setChangeTracker(new EntityChangeTracker(tableName, idColumn, entityInfo.getUpdateFields(),
+                updateColumns, versionField));
+        
+        // Строим отображение один раз на класс сущности
+        entityInfo.setMapper(new MethodHandleEntityMapper<>((Class<Object>) entityClass, fields, idField,
+                entityInfo.getInsertFields(), entityInfo.getUpdateFields()));
+        
+        // Генерируем SQL один раз на сущность
+        String byId = " WHERE " + idColumn + " = ?";
+        entityInfo.setStatements(
+                generateInsertSQL(entityInfo),
+                generateUpdateSQL(entityInfo),
+                entityInfo.getSelectSql() + byId,
+                "DELETE FROM " + tableName + byId
+        );
+        
+        CacheInvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            subscribe(bus, entityClass, entityInfo);
+        }
         
         return entityInfo;
     }
     
+    /**
+     * Курсор по результату запроса, отображающий строки по мере чтения.
+     * Ресурсы закрываются при исчерпании результата или закрытии потока
+     * @param <T> тип объекта
+     */
+    private class CursorSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Class<T> entityClass;
+        private final EntityMapper<Object> mapper;
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private boolean closed;
+        
+        CursorSpliterator(Class<T> entityClass, EntityMapper<Object> mapper,
+                          Connection connection, PreparedStatement statement, ResultSet resultSet) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.entityClass = entityClass;
+            this.mapper = mapper;
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                
+                action.accept(entityClass.cast(mapper.map(resultSet)));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException("Ошибка при чтении курсора: " + e.getMessage(), e);
+            }
+        }
+        
+        void close() {
+            if (!closed) {
+                closed = true;
+                closeQuietly(resultSet);
+                closeQuietly(statement);
+                closeQuietly(connection);
+            }
+        }
+    }
+    
+    /**
+     * Постраничный обход по первичному ключу
+     * @param <T> тип объекта
+     */
+    private class KeysetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Class<T> entityClass;
+        private final EntityMapper<Object> mapper;
+        private final int pageSize;
+        private final String firstPageSql;
+        private final String nextPageSql;
+        private final Object[] params;
+        private Iterator<T> page = Collections.emptyIterator();
+        private Object lastId;
+        private boolean exhausted;
+        
+        KeysetSpliterator(Class<T> entityClass, EntityMapper<Object> mapper, int pageSize,
+                          String firstPageSql, String nextPageSql, Object[] params) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.entityClass = entityClass;
+            this.mapper = mapper;
+            this.pageSize = pageSize;
+            this.firstPageSql = firstPageSql;
+            this.nextPageSql = nextPageSql;
+            this.params = params;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!page.hasNext() && !exhausted) {
+                fetchNextPage();
+            }
+            
+            if (!page.hasNext()) {
+                return false;
+            }
+            
+            T entity = page.next();
+            lastId = mapper.getId(entity);
+            action.accept(entity);
+            return true;
+        }
+        
+        private void fetchNextPage() {
+            List<T> entities;
+            try {
+                if (lastId == null) {
+                    entities = loadPage(entityClass, mapper, firstPageSql, params);
+                } else {
+                    Object[] pageParams = Arrays.copyOf(params, params.length + 1);
+                    pageParams[params.length] = lastId;
+                    entities = loadPage(entityClass, mapper, nextPageSql, pageParams);
+                }
+            } catch (SQLException e) {
+                exhausted = true;
+                throw new RuntimeException("Ошибка при постраничной загрузке: " + e.getMessage(), e);
+            }
+            
+            exhausted = entities.size() < pageSize;
+            page = entities.iterator();
+        }
+    }
+    
     /**
      * Класс для хранения информации о сущности
      */
@@ -778,12 +2311,59 @@ public class Database implements FCoreService {
         private final boolean autoIncrement;
         private final List<Field> fields;
         
+        // Порядок привязки параметров для INSERT и UPDATE
+        private final List<Field> insertFields;
+        private final List<Field> updateFields;
+        
+        // Подготовленный текст SQL запросов
+        private String insertSql;
+        private String updateSql;
+        private String findByIdSql;
+        private String deleteSql;
+        private String selectSql;
+        
+        // Имена колонок по имени поля и по имени колонки
+        private final Map<String, String> columns = new HashMap<>();
+        
+        // Индексированные поля и карты вторичных ключей по имени колонки
+        private final Map<String, Field> indexedFields = new LinkedHashMap<>();
+        private final Map<String, Map<Object, Object>> secondaryKeys = new HashMap<>();
+        
+        // Скомпилированный SQL типизированных запросов по форме запроса
+        private final Map<String, String> queryCache = new ConcurrentHashMap<>();
+        
+        // Отображение сущности на строки таблицы
+        private volatile EntityMapper<Object> mapper;
+        
+        // Отслеживание изменений для частичных UPDATE
+        private EntityChangeTracker changeTracker;
+        
+        // Кэш объектов по первичному ключу
+        private NamedCache<Object, Object> entityCache;
+        
+        // Получатели изменений, сделанных другими серверами
+        private final List<BiConsumer<Object, Object>> remoteChangeListeners = new CopyOnWriteArrayList<>();
+        
+        // Таблица проверена или создана
+        private volatile boolean tableVerified;
+        
         public EntityInfo(String tableName, Field idField, String idColumn, boolean autoIncrement, List<Field> fields) {
             this.tableName = tableName;
             this.idField = idField;
             this.idColumn = idColumn;
             this.autoIncrement = autoIncrement;
             this.fields = fields;
+            
+            this.insertFields = new ArrayList<>();
+            this.updateFields = new ArrayList<>();
+            for (Field field : fields) {
+                if (field != idField || !autoIncrement) {
+                    insertFields.add(field);
+                }
+                if (field != idField) {
+                    updateFields.add(field);
+                }
+            }
         }
         
         public String getTableName() {
@@ -805,5 +2385,111 @@ public class Database implements FCoreService {
         public List<Field> getFields() {
             return fields;
         }
+        
+        public List<Field> getInsertFields() {
+            return insertFields;
+        }
+        
+        public List<Field> getUpdateFields() {
+            return updateFields;
+        }
+        
+        public void setStatements(String insertSql, String updateSql, String findByIdSql, String deleteSql) {
+            this.insertSql = insertSql;
+            this.updateSql = updateSql;
+            this.findByIdSql = findByIdSql;
+            this.deleteSql = deleteSql;
+        }
+        
+        public String getInsertSql() {
+            return insertSql;
+        }
+        
+        public String getUpdateSql() {
+            return updateSql;
+        }
+        
+        public String getFindByIdSql() {
+            return findByIdSql;
+        }
+        
+        public String getDeleteSql() {
+            return deleteSql;
+        }
+        
+        public String getSelectSql() {
+            return selectSql;
+        }
+        
+        public void setSelectSql(String selectSql) {
+            this.selectSql = selectSql;
+        }
+        
+        public Map<String, String> getColumns() {
+            return columns;
+        }
+        
+        public Map<String, Field> getIndexedFields() {
+            return indexedFields;
+        }
+        
+        public Map<String, Map<Object, Object>> getSecondaryKeys() {
+            return secondaryKeys;
+        }
+        
+        public Map<String, String> getQueryCache() {
+            return queryCache;
+        }
+        
+        public EntityMapper<Object> getMapper() {
+            return mapper;
+        }
+        
+        public void setMapper(EntityMapper<Object> mapper) {
+            this.mapper = mapper;
+        }
+        
+        public NamedCache<Object, Object> getEntityCache() {
+            return entityCache;
+        }
+        
+        public void setEntityCache(NamedCache<Object, Object> entityCache) {
+            this.entityCache = entityCache;
+        }
+        
+        public List<BiConsumer<Object, Object>> getRemoteChangeListeners() {
+            return remoteChangeListeners;
+        }
+        
+        /**
+         * Восстанавливает ключ кэша из строкового вида по типу первичного ключа
+         * @param key ключ в строковом виде
+         * @return ключ кэша
+         */
+        public Object parseCacheId(String key) {
+            Class<?> type = idField.getType();
+            if (type.isPrimitive() || Number.class.isAssignableFrom(type)) {
+                return Long.parseLong(key);
+            } else if (type == UUID.class) {
+                return UUID.fromString(key);
+            }
+            return key;
+        }
+        
+        public EntityChangeTracker getChangeTracker() {
+            return changeTracker;
+        }
+        
+        public void setChangeTracker(EntityChangeTracker changeTracker) {
+            this.changeTracker = changeTracker;
+        }
+        
+        public boolean isTableVerified() {
+            return tableVerified;
+        }
+        
+        public void setTableVerified(boolean tableVerified) {
+            this.tableVerified = tableVerified;
+        }
     }
-} 
\ No newline at end of file
+}
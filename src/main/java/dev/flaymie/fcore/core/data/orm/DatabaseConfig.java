@@ -36,15 +36,72 @@ public class DatabaseConfig {
     @ConfigValue("mysql.use-ssl")
     private boolean useSSL = false;
     
+    @ConfigValue("mysql.auto-tune.enabled")
+    private boolean autoTuneEnabled = false;
+    
+    @ConfigValue("mysql.auto-tune.max-pool-size")
+    private int autoTuneMaxPoolSize = 20;
+    
+    @ConfigValue("mysql.auto-tune.interval")
+    private int autoTuneInterval = 100;
+    
+    @ConfigValue("mysql.auto-tune.target-wait")
+    private int autoTuneTargetWait = 20;
+    
     @ConfigValue("sqlite.enabled")
     private boolean sqliteEnabled = true;
     
     @ConfigValue("sqlite.file")
     private String sqliteFile = "database.db";
     
+    @ConfigValue("sqlite.performance-mode")
+    private boolean sqlitePerformanceMode = true;
+    
+    @ConfigValue("sqlite.reader-pool-size")
+    private int sqliteReaderPoolSize = 4;
+    
+    @ConfigValue("sqlite.cache-size")
+    private int sqliteCacheSize = 16384;
+    
+    @ConfigValue("sqlite.mmap-size")
+    private long sqliteMmapSize = 268435456L;
+    
+    @ConfigValue("sqlite.busy-timeout")
+    private int sqliteBusyTimeout = 5000;
+    
     @ConfigValue("general.show-sql")
     private boolean showSql = false;
     
+    @ConfigValue("general.fetch-size")
+    private int fetchSize = 500;
+    
+    @ConfigValue("general.profile-statements")
+    private boolean profileStatements = true;
+    
+    @ConfigValue("general.slow-query-threshold")
+    private int slowQueryThreshold = 100;
+    
+    @ConfigValue("write-behind.enabled")
+    private boolean writeBehindEnabled = true;
+    
+    @ConfigValue("write-behind.flush-interval")
+    private int writeBehindFlushInterval = 5;
+    
+    @ConfigValue("write-behind.batch-size")
+    private int writeBehindBatchSize = 200;
+    
+    @ConfigValue("invalidation.enabled")
+    private boolean invalidationEnabled = true;
+    
+    @ConfigValue("invalidation.poll-interval")
+    private int invalidationPollInterval = 10;
+    
+    @ConfigValue("invalidation.retention")
+    private int invalidationRetention = 300;
+    
+    @ConfigValue("invalidation.refresh")
+    private boolean invalidationRefresh = false;
+    
     // Геттеры и сеттеры
     
     public boolean isMysqlEnabled() {
@@ -119,6 +176,38 @@ public class DatabaseConfig {
         this.useSSL = useSSL;
     }
     
+    public boolean isAutoTuneEnabled() {
+        return autoTuneEnabled;
+    }
+    
+    public void setAutoTuneEnabled(boolean autoTuneEnabled) {
+        this.autoTuneEnabled = autoTuneEnabled;
+    }
+    
+    public int getAutoTuneMaxPoolSize() {
+        return autoTuneMaxPoolSize;
+    }
+    
+    public void setAutoTuneMaxPoolSize(int autoTuneMaxPoolSize) {
+        this.autoTuneMaxPoolSize = autoTuneMaxPoolSize;
+    }
+    
+    public int getAutoTuneInterval() {
+        return autoTuneInterval;
+    }
+    
+    public void setAutoTuneInterval(int autoTuneInterval) {
+        this.autoTuneInterval = autoTuneInterval;
+    }
+    
+    public int getAutoTuneTargetWait() {
+        return autoTuneTargetWait;
+    }
+    
+    public void setAutoTuneTargetWait(int autoTuneTargetWait) {
+        this.autoTuneTargetWait = autoTuneTargetWait;
+    }
+    
     public boolean isSqliteEnabled() {
         return sqliteEnabled;
     }
@@ -135,6 +224,46 @@ public class DatabaseConfig {
         this.sqliteFile = sqliteFile;
     }
     
+    public boolean isSqlitePerformanceMode() {
+        return sqlitePerformanceMode;
+    }
+    
+    public void setSqlitePerformanceMode(boolean sqlitePerformanceMode) {
+        this.sqlitePerformanceMode = sqlitePerformanceMode;
+    }
+    
+    public int getSqliteReaderPoolSize() {
+        return sqliteReaderPoolSize;
+    }
+    
+    public void setSqliteReaderPoolSize(int sqliteReaderPoolSize) {
+        this.sqliteReaderPoolSize = sqliteReaderPoolSize;
+    }
+    
+    public int getSqliteCacheSize() {
+        return sqliteCacheSize;
+    }
+    
+    public void setSqliteCacheSize(int sqliteCacheSize) {
+        this.sqliteCacheSize = sqliteCacheSize;
+    }
+    
+    public long getSqliteMmapSize() {
+        return sqliteMmapSize;
+    }
+    
+    public void setSqliteMmapSize(long sqliteMmapSize) {
+        this.sqliteMmapSize = sqliteMmapSize;
+    }
+    
+    public int getSqliteBusyTimeout() {
+        return sqliteBusyTimeout;
+    }
+    
+    public void setSqliteBusyTimeout(int sqliteBusyTimeout) {
+        this.sqliteBusyTimeout = sqliteBusyTimeout;
+    }
+    
     public boolean isShowSql() {
         return showSql;
     }
@@ -142,4 +271,84 @@ public class DatabaseConfig {
     public void setShowSql(boolean showSql) {
         this.showSql = showSql;
     }
+    
+    public int getFetchSize() {
+        return fetchSize;
+    }
+    
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+    
+    public boolean isProfileStatements() {
+        return profileStatements;
+    }
+    
+    public void setProfileStatements(boolean profileStatements) {
+        this.profileStatements = profileStatements;
+    }
+    
+    public int getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+    
+    public void setSlowQueryThreshold(int slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+    
+    public boolean isWriteBehindEnabled() {
+        return writeBehindEnabled;
+    }
+    
+    public void setWriteBehindEnabled(boolean writeBehindEnabled) {
+        this.writeBehindEnabled = writeBehindEnabled;
+    }
+    
+    public int getWriteBehindFlushInterval() {
+        return writeBehindFlushInterval;
+    }
+    
+    public void setWriteBehindFlushInterval(int writeBehindFlushInterval) {
+        this.writeBehindFlushInterval = writeBehindFlushInterval;
+    }
+    
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+    
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+    
+    public boolean isInvalidationEnabled() {
+        return invalidationEnabled;
+    }
+    
+    public void setInvalidationEnabled(boolean invalidationEnabled) {
+        this.invalidationEnabled = invalidationEnabled;
+    }
+    
+    public int getInvalidationPollInterval() {
+        return invalidationPollInterval;
+    }
+    
+    public void setInvalidationPollInterval(int invalidationPollInterval) {
+        this.invalidationPollInterval = invalidationPollInterval;
+    }
+    
+    public int getInvalidationRetention() {
+        return invalidationRetention;
+    }
+    
+    public void setInvalidationRetention(int invalidationRetention) {
+        this.invalidationRetention = invalidationRetention;
+    }
+    
+    public boolean isInvalidationRefresh() {
+        return invalidationRefresh;
+    }
+    
+    public void setInvalidationRefresh(boolean invalidationRefresh) {
+        this.invalidationRefresh = invalidationRefresh;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,487 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отслеживание изменений сущности для частичных UPDATE и оптимистичной блокировки.
+ * После загрузки или сохранения объекта запоминается снимок значений его колонок;
+ * при следующем сохранении в UPDATE попадают только изменившиеся колонки.
+ * Текст SQL кэшируется по набору измененных колонок.
+ * Колонки читаются через MethodHandle: примитивные значения хранятся в снимке
+ * как биты в long[] без упаковки, упаковываются только измененные колонки при сохранении.
+ * Снимки хранятся по слабым ссылкам на сам объект (сравнение по ==, а не equals)
+ * и исчезают вместе с объектом
+ */
+final class EntityChangeTracker {
+
+    private final String tableName;
+    private final String idColumn;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType BITS_GETTER = MethodType.methodType(long.class, Object.class);
+    private static final MethodType REFERENCE_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private final Field[] fields;
+    private final Class<?>[] types;
+    private final String[] columns;
+    private final int versionIndex;
+
+    // Чтение примитивной колонки в виде битов (null для ссылочных колонок) и ссылочной колонки
+    private final MethodHandle[] bitsGetters;
+    private final MethodHandle[] referenceGetters;
+
+    // Снимки значений колонок по объекту
+    private final Map<IdentityKey, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    // Текст SQL по набору измененных колонок
+    private final Map<BitSet, String> sqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * Создает отслеживание для сущности
+     * @param tableName имя таблицы
+     * @param idColumn колонка первичного ключа
+     * @param updateFields все поля, кроме первичного ключа
+     * @param columns имена колонок для полей
+     * @param versionField поле версии или null
+     */
+    EntityChangeTracker(String tableName, String idColumn, List<Field> updateFields, List<String> columns,
+                        Field versionField) {
+        this.tableName = tableName;
+        this.idColumn = idColumn;
+        this.fields = updateFields.toArray(new Field[0]);
+        this.columns = columns.toArray(new String[0]);
+        this.versionIndex = versionField != null ? updateFields.indexOf(versionField) : -1;
+        this.types = new Class<?>[fields.length];
+        this.bitsGetters = new MethodHandle[fields.length];
+        this.referenceGetters = new MethodHandle[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            field.setAccessible(true);
+            types[i] = field.getType();
+            try {
+                MethodHandle getter = LOOKUP.unreflectGetter(field);
+                if (types[i].isPrimitive()) {
+                    MethodHandle toBits = LOOKUP.findStatic(EntityChangeTracker.class, "bits",
+                            MethodType.methodType(long.class, types[i]));
+                    bitsGetters[i] = MethodHandles.filterReturnValue(getter, toBits).asType(BITS_GETTER);
+                } else {
+                    referenceGetters[i] = getter.asType(REFERENCE_GETTER);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot access field " + field, e);
+            }
+        }
+    }
+
+    /**
+     * Есть ли у сущности колонка версии
+     * @return true, если используется оптимистичная блокировка
+     */
+    boolean isVersioned() {
+        return versionIndex >= 0;
+    }
+
+    /**
+     * Читает значение колонки версии
+     * @param entity объект
+     * @return версия или -1, если колонки версии нет
+     */
+    long versionOf(Object entity) {
+        if (!isVersioned()) {
+            return -1;
+        }
+        if (bitsGetters[versionIndex] != null) {
+            return readBits(versionIndex, entity);
+        }
+        Object version = readReference(versionIndex, entity);
+        return version instanceof Number ? ((Number) version).longValue() : 0;
+    }
+
+    /**
+     * Запоминает текущие значения колонок объекта
+     * @param entity объект
+     */
+    void snapshot(Object entity) {
+        remember(entity, capture(entity));
+    }
+
+    /**
+     * Считывает значения колонок объекта. Снимок нужно брать до привязки
+     * параметров, чтобы изменения, сделанные другим потоком во время записи,
+     * не попали в снимок и не были потеряны при следующем сохранении
+     * @param entity объект
+     * @return значения колонок
+     */
+    Snapshot capture(Object entity) {
+        Snapshot snapshot = new Snapshot(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            if (bitsGetters[i] != null) {
+                snapshot.bits[i] = readBits(i, entity);
+                continue;
+            }
+
+            Object value = readReference(i, entity);
+            // Даты изменяемы, поэтому в снимок попадает копия
+            snapshot.references[i] = value instanceof Date ? new Date(((Date) value).getTime()) : value;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Запоминает записанные значения колонок объекта
+     * @param entity объект
+     * @param values значения, полученные через {@link #capture(Object)}
+     */
+    void remember(Object entity, Snapshot values) {
+        expungeCollected();
+        snapshots.put(new IdentityKey(entity, collected), values);
+    }
+
+    /**
+     * Забывает снимок объекта
+     * @param entity объект
+     */
+    void forget(Object entity) {
+        snapshots.remove(new IdentityKey(entity, null));
+    }
+
+    /**
+     * Удаляет снимки объектов, собранных сборщиком мусора
+     */
+    private void expungeCollected() {
+        Object key;
+        while ((key = collected.poll()) != null) {
+            snapshots.remove(key);
+        }
+    }
+
+    /**
+     * Подготавливает UPDATE для объекта
+     * @param entity объект
+     * @param idValue значение первичного ключа
+     * @return обновление; null, если снимка нет и версия не используется
+     *         (следует выполнить полное обновление через отображение сущности)
+     */
+    Update prepare(Object entity, Object idValue) {
+        Snapshot snapshot = snapshots.get(new IdentityKey(entity, null));
+        if (snapshot == null && !isVersioned()) {
+            return null;
+        }
+
+        Snapshot values = capture(entity);
+        BitSet dirty = new BitSet(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            if (i != versionIndex && (snapshot == null || !same(i, values, snapshot))) {
+                dirty.set(i);
+            }
+        }
+
+        if (dirty.isEmpty()) {
+            return Update.EMPTY;
+        }
+
+        String sql = sqlCache.computeIfAbsent(dirty, this::generateSql);
+        Object[] params = new Object[dirty.cardinality() + (isVersioned() ? 3 : 1)];
+        int index = 0;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            params[index++] = value(i, values);
+        }
+
+        Object nextVersion = null;
+        if (isVersioned()) {
+            Object version = value(versionIndex, values);
+            nextVersion = increment(fields[versionIndex], version);
+            params[index++] = nextVersion;
+            params[index++] = idValue;
+            params[index] = version;
+        } else {
+            params[index] = idValue;
+        }
+
+        return new Update(sql, params, values, nextVersion);
+    }
+
+    /**
+     * Фиксирует новую версию в объекте и запоминает записанные значения
+     * после успешного обновления
+     * @param entity объект
+     * @param update выполненное обновление
+     */
+    void apply(Object entity, Update update) {
+        if (update.isEmpty()) {
+            return;
+        }
+
+        if (update.nextVersion != null) {
+            try {
+                fields[versionIndex].set(entity, update.nextVersion);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot update version field", e);
+            }
+            if (bitsGetters[versionIndex] != null) {
+                update.values.bits[versionIndex] = ((Number) update.nextVersion).longValue();
+            } else {
+                update.values.references[versionIndex] = update.nextVersion;
+            }
+        }
+
+        remember(entity, update.values);
+    }
+
+    /**
+     * Отменяет результат обновления после отката транзакции:
+     * возвращает прежнюю версию и забывает снимок
+     * @param entity объект
+     * @param update откаченное обновление
+     */
+    void revert(Object entity, Update update) {
+        forget(entity);
+
+        if (update.nextVersion != null) {
+            try {
+                fields[versionIndex].set(entity, update.getExpectedVersion());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot update version field", e);
+            }
+        }
+    }
+
+    private String generateSql(BitSet dirty) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+
+        boolean first = true;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            if (!first) {
+                sql.append(", ");
+            }
+            sql.append(columns[i]).append(" = ?");
+            first = false;
+        }
+
+        if (isVersioned()) {
+            sql.append(", ").append(columns[versionIndex]).append(" = ?");
+        }
+
+        sql.append(" WHERE ").append(idColumn).append(" = ?");
+
+        if (isVersioned()) {
+            sql.append(" AND ").append(columns[versionIndex]).append(" = ?");
+        }
+
+        return sql.toString();
+    }
+
+    private boolean same(int index, Snapshot values, Snapshot snapshot) {
+        if (bitsGetters[index] != null) {
+            return values.bits[index] == snapshot.bits[index];
+        }
+
+        Object value = values.references[index];
+        Object previous = snapshot.references[index];
+        // Date и Timestamp сравниваем по значению времени
+        if (value instanceof Date && previous instanceof Date) {
+            return ((Date) value).getTime() == ((Date) previous).getTime();
+        }
+        return Objects.equals(value, previous);
+    }
+
+    /**
+     * Значение колонки из снимка; примитивы упаковываются только здесь
+     * @param index индекс колонки
+     * @param snapshot снимок
+     * @return значение для параметра запроса
+     */
+    private Object value(int index, Snapshot snapshot) {
+        if (bitsGetters[index] == null) {
+            return snapshot.references[index];
+        }
+
+        long bits = snapshot.bits[index];
+        Class<?> type = types[index];
+        if (type == int.class) {
+            return (int) bits;
+        } else if (type == long.class) {
+            return bits;
+        } else if (type == double.class) {
+            return Double.longBitsToDouble(bits);
+        } else if (type == float.class) {
+            return Float.intBitsToFloat((int) bits);
+        } else if (type == boolean.class) {
+            return bits != 0;
+        } else if (type == short.class) {
+            return (short) bits;
+        } else if (type == byte.class) {
+            return (byte) bits;
+        }
+        return (char) bits;
+    }
+
+    private long readBits(int index, Object entity) {
+        try {
+            return (long) bitsGetters[index].invokeExact(entity);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot read field " + fields[index].getName(), t);
+        }
+    }
+
+    private Object readReference(int index, Object entity) {
+        try {
+            return (Object) referenceGetters[index].invokeExact(entity);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot read field " + fields[index].getName(), t);
+        }
+    }
+
+    // Преобразование примитивов в биты снимка, вызываются через MethodHandle
+
+    private static long bits(int value) {
+        return value;
+    }
+
+    private static long bits(long value) {
+        return value;
+    }
+
+    private static long bits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    private static long bits(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    private static long bits(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    private static long bits(short value) {
+        return value;
+    }
+
+    private static long bits(byte value) {
+        return value;
+    }
+
+    private static long bits(char value) {
+        return value;
+    }
+
+    private static Object increment(Field field, Object version) {
+        long next = version instanceof Number ? ((Number) version).longValue() + 1 : 1;
+        if (field.getType() == long.class || field.getType() == Long.class) {
+            return next;
+        }
+        return (int) next;
+    }
+
+    /**
+     * Значения колонок объекта: примитивы - битами, остальные - ссылками
+     */
+    static final class Snapshot {
+        final long[] bits;
+        final Object[] references;
+
+        Snapshot(int size) {
+            this.bits = new long[size];
+            this.references = new Object[size];
+        }
+    }
+
+    /**
+     * Слабая ссылка на объект, сравниваемая по идентичности объекта.
+     * Сущности могут переопределять equals по ID, но у каждого экземпляра свой снимок
+     */
+    private static final class IdentityKey extends WeakReference<Object> {
+        private final int hash;
+
+        IdentityKey(Object entity, ReferenceQueue<Object> queue) {
+            super(entity, queue);
+            this.hash = System.identityHashCode(entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof IdentityKey)) {
+                return false;
+            }
+            Object entity = get();
+            return entity != null && entity == ((IdentityKey) other).get();
+        }
+    }
+
+    /**
+     * Подготовленный UPDATE
+     */
+    static final class Update {
+        static final Update EMPTY = new Update(null, null, null, null);
+
+        private final String sql;
+        private final Object[] params;
+        private final Snapshot values;
+        private final Object nextVersion;
+
+        private Update(String sql, Object[] params, Snapshot values, Object nextVersion) {
+            this.sql = sql;
+            this.params = params;
+            this.values = values;
+            this.nextVersion = nextVersion;
+        }
+
+        /**
+         * Нет изменившихся колонок, запись не требуется
+         * @return true, если обновлять нечего
+         */
+        boolean isEmpty() {
+            return sql == null;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        Object[] getParams() {
+            return params;
+        }
+
+        /**
+         * Ожидаемая версия в базе данных
+         * @return версия или null, если версия не используется
+         */
+        Object getExpectedVersion() {
+            return nextVersion != null ? params[params.length - 1] : null;
+        }
+
+        /**
+         * Устанавливает параметры запроса
+         * @param statement запрос
+         * @throws SQLException при ошибке установки параметра
+         */
+        void bind(PreparedStatement statement) throws SQLException {
+            for (int i = 0; i < params.length; i++) {
+                Database.setParameter(statement, i + 1, params[i]);
+            }
+        }
+    }
+}
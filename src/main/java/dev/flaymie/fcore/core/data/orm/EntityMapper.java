@@ -0,0 +1,58 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Отображение сущности на строки таблицы и обратно.
+ * Реализация по умолчанию строится один раз на класс сущности по аннотациям
+ * {@link Entity}, {@link Column} и {@link Id}; свою реализацию можно
+ * зарегистрировать через {@link Database#registerMapper(Class, EntityMapper)}.
+ * <p>
+ * Параметры привязываются в порядке объявления полей сущности:
+ * для INSERT - все колонки, кроме автоинкрементного ID,
+ * для UPDATE - все колонки, кроме ID, и затем ID для условия WHERE.
+ * @param <T> тип сущности
+ */
+public interface EntityMapper<T> {
+
+    /**
+     * Создает объект сущности из текущей строки результата
+     * @param resultSet результат запроса, установленный на строку
+     * @return созданный объект
+     * @throws SQLException при ошибке чтения колонок
+     */
+    T map(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Устанавливает параметры запроса вставки, начиная с индекса 1
+     * @param statement запрос
+     * @param entity объект
+     * @throws SQLException при ошибке установки параметра
+     */
+    void bindInsert(PreparedStatement statement, T entity) throws SQLException;
+
+    /**
+     * Устанавливает параметры запроса обновления, начиная с индекса 1,
+     * последним параметром устанавливается ID
+     * @param statement запрос
+     * @param entity объект
+     * @throws SQLException при ошибке установки параметра
+     */
+    void bindUpdate(PreparedStatement statement, T entity) throws SQLException;
+
+    /**
+     * Получает значение первичного ключа
+     * @param entity объект
+     * @return значение первичного ключа
+     */
+    Object getId(T entity);
+
+    /**
+     * Устанавливает значение первичного ключа (например, сгенерированного базой)
+     * @param entity объект
+     * @param id значение, полученное от драйвера
+     */
+    void setId(T entity, Object id);
+}
@@ -0,0 +1,236 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import dev.flaymie.fcore.core.data.cache.CacheSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Компактная двоичная сериализация сущности по ее колонкам.
+ * Поля записываются в порядке объявления без имен: целые числа - в виде
+ * переменной длины, строки - в UTF-8, null отмечается битовой маской.
+ * Используется вторым уровнем кэша; формат не предназначен для долговременного хранения.
+ * Создается через {@link Database#serializer(Class)}
+ * @param <T> тип сущности
+ */
+public final class EntitySerializer<T> implements CacheSerializer<T> {
+
+    private static final byte INT = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte FLOAT = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte DATE = 6;
+    private static final byte UUID_KIND = 7;
+    private static final byte ENUM = 8;
+    private static final byte BYTES = 9;
+
+    private final Constructor<T> constructor;
+    private final Field[] fields;
+    private final byte[] kinds;
+
+    EntitySerializer(Class<T> entityClass, List<Field> fields) {
+        try {
+            this.constructor = entityClass.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Entity " + entityClass.getName() + " must have a no-arg constructor", e);
+        }
+
+        this.fields = fields.toArray(new Field[0]);
+        this.kinds = new byte[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            this.fields[i].setAccessible(true);
+            this.kinds[i] = kindOf(this.fields[i]);
+        }
+    }
+
+    @Override
+    public void write(DataOutput out, T entity) throws IOException {
+        try {
+            Object[] values = new Object[fields.length];
+            byte[] nulls = new byte[(fields.length + 7) / 8];
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = fields[i].get(entity);
+                if (values[i] == null) {
+                    nulls[i >> 3] |= 1 << (i & 7);
+                }
+            }
+
+            out.write(nulls);
+            for (int i = 0; i < fields.length; i++) {
+                if (values[i] != null) {
+                    writeValue(out, kinds[i], values[i]);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public T read(DataInput in) throws IOException {
+        try {
+            T entity = constructor.newInstance();
+            byte[] nulls = new byte[(fields.length + 7) / 8];
+            in.readFully(nulls);
+
+            for (int i = 0; i < fields.length; i++) {
+                boolean isNull = (nulls[i >> 3] & (1 << (i & 7))) != 0;
+                if (!isNull) {
+                    fields[i].set(entity, readValue(in, kinds[i], fields[i].getType()));
+                } else if (!fields[i].getType().isPrimitive()) {
+                    fields[i].set(entity, null);
+                }
+            }
+            return entity;
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeValue(DataOutput out, byte kind, Object value) throws IOException {
+        switch (kind) {
+            case INT:
+                writeVarLong(out, ((Number) value).intValue());
+                break;
+            case LONG:
+                writeVarLong(out, ((Number) value).longValue());
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case STRING:
+                writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+                break;
+            case DATE:
+                writeVarLong(out, ((Date) value).getTime());
+                break;
+            case UUID_KIND:
+                out.writeLong(((UUID) value).getMostSignificantBits());
+                out.writeLong(((UUID) value).getLeastSignificantBits());
+                break;
+            case ENUM:
+                writeVarLong(out, ((Enum<?>) value).ordinal());
+                break;
+            default:
+                writeBytes(out, (byte[]) value);
+                break;
+        }
+    }
+
+    private static Object readValue(DataInput in, byte kind, Class<?> type) throws IOException {
+        switch (kind) {
+            case INT:
+                return (int) readVarLong(in);
+            case LONG:
+                return readVarLong(in);
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case DATE:
+                // java.sql.Timestamp и другие наследники Date сохраняются как Date
+                return new Date(readVarLong(in));
+            case UUID_KIND:
+                return new UUID(in.readLong(), in.readLong());
+            case ENUM:
+                return type.getEnumConstants()[(int) readVarLong(in)];
+            default:
+                return readBytes(in);
+        }
+    }
+
+    private static byte kindOf(Field field) {
+        Class<?> type = field.getType();
+        if (type == int.class || type == Integer.class) {
+            return INT;
+        }
+        if (type == long.class || type == Long.class) {
+            return LONG;
+        }
+        if (type == double.class || type == Double.class) {
+            return DOUBLE;
+        }
+        if (type == float.class || type == Float.class) {
+            return FLOAT;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return BOOLEAN;
+        }
+        if (type == String.class) {
+            return STRING;
+        }
+        if (type == Date.class) {
+            return DATE;
+        }
+        if (type == UUID.class) {
+            return UUID_KIND;
+        }
+        if (type.isEnum()) {
+            return ENUM;
+        }
+        if (type == byte[].class) {
+            return BYTES;
+        }
+        throw unsupported(field);
+    }
+
+    private static IllegalArgumentException unsupported(Field field) {
+        return new IllegalArgumentException("Field " + field.getDeclaringClass().getName() + "." + field.getName() +
+                " of type " + field.getType().getName() + " is not supported by EntitySerializer");
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Записывает число переменной длины (зигзаг-кодирование, 7 бит на байт)
+     */
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+}
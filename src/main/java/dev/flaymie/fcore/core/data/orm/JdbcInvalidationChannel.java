@@ -0,0 +1,306 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.core.data.cache.InvalidationChannel;
+import dev.flaymie.fcore.core.data.cache.InvalidationMessage;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Канал сброса кэшей через таблицу в общей базе данных.
+ * Отправленные сообщения накапливаются в памяти и записываются пакетом при ближайшем опросе;
+ * тем же опросом читаются строки, добавленные другими серверами после последней прочитанной.
+ * Автоинкрементные ключи могут фиксироваться не по порядку, поэтому пропущенные ключи
+ * перепроверяются в течение {@link #GAP_TIMEOUT_MILLIS}. Старые строки периодически удаляются
+ */
+public class JdbcInvalidationChannel implements InvalidationChannel {
+
+    static final String TABLE = "fcore_cache_invalidations";
+
+    // Сколько ждать появления пропущенного ключа и сколько пропусков отслеживать
+    private static final long GAP_TIMEOUT_MILLIS = 10000;
+    private static final int MAX_GAPS = 1000;
+
+    // Максимальное количество строк, читаемых или записываемых за один запрос
+    private static final int BATCH_SIZE = 500;
+
+    // Интервал удаления старых строк
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final FCore plugin;
+    private final Logger logger;
+    private final ConnectionManager connectionManager;
+    private final int pollInterval;
+    private final long retentionMillis;
+
+    private final Queue<InvalidationMessage> outgoing = new ConcurrentLinkedQueue<>();
+    private final List<Consumer<InvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    // Состояние опроса (под pollLock)
+    private final Object pollLock = new Object();
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private long lastSeenId = -1;
+    private long lastPurge;
+
+    private BukkitTask pollTask;
+
+    /**
+     * Создает канал
+     * @param plugin экземпляр ядра
+     * @param connectionManager менеджер соединений
+     * @param pollInterval интервал опроса в тиках
+     * @param retention время хранения строк в секундах
+     */
+    public JdbcInvalidationChannel(FCore plugin, ConnectionManager connectionManager, int pollInterval, int retention) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.connectionManager = connectionManager;
+        this.pollInterval = Math.max(1, pollInterval);
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(Math.max(1, retention));
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        outgoing.add(message);
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationMessage> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void start() {
+        // Сообщения, отправленные до запуска, уже учтены загрузкой данных
+        synchronized (pollLock) {
+            try (Connection connection = connectionManager.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT MAX(id) FROM " + TABLE)) {
+                lastSeenId = resultSet.next() ? resultSet.getLong(1) : 0;
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Не удалось прочитать таблицу " + TABLE + ", сброс кэшей между серверами отключен", e);
+                return;
+            }
+        }
+
+        pollTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::poll, pollInterval, pollInterval);
+    }
+
+    @Override
+    public void close() {
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+
+        // Отправляем изменения, сделанные при отключении
+        synchronized (pollLock) {
+            try (Connection connection = connectionManager.getConnection()) {
+                flushOutgoing(connection);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Не удалось отправить " + outgoing.size() + " сообщений сброса кэша", e);
+            }
+        }
+    }
+
+    /**
+     * Записывает накопленные сообщения и читает новые сообщения других серверов
+     */
+    public void poll() {
+        List<InvalidationMessage> incoming;
+        synchronized (pollLock) {
+            try (Connection connection = connectionManager.getConnection()) {
+                flushOutgoing(connection);
+                incoming = readIncoming(connection);
+                purge(connection);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Ошибка при опросе таблицы " + TABLE, e);
+                return;
+            }
+        }
+
+        for (InvalidationMessage message : incoming) {
+            for (Consumer<InvalidationMessage> listener : listeners) {
+                listener.accept(message);
+            }
+        }
+    }
+
+    /**
+     * Записывает накопленные сообщения пакетами
+     * @param connection соединение
+     * @throws SQLException при ошибке записи
+     */
+    private void flushOutgoing(Connection connection) throws SQLException {
+        if (outgoing.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO " + TABLE + " (origin, cache_name, cache_key, version, created_at) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            List<InvalidationMessage> batch = new ArrayList<>(BATCH_SIZE);
+            InvalidationMessage message;
+            while ((message = outgoing.poll()) != null) {
+                batch.add(message);
+                if (batch.size() == BATCH_SIZE) {
+                    writeBatch(statement, batch);
+                }
+            }
+            writeBatch(statement, batch);
+        }
+    }
+
+    /**
+     * Выполняет пакет вставок; при ошибке возвращает сообщения в очередь
+     * @param statement запрос вставки
+     * @param batch сообщения
+     * @throws SQLException при ошибке записи
+     */
+    private void writeBatch(PreparedStatement statement, List<InvalidationMessage> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try {
+            for (InvalidationMessage message : batch) {
+                statement.setString(1, message.getOrigin());
+                statement.setString(2, message.getCacheName());
+                statement.setString(3, message.getKey());
+                statement.setLong(4, message.getVersion());
+                statement.setLong(5, now);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            statement.clearBatch();
+            outgoing.addAll(batch);
+            throw e;
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Читает строки после последней прочитанной и перепроверяет пропущенные ключи
+     * @param connection соединение
+     * @return новые сообщения в порядке ключей
+     * @throws SQLException при ошибке чтения
+     */
+    private List<InvalidationMessage> readIncoming(Connection connection) throws SQLException {
+        List<InvalidationMessage> messages = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        if (!gaps.isEmpty()) {
+            readGaps(connection, messages, now);
+        }
+
+        String sql = "SELECT id, origin, cache_name, cache_key, version FROM " + TABLE +
+                " WHERE id > ? ORDER BY id LIMIT " + BATCH_SIZE;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int read;
+            do {
+                read = 0;
+                statement.setLong(1, lastSeenId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long id = resultSet.getLong(1);
+                        for (long missing = lastSeenId + 1; missing < id && gaps.size() < MAX_GAPS; missing++) {
+                            gaps.put(missing, now + GAP_TIMEOUT_MILLIS);
+                        }
+                        lastSeenId = id;
+                        messages.add(readMessage(resultSet));
+                        read++;
+                    }
+                }
+            } while (read == BATCH_SIZE);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Читает строки, ключи которых были пропущены, и забывает пропуски с истекшим ожиданием
+     * @param connection соединение
+     * @param messages список для найденных сообщений
+     * @param now текущее время
+     * @throws SQLException при ошибке чтения
+     */
+    private void readGaps(Connection connection, List<InvalidationMessage> messages, long now) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, origin, cache_name, cache_key, version FROM ")
+                .append(TABLE).append(" WHERE id IN (");
+        for (int i = 0; i < gaps.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Long id : gaps.keySet()) {
+                statement.setLong(index++, id);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    gaps.remove(resultSet.getLong(1));
+                    messages.add(readMessage(resultSet));
+                }
+            }
+        }
+
+        Iterator<Long> deadlines = gaps.values().iterator();
+        while (deadlines.hasNext()) {
+            if (deadlines.next() < now) {
+                deadlines.remove();
+            }
+        }
+    }
+
+    private static InvalidationMessage readMessage(ResultSet resultSet) throws SQLException {
+        return new InvalidationMessage(resultSet.getString(2), resultSet.getString(3),
+                resultSet.getString(4), resultSet.getLong(5));
+    }
+
+    /**
+     * Удаляет строки старше времени хранения
+     * @param connection соединение
+     * @throws SQLException при ошибке удаления
+     */
+    private void purge(Connection connection) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge < PURGE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPurge = now;
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM " + TABLE + " WHERE created_at < ?")) {
+            statement.setLong(1, now - retentionMillis);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Получение количества сообщений, ожидающих отправки
+     * @return размер очереди
+     */
+    public int getOutgoingCount() {
+        return outgoing.size();
+    }
+}
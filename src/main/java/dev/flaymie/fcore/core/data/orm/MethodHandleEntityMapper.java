@@ -0,0 +1,447 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Отображение сущности на основе MethodHandle.
+ * Доступ к полям разрешается один раз при создании, примитивные поля
+ * читаются и записываются типизированными методами JDBC без упаковки.
+ * @param <T> тип сущности
+ */
+final class MethodHandleEntityMapper<T> implements EntityMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final MethodHandle constructor;
+    private final ColumnAccessor[] columns;
+    private final ColumnAccessor[] insertColumns;
+    private final ColumnAccessor[] updateColumns;
+    private final ColumnAccessor idColumn;
+
+    /**
+     * Создает отображение для сущности
+     * @param entityClass класс сущности
+     * @param fields все поля сущности
+     * @param idField поле первичного ключа
+     * @param insertFields поля для INSERT в порядке привязки
+     * @param updateFields поля для UPDATE в порядке привязки
+     */
+    MethodHandleEntityMapper(Class<T> entityClass, List<Field> fields, Field idField,
+                             List<Field> insertFields, List<Field> updateFields) {
+        try {
+            Constructor<T> ctor = entityClass.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            this.constructor = LOOKUP.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Entity " + entityClass.getName() + " must have a no-args constructor", e);
+        }
+
+        this.columns = new ColumnAccessor[fields.size()];
+        ColumnAccessor id = null;
+        for (int i = 0; i < fields.size(); i++) {
+            columns[i] = createAccessor(fields.get(i));
+            if (fields.get(i) == idField) {
+                id = columns[i];
+            }
+        }
+        this.idColumn = id;
+        this.insertColumns = select(fields, insertFields);
+        this.updateColumns = select(fields, updateFields);
+    }
+
+    @Override
+    public T map(ResultSet resultSet) throws SQLException {
+        T entity = newInstance();
+        for (ColumnAccessor column : columns) {
+            column.read(resultSet, entity);
+        }
+        return entity;
+    }
+
+    @Override
+    public void bindInsert(PreparedStatement statement, T entity) throws SQLException {
+        for (int i = 0; i < insertColumns.length; i++) {
+            insertColumns[i].bind(statement, i + 1, entity);
+        }
+    }
+
+    @Override
+    public void bindUpdate(PreparedStatement statement, T entity) throws SQLException {
+        for (int i = 0; i < updateColumns.length; i++) {
+            updateColumns[i].bind(statement, i + 1, entity);
+        }
+        idColumn.bind(statement, updateColumns.length + 1, entity);
+    }
+
+    @Override
+    public Object getId(T entity) {
+        return idColumn.get(entity);
+    }
+
+    @Override
+    public void setId(T entity, Object id) {
+        idColumn.set(entity, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() {
+        try {
+            return (T) constructor.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+
+    private ColumnAccessor[] select(List<Field> fields, List<Field> subset) {
+        ColumnAccessor[] result = new ColumnAccessor[subset.size()];
+        for (int i = 0; i < subset.size(); i++) {
+            result[i] = columns[fields.indexOf(subset.get(i))];
+        }
+        return result;
+    }
+
+    /**
+     * Создает типизированный доступ к колонке по типу поля
+     * @param field поле сущности
+     * @return доступ к колонке
+     */
+    private static ColumnAccessor createAccessor(Field field) {
+        field.setAccessible(true);
+        Column column = field.getAnnotation(Column.class);
+        String name = column != null ? column.value() : field.getName();
+
+        MethodHandle getter;
+        MethodHandle setter;
+        try {
+            getter = LOOKUP.unreflectGetter(field);
+            setter = LOOKUP.unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access field " + field, e);
+        }
+
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            return new IntColumn(name, type, getter, setter);
+        } else if (type == long.class) {
+            return new LongColumn(name, type, getter, setter);
+        } else if (type == double.class) {
+            return new DoubleColumn(name, type, getter, setter);
+        } else if (type == float.class) {
+            return new FloatColumn(name, type, getter, setter);
+        } else if (type == boolean.class) {
+            return new BooleanColumn(name, type, getter, setter);
+        } else if (type == String.class) {
+            return new StringColumn(name, type, getter, setter);
+        } else if (type == Date.class) {
+            return new DateColumn(name, type, getter, setter);
+        } else if (type == UUID.class) {
+            return new UuidColumn(name, type, getter, setter);
+        }
+        return new ObjectColumn(name, type, getter, setter);
+    }
+
+    private static RuntimeException propagate(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+    /**
+     * Доступ к одной колонке сущности
+     */
+    private abstract static class ColumnAccessor {
+        protected final String column;
+        protected final Class<?> type;
+        private final MethodHandle boxedGetter;
+        private final MethodHandle boxedSetter;
+
+        ColumnAccessor(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            this.column = column;
+            this.type = type;
+            this.boxedGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
+            this.boxedSetter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+
+        abstract void read(ResultSet resultSet, Object entity) throws SQLException;
+
+        abstract void bind(PreparedStatement statement, int index, Object entity) throws SQLException;
+
+        Object get(Object entity) {
+            try {
+                return (Object) boxedGetter.invokeExact(entity);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        void set(Object entity, Object value) {
+            try {
+                boxedSetter.invokeExact(entity, Database.convertToFieldType(value, type));
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+    }
+
+    private static final class IntColumn extends ColumnAccessor {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        IntColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+            this.getter = getter.asType(MethodType.methodType(int.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            int value = resultSet.getInt(column);
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            int value;
+            try {
+                value = (int) getter.invokeExact(entity);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+            statement.setInt(index, value);
+        }
+    }
+
+    private static final class LongColumn extends ColumnAccessor {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        LongColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+            this.getter = getter.asType(MethodType.methodType(long.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            long value = resultSet.getLong(column);
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            long value;
+            try {
+                value = (long) getter.invokeExact(entity);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+            statement.setLong(index, value);
+        }
+    }
+
+    private static final class DoubleColumn extends ColumnAccessor {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        DoubleColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+            this.getter = getter.asType(MethodType.methodType(double.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            double value = resultSet.getDouble(column);
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            double value;
+            try {
+                value = (double) getter.invokeExact(entity);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+            statement.setDouble(index, value);
+        }
+    }
+
+    private static final class FloatColumn extends ColumnAccessor {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        FloatColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+            this.getter = getter.asType(MethodType.methodType(float.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, float.class));
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            float value = resultSet.getFloat(column);
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            float value;
+            try {
+                value = (float) getter.invokeExact(entity);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+            statement.setFloat(index, value);
+        }
+    }
+
+    private static final class BooleanColumn extends ColumnAccessor {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        BooleanColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+            this.getter = getter.asType(MethodType.methodType(boolean.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            boolean value = resultSet.getBoolean(column);
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            boolean value;
+            try {
+                value = (boolean) getter.invokeExact(entity);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+            statement.setBoolean(index, value);
+        }
+    }
+
+    private static final class StringColumn extends ColumnAccessor {
+        StringColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            set(entity, resultSet.getString(column));
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            String value = (String) get(entity);
+            if (value == null) {
+                statement.setNull(index, Types.VARCHAR);
+            } else {
+                statement.setString(index, value);
+            }
+        }
+    }
+
+    private static final class DateColumn extends ColumnAccessor {
+        DateColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            // Timestamp является наследником Date, поэтому сохраняем его без копирования
+            set(entity, resultSet.getTimestamp(column));
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            Date value = (Date) get(entity);
+            if (value == null) {
+                statement.setNull(index, Types.TIMESTAMP);
+            } else if (value instanceof Timestamp) {
+                statement.setTimestamp(index, (Timestamp) value);
+            } else {
+                statement.setTimestamp(index, new Timestamp(value.getTime()));
+            }
+        }
+    }
+
+    private static final class UuidColumn extends ColumnAccessor {
+        UuidColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            String value = resultSet.getString(column);
+            set(entity, value != null ? UUID.fromString(value) : null);
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            Object value = get(entity);
+            if (value == null) {
+                statement.setNull(index, Types.VARCHAR);
+            } else {
+                statement.setString(index, value.toString());
+            }
+        }
+    }
+
+    /**
+     * Колонка произвольного типа: значения преобразуются через общие правила Database
+     */
+    private static final class ObjectColumn extends ColumnAccessor {
+        ObjectColumn(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            super(column, type, getter, setter);
+        }
+
+        @Override
+        void read(ResultSet resultSet, Object entity) throws SQLException {
+            set(entity, resultSet.getObject(column));
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+            Database.setParameter(statement, index, get(entity));
+        }
+    }
+}
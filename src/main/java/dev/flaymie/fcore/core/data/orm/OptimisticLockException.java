@@ -0,0 +1,23 @@
+package dev.flaymie.fcore.core.data.orm;
+
+/**
+ * Исключение при конфликте версий: объект был изменен в базе данных
+ * другим потоком или сервером после загрузки
+ */
+public class OptimisticLockException extends RuntimeException {
+    
+    private final transient Object entity;
+    
+    public OptimisticLockException(Object entity, Object id, Object version) {
+        super("Entity " + entity.getClass().getName() + " with id " + id + " was modified concurrently (version " + version + ")");
+        this.entity = entity;
+    }
+    
+    /**
+     * Получение объекта, сохранение которого отклонено
+     * @return объект
+     */
+    public Object getEntity() {
+        return entity;
+    }
+} 
\ No newline at end of file
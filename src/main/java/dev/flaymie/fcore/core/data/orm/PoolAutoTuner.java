@@ -0,0 +1,176 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.core.debug.Histogram;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Подстраивает размер пула соединений по времени ожидания соединения.
+ * Пул растет, только если потоки ждут соединение, а сами запросы выполняются как обычно;
+ * если же выросло время использования соединения, проблема в медленных запросах и новые соединения не помогут.
+ */
+public class PoolAutoTuner {
+
+    /**
+     * Состояние пула по последнему окну наблюдения
+     */
+    public enum Diagnosis {
+        HEALTHY,
+        STARVATION,
+        SLOW_QUERIES
+    }
+
+    private static final int SHRINK_AFTER_WINDOWS = 6;
+
+    private final FCore plugin;
+    private final Logger logger;
+    private final HikariDataSource dataSource;
+    private final PoolMetricsTracker tracker;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final double targetWaitMillis;
+    private final AtomicLong resizeCount;
+
+    private BukkitTask task;
+    private long lastAcquireCount;
+    private long lastAcquireNanos;
+    private long lastUsageCount;
+    private long lastUsageNanos;
+    private long lastTimeouts;
+    private double baselineUsageMillis;
+    private int quietWindows;
+    private volatile Diagnosis diagnosis = Diagnosis.HEALTHY;
+    private volatile double lastWaitMillis;
+    private volatile double lastUsageMillis;
+
+    public PoolAutoTuner(FCore plugin, HikariDataSource dataSource, PoolMetricsTracker tracker,
+                         int minPoolSize, int maxPoolSize, double targetWaitMillis, AtomicLong resizeCount) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.dataSource = dataSource;
+        this.tracker = tracker;
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = Math.max(minPoolSize, maxPoolSize);
+        this.targetWaitMillis = targetWaitMillis;
+        this.resizeCount = resizeCount;
+    }
+
+    /**
+     * Запускает периодическую проверку
+     * @param interval период в тиках
+     */
+    public void start(long interval) {
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::tick, interval, interval);
+    }
+
+    /**
+     * Останавливает проверку
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void tick() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null || dataSource.isClosed()) {
+            return;
+        }
+
+        try {
+            Histogram acquire = tracker.getAcquireTime();
+            Histogram usage = tracker.getUsageTime();
+            long acquireCount = acquire.getCount();
+            long acquireNanos = acquire.getTotalNanos();
+            long usageCount = usage.getCount();
+            long usageNanos = usage.getTotalNanos();
+            long timeouts = tracker.getTimeoutCount();
+
+            lastWaitMillis = averageMillis(acquireNanos - lastAcquireNanos, acquireCount - lastAcquireCount);
+            lastUsageMillis = averageMillis(usageNanos - lastUsageNanos, usageCount - lastUsageCount);
+            long newTimeouts = timeouts - lastTimeouts;
+
+            lastAcquireCount = acquireCount;
+            lastAcquireNanos = acquireNanos;
+            lastUsageCount = usageCount;
+            lastUsageNanos = usageNanos;
+            lastTimeouts = timeouts;
+
+            int current = dataSource.getMaximumPoolSize();
+            int pending = pool.getThreadsAwaitingConnection();
+            boolean waiting = newTimeouts > 0 || lastWaitMillis > targetWaitMillis;
+
+            if (!waiting) {
+                diagnosis = Diagnosis.HEALTHY;
+                if (usageCount > 0 && lastUsageMillis > 0) {
+                    baselineUsageMillis = baselineUsageMillis == 0
+                            ? lastUsageMillis
+                            : baselineUsageMillis * 0.8 + lastUsageMillis * 0.2;
+                }
+
+                if (current > minPoolSize && pool.getActiveConnections() <= current / 2) {
+                    if (++quietWindows >= SHRINK_AFTER_WINDOWS) {
+                        resize(current, current - 1, "пул простаивает");
+                        quietWindows = 0;
+                    }
+                } else {
+                    quietWindows = 0;
+                }
+                return;
+            }
+
+            quietWindows = 0;
+            if (baselineUsageMillis > 0 && lastUsageMillis > baselineUsageMillis * 2) {
+                // Соединения заняты дольше обычного: расширение пула только нагрузит базу
+                diagnosis = Diagnosis.SLOW_QUERIES;
+                return;
+            }
+
+            diagnosis = Diagnosis.STARVATION;
+            if (current < maxPoolSize) {
+                int target = Math.min(maxPoolSize, current + Math.max(1, pending / 2));
+                resize(current, target, String.format("ожидание соединения %.1f мс, ждут %d", lastWaitMillis, pending));
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Ошибка при подстройке пула соединений", e);
+        }
+    }
+
+    private void resize(int from, int to, String reason) {
+        dataSource.getHikariConfigMXBean().setMaximumPoolSize(to);
+        resizeCount.incrementAndGet();
+        logger.info("Размер пула соединений изменен: " + from + " -> " + to + " (" + reason + ")");
+    }
+
+    private static double averageMillis(long nanos, long count) {
+        return count <= 0 ? 0 : nanos / 1_000_000.0 / count;
+    }
+
+    public Diagnosis getDiagnosis() {
+        return diagnosis;
+    }
+
+    public double getLastWaitMillis() {
+        return lastWaitMillis;
+    }
+
+    public double getLastUsageMillis() {
+        return lastUsageMillis;
+    }
+
+    public double getBaselineUsageMillis() {
+        return baselineUsageMillis;
+    }
+
+    public long getResizeCount() {
+        return resizeCount.get();
+    }
+}
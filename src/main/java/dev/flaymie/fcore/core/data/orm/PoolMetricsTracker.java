@@ -0,0 +1,80 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import dev.flaymie.fcore.core.debug.Histogram;
+import dev.flaymie.fcore.core.debug.MetricsRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Передает метрики пула HikariCP в реестр метрик FCore под префиксом "db.pool."
+ * (пул читателей SQLite - "db.pool.read.")
+ */
+public class PoolMetricsTracker implements IMetricsTracker {
+
+    static final String PREFIX = "db.pool.";
+    static final String READ_PREFIX = "db.pool.read.";
+
+    private final MetricsRegistry metrics;
+    private final String prefix;
+    private final Histogram acquireTime;
+    private final Histogram usageTime;
+    private final Histogram creationTime;
+    private final AtomicLong timeouts;
+
+    public PoolMetricsTracker(MetricsRegistry metrics, PoolStats poolStats) {
+        this(metrics, PREFIX, poolStats);
+    }
+
+    public PoolMetricsTracker(MetricsRegistry metrics, String prefix, PoolStats poolStats) {
+        this.metrics = metrics;
+        this.prefix = prefix;
+        this.acquireTime = metrics.histogram(prefix + "acquire");
+        this.usageTime = metrics.histogram(prefix + "usage");
+        this.creationTime = metrics.histogram(prefix + "create");
+        this.timeouts = metrics.counter(prefix + "timeouts");
+
+        metrics.gauge(prefix + "active", poolStats::getActiveConnections);
+        metrics.gauge(prefix + "idle", poolStats::getIdleConnections);
+        metrics.gauge(prefix + "pending", poolStats::getPendingThreads);
+        metrics.gauge(prefix + "total", poolStats::getTotalConnections);
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        creationTime.recordMillis(connectionCreatedMillis);
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquireTime.record(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageTime.recordMillis(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        metrics.removeAll(prefix);
+    }
+
+    public Histogram getAcquireTime() {
+        return acquireTime;
+    }
+
+    public Histogram getUsageTime() {
+        return usageTime;
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+}
@@ -0,0 +1,320 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Типизированный запрос к таблице сущности.
+ * Имена колонок проверяются по аннотациям сущности, значения всегда передаются
+ * параметрами. Текст SQL для каждой формы запроса (набор условий, сортировка,
+ * наличие LIMIT/OFFSET) компилируется один раз и переиспользуется, поэтому
+ * кэш подготовленных запросов драйвера получает одинаковый текст.
+ * <p>
+ * Пример: {@code db.query(UserData.class).where("uuid").eq(uuid).first()}
+ * @param <T> тип сущности
+ */
+public class Query<T> {
+
+    private final Database database;
+    private final Class<T> entityClass;
+
+    // Форма запроса: фрагменты SQL с подставленными колонками и знаками "?"
+    private final StringBuilder where = new StringBuilder();
+    private final StringBuilder orderBy = new StringBuilder();
+    private final List<Object> params = new ArrayList<>();
+    private Integer limit;
+    private Integer offset;
+
+    Query(Database database, Class<T> entityClass) {
+        this.database = database;
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * Начинает условие по колонке
+     * @param column имя колонки или поля сущности
+     * @return построитель условия
+     */
+    public Condition where(String column) {
+        return and(column);
+    }
+
+    /**
+     * Добавляет условие через AND
+     * @param column имя колонки или поля сущности
+     * @return построитель условия
+     */
+    public Condition and(String column) {
+        return new Condition(where.length() == 0 ? "" : " AND ", database.resolveColumn(entityClass, column));
+    }
+
+    /**
+     * Добавляет условие через OR
+     * @param column имя колонки или поля сущности
+     * @return построитель условия
+     */
+    public Condition or(String column) {
+        return new Condition(where.length() == 0 ? "" : " OR ", database.resolveColumn(entityClass, column));
+    }
+
+    /**
+     * Сортировка по возрастанию
+     * @param column имя колонки или поля сущности
+     * @return этот запрос
+     */
+    public Query<T> orderBy(String column) {
+        return appendOrder(column, " ASC");
+    }
+
+    /**
+     * Сортировка по убыванию
+     * @param column имя колонки или поля сущности
+     * @return этот запрос
+     */
+    public Query<T> orderByDesc(String column) {
+        return appendOrder(column, " DESC");
+    }
+
+    /**
+     * Ограничивает количество строк
+     * @param limit максимальное количество строк
+     * @return этот запрос
+     */
+    public Query<T> limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Пропускает указанное количество строк (требует limit)
+     * @param offset количество пропускаемых строк
+     * @return этот запрос
+     */
+    public Query<T> offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Выполняет запрос
+     * @return список объектов
+     */
+    public List<T> list() {
+        return database.list(this);
+    }
+
+    /**
+     * Выполняет запрос и возвращает первый объект.
+     * LIMIT 1 добавляется только к этому вызову, сам запрос не меняется
+     * @return объект или null
+     */
+    public T first() {
+        List<T> result = database.list(limit != null ? this : withLimit(1));
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Подсчитывает количество строк, подходящих под условия
+     * @return количество строк или -1 при ошибке
+     */
+    public long count() {
+        return database.count(this);
+    }
+
+    /**
+     * Возвращает ленивый поток объектов, читаемый курсором
+     * @return поток объектов, который необходимо закрыть
+     */
+    public Stream<T> stream() {
+        return database.stream(this);
+    }
+
+    /**
+     * Асинхронно выполняет запрос на пуле потоков БД
+     * @return future со списком объектов
+     */
+    public CompletableFuture<List<T>> listAsync() {
+        return database.async().supply(this::list);
+    }
+
+    /**
+     * Асинхронно возвращает первый объект
+     * @return future с объектом или null
+     */
+    public CompletableFuture<T> firstAsync() {
+        return database.async().supply(this::first);
+    }
+
+    Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Ключ формы запроса для кэша скомпилированного SQL
+     * @param count запрос количества
+     * @return ключ формы
+     */
+    String getShape(boolean count) {
+        if (count) {
+            return "#" + where;
+        }
+        return where + "|" + orderBy + "|" + (limit != null) + "|" + (offset != null);
+    }
+
+    /**
+     * Компилирует текст SQL для формы запроса
+     * @param select начало запроса (SELECT ... FROM ...)
+     * @param count запрос количества
+     * @return текст SQL
+     */
+    String compile(String select, boolean count) {
+        StringBuilder sql = new StringBuilder(select);
+        if (where.length() > 0) {
+            sql.append(" WHERE ").append(where);
+        }
+        if (count) {
+            return sql.toString();
+        }
+        if (orderBy.length() > 0) {
+            sql.append(" ORDER BY ").append(orderBy);
+        }
+        if (limit != null) {
+            sql.append(" LIMIT ?");
+        }
+        if (offset != null) {
+            if (limit == null) {
+                throw new IllegalStateException("offset() requires limit()");
+            }
+            sql.append(" OFFSET ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Параметры запроса в порядке знаков "?"
+     * @param count запрос количества
+     * @return параметры
+     */
+    Object[] getParams(boolean count) {
+        List<Object> result = new ArrayList<>(params);
+        if (!count) {
+            if (limit != null) {
+                result.add(limit);
+            }
+            if (offset != null) {
+                result.add(offset);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Копия запроса с другим ограничением количества строк
+     * @param limit максимальное количество строк
+     * @return новый запрос
+     */
+    private Query<T> withLimit(int limit) {
+        Query<T> copy = new Query<>(database, entityClass);
+        copy.where.append(where);
+        copy.orderBy.append(orderBy);
+        copy.params.addAll(params);
+        copy.limit = limit;
+        copy.offset = offset;
+        return copy;
+    }
+
+    private Query<T> appendOrder(String column, String direction) {
+        if (orderBy.length() > 0) {
+            orderBy.append(", ");
+        }
+        orderBy.append(database.resolveColumn(entityClass, column)).append(direction);
+        return this;
+    }
+
+    /**
+     * Построитель условия по одной колонке
+     */
+    public class Condition {
+        private final String joiner;
+        private final String column;
+
+        private Condition(String joiner, String column) {
+            this.joiner = joiner;
+            this.column = column;
+        }
+
+        public Query<T> eq(Object value) {
+            return compare(" = ?", value);
+        }
+
+        public Query<T> ne(Object value) {
+            return compare(" <> ?", value);
+        }
+
+        public Query<T> gt(Object value) {
+            return compare(" > ?", value);
+        }
+
+        public Query<T> ge(Object value) {
+            return compare(" >= ?", value);
+        }
+
+        public Query<T> lt(Object value) {
+            return compare(" < ?", value);
+        }
+
+        public Query<T> le(Object value) {
+            return compare(" <= ?", value);
+        }
+
+        public Query<T> like(String pattern) {
+            return compare(" LIKE ?", pattern);
+        }
+
+        public Query<T> isNull() {
+            return append(column + " IS NULL");
+        }
+
+        public Query<T> isNotNull() {
+            return append(column + " IS NOT NULL");
+        }
+
+        /**
+         * Условие IN; количество значений входит в форму запроса
+         * @param values значения
+         * @return запрос
+         */
+        public Query<T> in(Collection<?> values) {
+            if (values.isEmpty()) {
+                return append("1 = 0");
+            }
+
+            StringBuilder placeholders = new StringBuilder(column).append(" IN (");
+            for (int i = 0; i < values.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+            params.addAll(values);
+            return append(placeholders.append(')').toString());
+        }
+
+        public Query<T> in(Object... values) {
+            List<Object> list = new ArrayList<>(values.length);
+            Collections.addAll(list, values);
+            return in(list);
+        }
+
+        private Query<T> compare(String operator, Object value) {
+            params.add(value);
+            return append(column + operator);
+        }
+
+        private Query<T> append(String condition) {
+            where.append(joiner).append(condition);
+            return Query.this;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import dev.flaymie.fcore.core.debug.Histogram;
+import dev.flaymie.fcore.core.debug.MetricsRegistry;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Замеряет время выполнения запросов ORM, собирает статистику по видам запросов
+ * и пишет в лог запросы дольше порога вместе с типами параметров и местом вызова
+ */
+public class StatementProfiler {
+
+    private static final int MAX_SHAPES = 500;
+    private static final String OTHER_SHAPE = "<прочие запросы>";
+    private static final Pattern PARAM_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    private final Logger logger;
+    private final boolean enabled;
+    private final boolean logAll;
+    private final long slowThresholdNanos;
+    private final Map<String, StatementStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statsBySql = new ConcurrentHashMap<>();
+    private final Histogram totalTime;
+    private final AtomicLong slowCount;
+
+    /**
+     * @param logger логгер для медленных запросов
+     * @param metrics реестр метрик или null
+     * @param enabled включен ли замер
+     * @param logAll писать ли в лог каждый запрос (general.show-sql)
+     * @param slowThresholdMillis порог медленного запроса в миллисекундах
+     */
+    public StatementProfiler(Logger logger, MetricsRegistry metrics, boolean enabled, boolean logAll,
+                             long slowThresholdMillis) {
+        this.logger = logger;
+        this.enabled = enabled;
+        this.logAll = logAll;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        MetricsRegistry registry = metrics != null ? metrics : new MetricsRegistry();
+        this.totalTime = registry.histogram("db.statements");
+        this.slowCount = registry.counter("db.statements.slow");
+    }
+
+    /**
+     * Отметка времени начала запроса
+     * @return значение для {@link #record}
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Записывает выполненный запрос с явными параметрами
+     * @param sql текст запроса
+     * @param start отметка {@link #start()}
+     * @param rows число прочитанных или измененных строк, -1 если неизвестно
+     * @param params параметры запроса
+     */
+    public void record(String sql, long start, long rows, Object[] params) {
+        record(sql, start, rows, (Object) params);
+    }
+
+    /**
+     * Записывает запрос сущности, параметры которого привязаны из полей
+     * @param sql текст запроса
+     * @param start отметка {@link #start()}
+     * @param rows число прочитанных или измененных строк, -1 если неизвестно
+     * @param boundFields поля, значения которых привязаны к параметрам
+     */
+    public void record(String sql, long start, long rows, List<Field> boundFields) {
+        record(sql, start, rows, (Object) boundFields);
+    }
+
+    private void record(String sql, long start, long rows, Object params) {
+        if (!enabled || sql == null) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        boolean slow = elapsed >= slowThresholdNanos;
+
+        statsFor(sql).record(elapsed, rows, slow);
+        totalTime.record(elapsed);
+
+        if (slow) {
+            slowCount.incrementAndGet();
+            logger.warning(String.format("Медленный запрос (%.1f мс, строк: %d): %s; параметры: %s; вызов: %s",
+                    elapsed / 1_000_000.0, rows, sql, describeParams(params), findCaller()));
+        } else if (logAll) {
+            logger.info(String.format("SQL (%.2f мс, строк: %d): %s", elapsed / 1_000_000.0, rows, sql));
+        }
+    }
+
+    private StatementStats statsFor(String sql) {
+        StatementStats known = statsBySql.get(sql);
+        if (known != null) {
+            return known;
+        }
+
+        String shape = PARAM_LIST.matcher(sql).replaceAll("?, ...");
+        StatementStats shapeStats = stats.get(shape);
+        if (shapeStats == null) {
+            // Запросы с подставленными значениями не должны раздувать статистику бесконечно
+            String key = stats.size() < MAX_SHAPES ? shape : OTHER_SHAPE;
+            shapeStats = stats.computeIfAbsent(key, StatementStats::new);
+        }
+        if (statsBySql.size() < MAX_SHAPES * 4) {
+            statsBySql.put(sql, shapeStats);
+        }
+        return shapeStats;
+    }
+
+    /**
+     * Описывает типы параметров запроса без их значений
+     * @param params массив значений или список привязанных полей
+     * @return строка вида "[Integer, String, null]"
+     */
+    @SuppressWarnings("unchecked")
+    private static String describeParams(Object params) {
+        List<String> types = new ArrayList<>();
+        if (params instanceof Object[]) {
+            for (Object param : (Object[]) params) {
+                types.add(param == null ? "null" : param.getClass().getSimpleName());
+            }
+        } else if (params instanceof List) {
+            for (Field field : (List<Field>) params) {
+                types.add(field.getType().getSimpleName());
+            }
+        }
+        return types.toString();
+    }
+
+    /**
+     * Находит первый вызов за пределами ORM и кэшей FCore
+     * @return класс, метод и строка вызова
+     */
+    private static String findCaller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.startsWith("dev.flaymie.fcore.core.data.orm.")
+                    && !className.startsWith("dev.flaymie.fcore.core.data.cache.")
+                    && !className.startsWith("java.") && !className.startsWith("sun.")) {
+                return element.getClassName() + "." + element.getMethodName() + ":" + element.getLineNumber();
+            }
+        }
+        return "неизвестно";
+    }
+
+    /**
+     * Статистика по видам запросов, отсортированная по суммарному времени
+     * @return список статистики
+     */
+    public List<StatementStats> getStats() {
+        List<StatementStats> result = new ArrayList<>(stats.values());
+        result.sort(Comparator.comparingDouble(StatementStats::getTotalMillis).reversed());
+        return result;
+    }
+
+    /**
+     * Сбрасывает накопленную статистику
+     */
+    public void reset() {
+        stats.clear();
+        statsBySql.clear();
+        totalTime.reset();
+        slowCount.set(0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    public long getStatementCount() {
+        return totalTime.getCount();
+    }
+
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+}
@@ -0,0 +1,67 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import dev.flaymie.fcore.core.debug.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Накопленная статистика одного вида SQL-запроса.
+ * Запросы, отличающиеся только числом параметров в IN (...), считаются одним видом
+ */
+public final class StatementStats {
+
+    private final String sql;
+    private final Histogram time = new Histogram();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong slowCount = new AtomicLong();
+
+    StatementStats(String sql) {
+        this.sql = sql;
+    }
+
+    void record(long nanos, long rowCount, boolean slow) {
+        time.record(nanos);
+        if (rowCount > 0) {
+            rows.addAndGet(rowCount);
+        }
+        if (slow) {
+            slowCount.incrementAndGet();
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return time.getCount();
+    }
+
+    public double getTotalMillis() {
+        return time.getTotalNanos() / 1_000_000.0;
+    }
+
+    public double getAverageMillis() {
+        return time.getAverageMillis();
+    }
+
+    public double getP50Millis() {
+        return time.getPercentileMillis(0.5);
+    }
+
+    public double getP99Millis() {
+        return time.getPercentileMillis(0.99);
+    }
+
+    public double getMaxMillis() {
+        return time.getMaxMillis();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+}
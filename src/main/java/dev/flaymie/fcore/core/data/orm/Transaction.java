@@ -0,0 +1,165 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Единица работы с базой данных.
+ * Пока выполняется {@link Database#inTransaction(Work)}, все операции {@link Database}
+ * в этом потоке используют одно соединение без автофиксации. Изменения фиксируются
+ * одним COMMIT (в SQLite - одной синхронизацией файла) либо откатываются целиком;
+ * при откате отменяются и изменения в памяти: записи кэша, сгенерированные ID и версии
+ */
+public class Transaction {
+
+    private final Connection connection;
+    private final Connection boundConnection;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final List<Runnable> afterRollback = new ArrayList<>();
+    private int savepointCounter;
+    private boolean rollbackOnly;
+
+    Transaction(Connection connection) {
+        this.connection = connection;
+
+        // Операции Database закрывают соединение после себя,
+        // поэтому внутри транзакции закрытие игнорируется
+        this.boundConnection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Работа, выполняемая в транзакции
+     */
+    @FunctionalInterface
+    public interface Work {
+        /**
+         * Выполняет операции с базой данных
+         * @param tx текущая транзакция
+         * @throws Exception любое исключение откатывает транзакцию
+         */
+        void execute(Transaction tx) throws Exception;
+    }
+
+    /**
+     * Получение соединения транзакции для собственных JDBC запросов.
+     * Закрывать соединение не нужно
+     * @return соединение
+     */
+    public Connection getConnection() {
+        return boundConnection;
+    }
+
+    /**
+     * Создает точку сохранения
+     * @return точка сохранения
+     * @throws SQLException при ошибке создания
+     */
+    public Savepoint savepoint() throws SQLException {
+        return connection.setSavepoint("fcore_sp_" + (++savepointCounter));
+    }
+
+    /**
+     * Откатывает изменения до точки сохранения
+     * @param savepoint точка сохранения
+     * @throws SQLException при ошибке отката
+     */
+    public void rollbackTo(Savepoint savepoint) throws SQLException {
+        connection.rollback(savepoint);
+    }
+
+    /**
+     * Освобождает точку сохранения
+     * @param savepoint точка сохранения
+     * @throws SQLException при ошибке освобождения
+     */
+    public void release(Savepoint savepoint) throws SQLException {
+        connection.releaseSavepoint(savepoint);
+    }
+
+    /**
+     * Помечает транзакцию для отката; изменения не будут зафиксированы
+     */
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    /**
+     * Проверка, помечена ли транзакция для отката
+     * @return true, если транзакция будет откачена
+     */
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * Регистрирует действие, выполняемое после успешной фиксации
+     * @param action действие
+     */
+    public void afterCommit(Runnable action) {
+        afterCommit.add(action);
+    }
+
+    /**
+     * Регистрирует действие, выполняемое после отката
+     * @param action действие
+     */
+    public void afterRollback(Runnable action) {
+        afterRollback.add(action);
+    }
+
+    void setRollbackOnly(boolean rollbackOnly) {
+        this.rollbackOnly = rollbackOnly;
+    }
+
+    int getAfterCommitCount() {
+        return afterCommit.size();
+    }
+
+    int getAfterRollbackCount() {
+        return afterRollback.size();
+    }
+
+    /**
+     * Отбрасывает действия, зарегистрированные после указанной позиции
+     * (при откате к точке сохранения), выполняя действия отката
+     * @param commitMark количество действий фиксации до точки сохранения
+     * @param rollbackMark количество действий отката до точки сохранения
+     */
+    void discardSince(int commitMark, int rollbackMark) {
+        afterCommit.subList(commitMark, afterCommit.size()).clear();
+        List<Runnable> undo = afterRollback.subList(rollbackMark, afterRollback.size());
+        for (int i = undo.size() - 1; i >= 0; i--) {
+            undo.get(i).run();
+        }
+        undo.clear();
+    }
+
+    void runAfterCommit() {
+        for (Runnable action : afterCommit) {
+            action.run();
+        }
+    }
+
+    void runAfterRollback() {
+        for (int i = afterRollback.size() - 1; i >= 0; i--) {
+            afterRollback.get(i).run();
+        }
+    }
+}
@@ -13,10 +13,10 @@ public class UserData {
     @Column("id")
     private int id;
     
-    @Column("uuid")
+    @Column(value = "uuid", unique = true)
     private String uuid;
     
-    @Column("username")
+    @Column(value = "username", indexed = true)
     private String username;
     
     @Column("last_login")
@@ -0,0 +1,17 @@
+package dev.flaymie.fcore.core.data.orm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Аннотация для колонки версии (оптимистичная блокировка).
+ * Используется вместе с {@link Column} на поле типа int или long.
+ * Каждое обновление проверяет, что версия в базе совпадает с версией объекта,
+ * и увеличивает ее; при несовпадении сохранение отклоняется
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Version {
+} 
\ No newline at end of file
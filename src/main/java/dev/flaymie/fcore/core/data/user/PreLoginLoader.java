@@ -0,0 +1,20 @@
+package dev.flaymie.fcore.core.data.user;
+
+import java.util.UUID;
+
+/**
+ * Загрузка данных игрока во время {@code AsyncPlayerPreLoginEvent}.
+ * Загрузчик выполняется вне основного потока и должен сам поместить результат
+ * в кэш, из которого его прочитают обработчики {@code PlayerJoinEvent}
+ */
+@FunctionalInterface
+public interface PreLoginLoader {
+
+    /**
+     * Загружает данные игрока
+     * @param uuid UUID игрока
+     * @param name имя игрока
+     * @throws Exception при ошибке загрузки
+     */
+    void preload(UUID uuid, String name) throws Exception;
+}
@@ -0,0 +1,316 @@
+package dev.flaymie.fcore.core.data.user;
+
+import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.core.data.orm.Database;
+import dev.flaymie.fcore.core.data.orm.UserData;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Предзагрузка данных игрока во время {@link AsyncPlayerPreLoginEvent}.
+ * Данные пользователя, хранилище прав и данные зарегистрированных загрузчиков
+ * загружаются параллельно на пуле потоков БД; поток входа ждет их не дольше заданного времени.
+ * Данные пользователя удерживаются в памяти до завершения {@link PlayerJoinEvent},
+ * поэтому обработчики входа получают их без запроса к базе данных.
+ * Если загрузка не успела, вход не блокируется: данные загрузятся при первом обращении
+ * <pre>
+ * userManager.getPreLoginPipeline().register("stats", (uuid, name) -&gt; stats.get(uuid, statsLoader));
+ * </pre>
+ */
+public class PreLoginPipeline implements Listener {
+
+    // Время удержания данных игрока, который не дошел до входа на сервер
+    private static final long PIN_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final FCore plugin;
+    private final Logger logger;
+    private final UserManager userManager;
+    private final Database database;
+    private final long timeoutMillis;
+
+    // Загрузчики плагинов по имени
+    private final Map<String, PreLoginLoader> loaders = new ConcurrentHashMap<>();
+
+    // Текущая предзагрузка по UUID; удаляется при освобождении, и опоздавший этап уже не удерживает данные
+    private final Map<UUID, Pin> pins = new ConcurrentHashMap<>();
+
+    // Проверка предзагрузки и удержание данных выполняются атомарно относительно освобождения
+    private final Object pinLock = new Object();
+
+    // Метрики
+    private final AtomicLong preloads = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong joinHits = new AtomicLong();
+    private final AtomicLong joinMisses = new AtomicLong();
+    private final AtomicLong totalPreloadNanos = new AtomicLong();
+
+    /**
+     * Создает предзагрузку
+     * @param plugin экземпляр ядра
+     * @param userManager менеджер пользователей
+     * @param database база данных
+     * @param timeoutMillis максимальное время ожидания в миллисекундах
+     */
+    public PreLoginPipeline(FCore plugin, UserManager userManager, Database database, long timeoutMillis) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.userManager = userManager;
+        this.database = database;
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+    }
+
+    /**
+     * Подписывается на события входа и выхода игроков
+     */
+    public void start() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /**
+     * Отписывается от событий и освобождает удерживаемые данные
+     */
+    public void stop() {
+        HandlerList.unregisterAll(this);
+
+        for (UUID uuid : pins.keySet()) {
+            release(uuid);
+        }
+    }
+
+    /**
+     * Регистрирует загрузчик данных плагина
+     * @param name имя загрузчика (используется в логах)
+     * @param loader загрузчик
+     */
+    public void register(String name, PreLoginLoader loader) {
+        loaders.put(name, loader);
+    }
+
+    /**
+     * Удаляет загрузчик данных плагина
+     * @param name имя загрузчика
+     */
+    public void unregister(String name) {
+        loaders.remove(name);
+    }
+
+    // Выполняется после плагинов банов и белого списка, чтобы не загружать данные отклоненных игроков
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            preload(event.getUniqueId(), event.getName());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLoginResult(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            release(event.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            release(event.getPlayer().getUniqueId());
+        }
+    }
+
+    // Обработчики входа уже получили данные, дальше пользователь живет в обычном кэше
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        if (release(event.getPlayer().getUniqueId())) {
+            joinHits.incrementAndGet();
+        } else {
+            joinMisses.incrementAndGet();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        release(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Загружает данные игрока и ждет завершения загрузки не дольше заданного времени.
+     * Вызывается из асинхронного потока входа
+     * @param uuid UUID игрока
+     * @param name имя игрока
+     * @return true, если все этапы завершились успешно и вовремя
+     */
+    public boolean preload(UUID uuid, String name) {
+        long start = System.nanoTime();
+        preloads.incrementAndGet();
+        releaseExpired();
+
+        Pin pin = new Pin(System.currentTimeMillis() + timeoutMillis + PIN_TIMEOUT_MILLIS);
+        pins.put(uuid, pin);
+
+        List<CompletableFuture<Void>> stages = new ArrayList<>(loaders.size() + 2);
+        stages.add(stage("user", uuid, name, (id, playerName) -> {
+            UserData userData = userManager.getOrCreateUser(id, playerName);
+            synchronized (pinLock) {
+                // Вход уже отклонен или завершен, и удерживать данные некому
+                if (pins.get(id) == pin) {
+                    userManager.pin(id, userData);
+                }
+            }
+        }));
+        stages.add(stage("permissions", uuid, name, plugin.getPermissionManager()::loadUser));
+        for (Map.Entry<String, PreLoginLoader> loader : loaders.entrySet()) {
+            stages.add(stage(loader.getKey(), uuid, name, loader.getValue()));
+        }
+
+        try {
+            CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // Опоздавшие этапы завершатся в фоне и все равно заполнят кэши
+            timeouts.incrementAndGet();
+            logger.warning("Предзагрузка данных игрока " + name + " не завершилась за " + timeoutMillis + " мс");
+            return false;
+        } catch (ExecutionException e) {
+            // Ошибка уже записана в лог этапом
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            totalPreloadNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Запускает этап загрузки на пуле потоков БД
+     * @param stageName имя этапа
+     * @param uuid UUID игрока
+     * @param name имя игрока
+     * @param loader загрузчик
+     * @return future этапа
+     */
+    private CompletableFuture<Void> stage(String stageName, UUID uuid, String name, PreLoginLoader loader) {
+        return database.async().supply(() -> {
+            try {
+                loader.preload(uuid, name);
+                return null;
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                logger.log(Level.WARNING, "Ошибка этапа предзагрузки " + stageName + " для игрока " + name, e);
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Освобождает удерживаемые данные игрока
+     * @param uuid UUID игрока
+     * @return true, если данные удерживались
+     */
+    private boolean release(UUID uuid) {
+        synchronized (pinLock) {
+            pins.remove(uuid);
+            return userManager.unpin(uuid);
+        }
+    }
+
+    /**
+     * Освобождает данные игроков, которые так и не вошли на сервер
+     */
+    private void releaseExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (pinLock) {
+            Iterator<Map.Entry<UUID, Pin>> iterator = pins.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<UUID, Pin> entry = iterator.next();
+                if (entry.getValue().deadline < now) {
+                    iterator.remove();
+                    userManager.unpin(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Получение количества предзагрузок
+     * @return количество предзагрузок
+     */
+    public long getPreloadCount() {
+        return preloads.get();
+    }
+
+    /**
+     * Получение количества предзагрузок, не завершившихся вовремя
+     * @return количество превышений времени
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * Получение количества этапов, завершившихся ошибкой
+     * @return количество ошибок
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Получение количества входов, для которых данные были загружены заранее
+     * @return количество попаданий
+     */
+    public long getJoinHitCount() {
+        return joinHits.get();
+    }
+
+    /**
+     * Получение количества входов без заранее загруженных данных
+     * @return количество промахов
+     */
+    public long getJoinMissCount() {
+        return joinMisses.get();
+    }
+
+    /**
+     * Получение среднего времени предзагрузки
+     * @return время в миллисекундах
+     */
+    public double getAveragePreloadMillis() {
+        long count = preloads.get();
+        return count == 0 ? 0.0 : totalPreloadNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Предзагрузка одного входа игрока
+     */
+    private static final class Pin {
+        // Время, после которого данные освобождаются, даже если игрок не вошел
+        private final long deadline;
+
+        Pin(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
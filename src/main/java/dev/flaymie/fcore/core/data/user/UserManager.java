@@ -2,13 +2,21 @@ package dev.flaymie.fcore.core.data.user;
 
 import dev.flaymie.fcore.FCore;
 import dev.flaymie.fcore.api.service.FCoreService;
-import dev.flaymie.fcore.core.data.cache.CacheManager;
+import dev.flaymie.fcore.core.data.cache.CacheLoadException;
+import dev.flaymie.fcore.core.data.cache.NamedCache;
+import dev.flaymie.fcore.core.data.cache.RemovalCause;
 import dev.flaymie.fcore.core.data.orm.Database;
+import dev.flaymie.fcore.core.data.orm.DatabaseConfig;
 import dev.flaymie.fcore.core.data.orm.UserData;
 import org.bukkit.entity.Player;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -16,28 +24,71 @@ import java.util.logging.Logger;
  */
 public class UserManager implements FCoreService {
     
+    // Время, на которое запоминается отсутствие пользователя в базе данных
+    private static final long NEGATIVE_TTL = 30;
+    
     private final FCore plugin;
     private final Logger logger;
     private final Database database;
-    private final CacheManager cacheManager;
+    private final NamedCache<UUID, UserData> users;
+    private UserWriteBehindQueue writeQueue;
+    private PreLoginPipeline preLoginPipeline;
+    
+    // Данные, загруженные до входа игрока; удерживаются до завершения PlayerJoinEvent
+    private final Map<UUID, UserData> preloaded = new ConcurrentHashMap<>();
+    
+    // UUID пользователей в памяти по первичному ключу, для сообщений об изменениях с других серверов
+    private final Map<Integer, UUID> uuidsById = new ConcurrentHashMap<>();
     
     public UserManager(FCore plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.database = plugin.getDataManager().getDatabase();
-        this.cacheManager = plugin.getDataManager().getCacheManager();
+        // Вытесненные из памяти пользователи сохраняются во втором уровне кэша (если он включен);
+        // восстановленная копия заменяется объектом, который уже есть в памяти
+        this.users = plugin.getDataManager().getCacheManager().builder("users", UUID.class, UserData.class)
+                .negativeTtl(NEGATIVE_TTL)
+                .secondTier(database.serializer(UserData.class).onRead(this::resolveRestored))
+                .removalListener(this::onUserRemoved)
+                .build();
     }
     
     @Override
     public void onEnable() {
         logger.info("Инициализация менеджера пользователей...");
+        
+        // Запускаем отложенную запись, если она включена
+        DatabaseConfig config = plugin.getDataManager().getConnectionManager().getConfig();
+        if (config.isWriteBehindEnabled()) {
+            writeQueue = new UserWriteBehindQueue(plugin, database,
+                    config.getWriteBehindFlushInterval(), config.getWriteBehindBatchSize());
+            writeQueue.start();
+        }
+        
+        // Изменения других серверов сбрасывают и копию в кэше пользователей
+        database.onRemoteChange(UserData.class, this::onRemoteChange);
+        
+        // Загружаем данные игроков во время AsyncPlayerPreLoginEvent
+        if (plugin.getConfig().getBoolean("performance.pre-login.enabled", true)) {
+            preLoginPipeline = new PreLoginPipeline(plugin, this, database,
+                    plugin.getConfig().getLong("performance.pre-login.timeout", 3000));
+            preLoginPipeline.start();
+        }
     }
     
     @Override
     public void onDisable() {
         logger.info("Отключение менеджера пользователей...");
         
-        // Сохраняем все данные при отключении
+        if (preLoginPipeline != null) {
+            preLoginPipeline.stop();
+        }
+        
+        // Сначала записываем очередь, затем все данные из кэша: плагины могли изменить
+        // UserData напрямую, не вызывая saveUser
+        if (writeQueue != null) {
+            writeQueue.stop();
+        }
         saveAll();
     }
     
@@ -52,24 +103,109 @@ public class UserManager implements FCoreService {
      * @return данные пользователя или null
      */
     public UserData loadUser(UUID uuid) {
-        // Проверяем кэш
-        UserData userData = (UserData) cacheManager.get("users", uuid.toString());
+        UserData userData = preloaded.get(uuid);
         if (userData != null) {
             return userData;
         }
         
-        // Загружаем из базы данных
-        userData = database.findAll(UserData.class, "uuid = ?", uuid.toString())
-                .stream()
-                .findFirst()
-                .orElse(null);
+        try {
+            // Одновременные запросы одного игрока выполняют одну загрузку
+            return users.get(uuid, this::loadFromStorage);
+        } catch (CacheLoadException e) {
+            logger.log(Level.SEVERE, "Ошибка при загрузке пользователя " + uuid, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Выбирает актуальный объект для пользователя, восстановленного со второго уровня кэша
+     * @param restored восстановленная копия
+     * @return объект, ожидающий записи, объект из кэша сущностей или сама копия
+     */
+    private UserData resolveRestored(UserData restored) {
+        UserData pending = writeQueue != null ? writeQueue.getPending(restored.getUuidAsUUID()) : null;
+        return track(pending != null ? pending : database.attach(restored));
+    }
+    
+    /**
+     * Запоминает UUID пользователя по первичному ключу
+     * @param userData данные пользователя или null
+     * @return те же данные
+     */
+    private UserData track(UserData userData) {
+        if (userData != null && userData.getId() != 0) {
+            uuidsById.put(userData.getId(), userData.getUuidAsUUID());
+        }
+        return userData;
+    }
+    
+    /**
+     * Помещает данные пользователя в кэш
+     * @param uuid UUID игрока
+     * @param userData данные пользователя
+     */
+    private void cacheUser(UUID uuid, UserData userData) {
+        track(userData);
+        users.put(uuid, userData);
+    }
+    
+    /**
+     * Забывает первичный ключ пользователя, удаленного из кэша. При замене значения ключ не меняется,
+     * а вытесненный по размеру пользователь остается на втором уровне, и сообщение другого сервера
+     * должно найти его UUID, чтобы сбросить устаревшую копию
+     * @param uuid UUID игрока
+     * @param userData удаленные данные
+     * @param cause причина удаления
+     */
+    private void onUserRemoved(UUID uuid, UserData userData, RemovalCause cause) {
+        if (cause == RemovalCause.REPLACED || (cause == RemovalCause.SIZE && users.hasSecondTier())) {
+            return;
+        }
+        if (!preloaded.containsKey(uuid)) {
+            uuidsById.remove(userData.getId(), uuid);
+        }
+    }
+    
+    /**
+     * Удаляет из кэша пользователя, измененного другим сервером
+     * @param id первичный ключ
+     * @param stale устаревший объект из кэша сущностей или null
+     */
+    private void onRemoteChange(Object id, UserData stale) {
+        UUID uuid = stale != null ? stale.getUuidAsUUID() : uuidsById.get(((Number) id).intValue());
+        if (uuid == null) {
+            return;
+        }
         
+        // Удаление сбрасывает и копию на втором уровне кэша
+        UserData removed = users.remove(uuid);
+        if (preloaded.remove(uuid) == null && removed == null) {
+            uuidsById.remove(((Number) id).intValue(), uuid);
+        }
+        if (removed != null && database.isRefreshOnInvalidation()) {
+            // Загрузка объединяется с перезагрузкой в кэше сущностей
+            database.async().find(UserData.class, id).thenAccept(fresh -> {
+                if (fresh != null) {
+                    cacheUser(uuid, fresh);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Загружает данные пользователя в обход кэша
+     * @param uuid UUID игрока
+     * @return данные пользователя или null
+     */
+    private UserData loadFromStorage(UUID uuid) {
+        // Вытесненные из кэша данные могут еще ожидать записи
+        UserData userData = writeQueue != null ? writeQueue.getPending(uuid) : null;
         if (userData != null) {
-            // Добавляем в кэш
-            cacheManager.put("users", uuid.toString(), userData);
+            return track(userData);
         }
         
-        return userData;
+        // Загружаем из базы данных
+        return track(database.findBy(UserData.class, "uuid", uuid.toString()));
     }
     
     /**
@@ -78,10 +214,7 @@ public class UserManager implements FCoreService {
      * @return данные пользователя или null
      */
     public UserData loadUserByName(String username) {
-        return database.findAll(UserData.class, "username = ?", username)
-                .stream()
-                .findFirst()
-                .orElse(null);
+        return database.findBy(UserData.class, "username", username);
     }
     
     /**
@@ -90,39 +223,82 @@ public class UserManager implements FCoreService {
      * @return данные пользователя
      */
     public UserData getOrCreateUser(Player player) {
-        UUID uuid = player.getUniqueId();
-        UserData userData = loadUser(uuid);
+        return getOrCreateUser(player.getUniqueId(), player.getName());
+    }
+    
+    /**
+     * Загружает или создает данные пользователя
+     * @param uuid UUID игрока
+     * @param username имя игрока
+     * @return данные пользователя
+     */
+    public UserData getOrCreateUser(UUID uuid, String username) {
+        // Вход уже отмечен при предзагрузке
+        UserData userData = preloaded.get(uuid);
+        if (userData != null) {
+            return userData;
+        }
+        
+        userData = loadUser(uuid);
         
         if (userData == null) {
             // Создаем нового пользователя
-            userData = new UserData(uuid, player.getName());
+            userData = new UserData(uuid, username);
             database.save(userData);
             
             // Добавляем в кэш
-            cacheManager.put("users", uuid.toString(), userData);
+            cacheUser(uuid, userData);
             
-            logger.info("Создан новый пользователь: " + player.getName());
+            logger.info("Создан новый пользователь: " + username);
         } else {
             // Обновляем последний вход и имя (на случай если оно изменилось)
             userData.setLastLogin(new Date());
-            userData.setUsername(player.getName());
-            database.save(userData);
+            userData.setUsername(username);
+            saveUser(userData);
         }
         
         return userData;
     }
     
     /**
-     * Сохраняет данные пользователя
+     * Асинхронно загружает или создает данные пользователя на пуле потоков БД,
+     * не блокируя основной поток
+     * @param player игрок
+     * @return future с данными пользователя
+     */
+    public CompletableFuture<UserData> getOrCreateUserAsync(Player player) {
+        UUID uuid = player.getUniqueId();
+        String username = player.getName();
+        return database.async().supply(() -> getOrCreateUser(uuid, username));
+    }
+    
+    /**
+     * Асинхронно загружает данные пользователя по UUID
+     * @param uuid UUID игрока
+     * @return future с данными пользователя или null
+     */
+    public CompletableFuture<UserData> loadUserAsync(UUID uuid) {
+        return users.getAsync(uuid, key -> database.async().supply(() -> loadFromStorage(key)));
+    }
+    
+    /**
+     * Сохраняет данные пользователя. При включенной отложенной записи
+     * данные помечаются для записи и сохраняются при ближайшем сбросе очереди
      * @param userData данные пользователя
-     * @return true, если сохранение успешно
+     * @return true, если сохранение успешно (или данные поставлены в очередь)
      */
     public boolean saveUser(UserData userData) {
+        if (writeQueue != null && userData.getId() != 0) {
+            cacheUser(userData.getUuidAsUUID(), userData);
+            writeQueue.markDirty(userData);
+            return true;
+        }
+        
         boolean success = database.save(userData);
         
         if (success) {
             // Обновляем кэш
-            cacheManager.put("users", userData.getUuid(), userData);
+            cacheUser(userData.getUuidAsUUID(), userData);
         }
         
         return success;
@@ -137,11 +313,17 @@ public class UserManager implements FCoreService {
         UserData userData = loadUser(uuid);
         
         if (userData != null) {
+            // Отменяем ожидающую запись, чтобы не обновлять удаленную строку
+            if (writeQueue != null) {
+                writeQueue.discard(uuid);
+            }
+            preloaded.remove(uuid);
+            
             boolean success = database.delete(userData);
             
             if (success) {
                 // Удаляем из кэша
-                cacheManager.remove("users", uuid.toString());
+                users.remove(uuid);
             }
             
             return success;
@@ -150,11 +332,58 @@ public class UserManager implements FCoreService {
         return false;
     }
     
+    /**
+     * Удерживает данные пользователя до входа игрока, чтобы их не вытеснил кэш
+     * @param uuid UUID игрока
+     * @param userData данные пользователя
+     */
+    void pin(UUID uuid, UserData userData) {
+        if (userData != null) {
+            preloaded.put(uuid, track(userData));
+        }
+    }
+    
+    /**
+     * Освобождает удерживаемые данные; дальше пользователь хранится в обычном кэше
+     * @param uuid UUID игрока
+     * @return true, если данные удерживались
+     */
+    boolean unpin(UUID uuid) {
+        UserData userData = preloaded.remove(uuid);
+        if (userData == null) {
+            return false;
+        }
+        
+        cacheUser(uuid, userData);
+        return true;
+    }
+    
+    /**
+     * Получение предзагрузки данных при входе
+     * @return предзагрузка или null, если она выключена
+     */
+    public PreLoginPipeline getPreLoginPipeline() {
+        return preLoginPipeline;
+    }
+    
+    /**
+     * Получение очереди отложенной записи
+     * @return очередь или null, если отложенная запись выключена
+     */
+    public UserWriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
+    
     /**
      * Сохраняет все данные пользователей из кэша
      */
     public void saveAll() {
-        // В будущем здесь может быть более эффективная реализация для массового сохранения
-        logger.info("Сохранение всех данных пользователей...");
+        List<UserData> cached = users.values();
+        logger.info("Сохранение всех данных пользователей (" + cached.size() + ")...");
+        
+        // Все пользователи сохраняются пакетно в одной транзакции
+        if (!database.saveAll(cached)) {
+            logger.warning("Не удалось сохранить данные пользователей");
+        }
     }
 } 
\ No newline at end of file
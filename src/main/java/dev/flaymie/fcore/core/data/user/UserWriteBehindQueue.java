@@ -0,0 +1,387 @@
+package dev.flaymie.fcore.core.data.user;
+
+import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.core.data.orm.Database;
+import dev.flaymie.fcore.core.data.orm.OptimisticLockException;
+import dev.flaymie.fcore.core.data.orm.UserData;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Очередь отложенной записи данных пользователей.
+ * Измененные данные помечаются как "грязные", повторные изменения одного
+ * пользователя объединяются, а запись выполняется пакетами по таймеру,
+ * при выходе игрока и при отключении ядра
+ */
+public class UserWriteBehindQueue implements Listener {
+
+    // Количество попыток записи остатка очереди при отключении
+    private static final int DRAIN_ATTEMPTS = 3;
+
+    // Количество неудачных записей одного пользователя, после которого его данные отбрасываются
+    private static final int MAX_RETRIES = 5;
+
+    // Код SQLITE_CONSTRAINT в младшем байте расширенного кода ошибки sqlite-jdbc
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    private final FCore plugin;
+    private final Logger logger;
+    private final Database database;
+    private final int flushInterval;
+    private final int batchSize;
+
+    // Ожидающие записи данные по UUID
+    private final Map<UUID, UserData> pending = new ConcurrentHashMap<>();
+
+    // Количество неудачных попыток записи по UUID
+    private final Map<UUID, Integer> retries = new ConcurrentHashMap<>();
+
+    // Сброс выполняется только одним потоком за раз
+    private final Object flushLock = new Object();
+
+    // Метрики
+    private final AtomicLong marked = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    private BukkitTask flushTask;
+
+    /**
+     * Создает очередь отложенной записи
+     * @param plugin экземпляр ядра
+     * @param database база данных
+     * @param flushInterval интервал сброса в секундах
+     * @param batchSize максимальный размер пакета
+     */
+    public UserWriteBehindQueue(FCore plugin, Database database, int flushInterval, int batchSize) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.database = database;
+        this.flushInterval = Math.max(1, flushInterval);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Запускает периодический сброс и отслеживание выхода игроков
+     */
+    public void start() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+
+        long period = flushInterval * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush, period, period);
+    }
+
+    /**
+     * Останавливает сброс по таймеру и записывает все оставшиеся данные
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+
+        HandlerList.unregisterAll(this);
+
+        drain();
+    }
+
+    /**
+     * Помечает данные пользователя для записи
+     * @param userData данные пользователя
+     */
+    public void markDirty(UserData userData) {
+        marked.incrementAndGet();
+        pending.put(userData.getUuidAsUUID(), userData);
+    }
+
+    /**
+     * Отменяет ожидающую запись пользователя
+     * @param uuid UUID игрока
+     */
+    public void discard(UUID uuid) {
+        pending.remove(uuid);
+        retries.remove(uuid);
+    }
+
+    /**
+     * Получение данных, ожидающих записи
+     * @param uuid UUID игрока
+     * @return данные пользователя или null
+     */
+    public UserData getPending(UUID uuid) {
+        return pending.get(uuid);
+    }
+
+    /**
+     * Записывает все ожидающие данные пакетами
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            while (!pending.isEmpty()) {
+                List<UserData> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+                Iterator<Map.Entry<UUID, UserData>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    batch.add(iterator.next().getValue());
+                    iterator.remove();
+                }
+
+                if (!writeBatch(batch)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает ожидающие данные одного пользователя
+     * @param uuid UUID игрока
+     */
+    public void flush(UUID uuid) {
+        synchronized (flushLock) {
+            UserData userData = pending.remove(uuid);
+            if (userData != null) {
+                List<UserData> batch = new ArrayList<>(1);
+                batch.add(userData);
+                writeBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Записывает все ожидающие данные, повторяя попытки при ошибках
+     */
+    public void drain() {
+        for (int attempt = 1; attempt <= DRAIN_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            flush();
+        }
+
+        if (!pending.isEmpty()) {
+            logger.severe("Не удалось записать данные " + pending.size() + " пользователей при отключении");
+        }
+    }
+
+    /**
+     * Записывает пакет. Если пакет не записан, данные сохраняются по одному,
+     * чтобы одна ошибочная строка не блокировала остальных пользователей
+     * @param batch пакет данных
+     * @return false, если часть данных возвращена в очередь из-за временной ошибки
+     */
+    private boolean writeBatch(List<UserData> batch) {
+        long start = System.nanoTime();
+        boolean success = database.saveAll(batch);
+        long elapsed = System.nanoTime() - start;
+
+        flushes.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        lastFlushNanos = elapsed;
+        if (elapsed > maxFlushNanos) {
+            maxFlushNanos = elapsed;
+        }
+
+        if (success) {
+            written.addAndGet(batch.size());
+            for (UserData userData : batch) {
+                retries.remove(userData.getUuidAsUUID());
+            }
+            return true;
+        }
+
+        failedFlushes.incrementAndGet();
+        boolean requeued = false;
+        for (UserData userData : batch) {
+            if (!writeOne(userData)) {
+                requeued = true;
+            }
+        }
+        return !requeued;
+    }
+
+    /**
+     * Записывает данные одного пользователя. Конфликт версий и нарушение ограничений
+     * не исправятся повтором, и такие данные отбрасываются; при временной ошибке данные
+     * возвращаются в очередь, не перезаписывая более новые изменения, но не больше {@value #MAX_RETRIES} раз
+     * @param userData данные пользователя
+     * @return false, если данные возвращены в очередь
+     */
+    private boolean writeOne(UserData userData) {
+        UUID uuid = userData.getUuidAsUUID();
+        try {
+            database.saveOrThrow(userData);
+            written.incrementAndGet();
+            retries.remove(uuid);
+            return true;
+        } catch (Exception e) {
+            if (isPermanent(e)) {
+                drop(userData, e);
+                return true;
+            }
+
+            int attempts = retries.merge(uuid, 1, Integer::sum);
+            if (attempts >= MAX_RETRIES) {
+                drop(userData, e);
+                return true;
+            }
+
+            logger.warning("Не удалось записать данные пользователя " + uuid + " (попытка " + attempts +
+                    " из " + MAX_RETRIES + "): " + e.getMessage());
+            pending.putIfAbsent(uuid, userData);
+            return false;
+        }
+    }
+
+    /**
+     * Отбрасывает данные, которые не удалось записать
+     * @param userData данные пользователя
+     * @param cause ошибка записи
+     */
+    private void drop(UserData userData, Exception cause) {
+        retries.remove(userData.getUuidAsUUID());
+        dropped.incrementAndGet();
+        logger.log(Level.SEVERE, "Данные пользователя " + userData.getUuidAsUUID() +
+                " отброшены после ошибки записи", cause);
+    }
+
+    /**
+     * Проверяет, что ошибка записи не исправится повтором
+     * @param e ошибка
+     * @return true для конфликта версий, нарушения ограничений и ошибок данных или SQL
+     */
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof OptimisticLockException ||
+            e instanceof SQLIntegrityConstraintViolationException ||
+            e instanceof SQLDataException ||
+            e instanceof SQLSyntaxErrorException) {
+            return true;
+        }
+        if (!(e instanceof SQLException)) {
+            return false;
+        }
+
+        SQLException sqlException = (SQLException) e;
+        String state = sqlException.getSQLState();
+        if (state != null) {
+            // 22 - ошибка данных, 23 - нарушение ограничения, 42 - ошибка синтаксиса или доступа
+            return state.startsWith("22") || state.startsWith("23") || state.startsWith("42");
+        }
+        // sqlite-jdbc не заполняет SQLState
+        return (sqlException.getErrorCode() & 0xFF) == SQLITE_CONSTRAINT;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        if (pending.containsKey(uuid)) {
+            database.async().supply(() -> {
+                flush(uuid);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Получение количества ожидающих записи пользователей
+     * @return размер очереди
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Получение количества пометок на запись
+     * @return количество пометок
+     */
+    public long getMarkedCount() {
+        return marked.get();
+    }
+
+    /**
+     * Получение количества записанных строк
+     * @return количество записей
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Получение коэффициента объединения: сколько пометок приходится на одну запись
+     * @return коэффициент объединения
+     */
+    public double getCoalescingRatio() {
+        long writes = written.get();
+        return writes == 0 ? 0.0 : (double) marked.get() / writes;
+    }
+
+    /**
+     * Получение количества сбросов
+     * @return количество сбросов
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Получение количества неудачных сбросов
+     * @return количество неудачных сбросов
+     */
+    public long getFailedFlushCount() {
+        return failedFlushes.get();
+    }
+
+    /**
+     * Получение количества пользователей, данные которых отброшены после ошибок записи
+     * @return количество отброшенных записей
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Получение длительности последнего сброса
+     * @return длительность в миллисекундах
+     */
+    public double getLastFlushMillis() {
+        return lastFlushNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Получение максимальной длительности сброса
+     * @return длительность в миллисекундах
+     */
+    public double getMaxFlushMillis() {
+        return maxFlushNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Получение средней длительности сброса
+     * @return длительность в миллисекундах
+     */
+    public double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0.0 : totalFlushNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
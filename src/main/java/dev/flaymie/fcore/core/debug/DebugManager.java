@@ -2,6 +2,11 @@ package dev.flaymie.fcore.core.debug;
 
 import dev.flaymie.fcore.FCore;
 import dev.flaymie.fcore.api.service.FCoreService;
+import dev.flaymie.fcore.core.data.cache.CacheStats;
+import dev.flaymie.fcore.core.data.cache.RemovalCause;
+import dev.flaymie.fcore.core.data.orm.StatementProfiler;
+import dev.flaymie.fcore.core.data.orm.StatementStats;
+import dev.flaymie.fcore.core.event.EventProfiler;
 import dev.flaymie.fcore.utils.message.MessageUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -25,6 +30,7 @@ public class DebugManager implements FCoreService {
     private final FCore plugin;
     private final Set<UUID> debugEnabledPlayers;
     private final Map<String, Long> performanceMetrics;
+    private final MetricsRegistry metrics;
     private boolean fileWatcherEnabled;
     private FileWatcher fileWatcher;
     private DebugVisualizerTask visualizerTask;
@@ -33,6 +39,7 @@ public class DebugManager implements FCoreService {
         this.plugin = plugin;
         this.debugEnabledPlayers = Collections.newSetFromMap(new ConcurrentHashMap<>());
         this.performanceMetrics = new ConcurrentHashMap<>();
+        this.metrics = new MetricsRegistry();
         this.fileWatcherEnabled = false;
     }
     
@@ -280,6 +287,133 @@ public class DebugManager implements FCoreService {
         return Collections.unmodifiableSet(debugEnabledPlayers);
     }
     
+    /**
+     * Возвращает реестр метрик FCore
+     * @return реестр метрик
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Показывает метрики с указанным префиксом
+     * @param player игрок
+     * @param prefix префикс имени метрики, пустая строка - все метрики
+     */
+    public void showMetrics(Player player, String prefix) {
+        MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &7Метрики" + (prefix.isEmpty() ? "" : " &f" + prefix) + "&7:");
+        metrics.snapshot().forEach((name, value) -> {
+            if (name.startsWith(prefix)) {
+                MessageUtils.sendMessage(player, " &8• &f" + name + "&7: &a" + value);
+            }
+        });
+        metrics.getHistograms().forEach((name, histogram) -> {
+            if (name.startsWith(prefix)) {
+                MessageUtils.sendMessage(player, " &8• &f" + name + "&7: " + histogram);
+            }
+        });
+    }
+    
+    /**
+     * Показывает самые затратные по суммарному времени виды запросов ORM
+     * @param player игрок
+     * @param limit количество строк
+     */
+    public void showQueryStats(Player player, int limit) {
+        if (plugin.getDataManager() == null || plugin.getDataManager().getDatabase() == null) {
+            MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &cБаза данных не запущена");
+            return;
+        }
+        
+        StatementProfiler profiler = plugin.getDataManager().getDatabase().getProfiler();
+        if (!profiler.isEnabled()) {
+            MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &7Замер запросов выключен (general.profile-statements)");
+            return;
+        }
+        
+        MessageUtils.sendMessage(player, String.format("&8[&bFCore Debug&8] &7Запросов: &f%d&7, медленных (> %d мс): &c%d",
+                profiler.getStatementCount(), profiler.getSlowThresholdMillis(), profiler.getSlowCount()));
+        List<StatementStats> stats = profiler.getStats();
+        for (StatementStats statement : stats.subList(0, Math.min(limit, stats.size()))) {
+            MessageUtils.sendMessage(player, String.format(
+                    " &8• &f%.1f мс &7всего, &f%d &7раз, p50 &f%.2f &7p99 &f%.2f &7мс, строк &f%d",
+                    statement.getTotalMillis(), statement.getCount(), statement.getP50Millis(),
+                    statement.getP99Millis(), statement.getRows()));
+            MessageUtils.sendMessage(player, "   &8" + statement.getSql());
+        }
+    }
+    
+    /**
+     * Управляет профилировщиком событий и показывает самые затратные обработчики
+     * @param player игрок
+     * @param action on, off, reset или null для вывода статистики
+     */
+    public void showEventProfile(Player player, String action) {
+        EventProfiler profiler = plugin.getEventManager().getProfiler();
+        if ("on".equalsIgnoreCase(action)) {
+            profiler.enable();
+            MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &aПрофилировщик событий включен");
+            return;
+        }
+        if ("off".equalsIgnoreCase(action)) {
+            profiler.disable();
+            MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &cПрофилировщик событий выключен");
+            return;
+        }
+        if ("reset".equalsIgnoreCase(action)) {
+            profiler.reset();
+            MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &7Статистика событий сброшена");
+            return;
+        }
+        
+        long ticks = Math.max(1, profiler.getTicks());
+        MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &7Профилировщик событий: " +
+                (profiler.isEnabled() ? "&aвключен" : "&cвыключен") + " &7тиков: &f" + profiler.getTicks());
+        List<EventProfiler.HandlerProfile> handlers = profiler.getHandlerProfiles();
+        for (EventProfiler.HandlerProfile handler : handlers.subList(0, Math.min(10, handlers.size()))) {
+            MessageUtils.sendMessage(player, String.format(
+                    " &8• &f%s &7- &e%.3f мс/тик&7, вызовов &f%d&7, макс. &f%.2f мс",
+                    handler.getName(), handler.getTotalNanos() / 1_000_000.0 / ticks,
+                    handler.getInvocations(), handler.getMaxNanos() / 1_000_000.0));
+        }
+        List<EventProfiler.EventProfile> events = profiler.getEventProfiles();
+        for (EventProfiler.EventProfile event : events.subList(0, Math.min(5, events.size()))) {
+            MessageUtils.sendMessage(player, String.format(" &8• &7%s: &f%.1f &7за тик, макс. &f%d",
+                    event.getName(), (double) event.getCount() / ticks, event.getMaxPerTick()));
+        }
+    }
+    
+    /**
+     * Показывает статистику именованных кэшей
+     * @param player игрок
+     */
+    public void showCacheStats(Player player) {
+        if (plugin.getDataManager() == null || plugin.getDataManager().getCacheManager() == null) {
+            MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &cМенеджер кэширования не запущен");
+            return;
+        }
+        
+        List<CacheStats> stats = plugin.getDataManager().getCacheManager().getStats();
+        MessageUtils.sendMessage(player, "&8[&bFCore Debug&8] &7Кэши: &f" + stats.size());
+        for (CacheStats cache : stats) {
+            String maximum = cache.getMaximum() == Long.MAX_VALUE ? "∞" : String.valueOf(cache.getMaximum());
+            MessageUtils.sendMessage(player, String.format(
+                    " &8• &f%s &8(&f%d&7/&f%s&7, ~&f%d KB&8) &7попаданий: &a%.1f%% &8(&7%d/%d&8)",
+                    cache.getName(), cache.getSize(), maximum, cache.getEstimatedBytes() / 1024,
+                    cache.getHitRate() * 100, cache.getHitCount(), cache.getRequestCount()));
+            MessageUtils.sendMessage(player, String.format(
+                    "   &7вытеснено: &f%d &7по размеру, &f%d &7по сроку; загрузок: &f%d &8(&7%.2f мс&8)",
+                    cache.getRemovalCount(RemovalCause.SIZE), cache.getRemovalCount(RemovalCause.EXPIRED),
+                    cache.getLoadSuccessCount() + cache.getLoadFailureCount(), cache.getAverageLoadMillis()));
+            if (cache.hasSecondTier()) {
+                MessageUtils.sendMessage(player, String.format(
+                        "   &7второй уровень: &f%d &7записей, &f%d&7/&f%d KB&7, попаданий: &f%d",
+                        cache.getSecondTierSize(), cache.getSecondTierBytes() / 1024,
+                        cache.getSecondTierCapacity() / 1024, cache.getSecondTierHitCount()));
+            }
+        }
+    }
+    
     /**
      * Генерирует отчет о состоянии плагина
      * @param player игрок, запросивший отчет (может быть null для консоли)
@@ -0,0 +1,116 @@
+package dev.flaymie.fcore.core.debug;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма длительностей с фиксированными границами корзин.
+ * Запись не блокирует потоки, поэтому ее можно вызывать из пула соединений и обработчиков событий.
+ */
+public class Histogram {
+
+    /**
+     * Верхние границы корзин в миллисекундах; последняя корзина - все, что больше
+     */
+    private static final double[] BOUNDS = {
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Записывает длительность
+     * @param nanos длительность в наносекундах
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        double millis = nanos / 1_000_000.0;
+        int index = 0;
+        while (index < BOUNDS.length && millis > BOUNDS[index]) {
+            index++;
+        }
+
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Записывает длительность в миллисекундах
+     * @param millis длительность
+     */
+    public void recordMillis(long millis) {
+        record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public double getAverageMillis() {
+        long total = count.get();
+        return total == 0 ? 0 : totalNanos.get() / 1_000_000.0 / total;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Возвращает оценку перцентиля по верхней границе корзины
+     * @param quantile доля от 0 до 1
+     * @return значение в миллисекундах
+     */
+    public double getPercentileMillis(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.min(1.0, Math.max(0.0, quantile)));
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(BOUNDS[i], getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Сбрасывает накопленные значения
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d, сред. %.2f, p95 %.2f, p99 %.2f, макс. %.2f мс",
+                getCount(), getAverageMillis(), getPercentileMillis(0.95), getPercentileMillis(0.99), getMaxMillis());
+    }
+}
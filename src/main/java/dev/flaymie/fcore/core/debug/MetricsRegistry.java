@@ -0,0 +1,85 @@
+package dev.flaymie.fcore.core.debug;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Реестр метрик FCore: счетчики, измерители и гистограммы по иерархическим именам вида "db.pool.active".
+ * Подсистемы регистрируют метрики при запуске, а отладочный отчет и команда /debug читают их снимок.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Возвращает счетчик, создавая его при первом обращении
+     * @param name имя метрики
+     * @return счетчик
+     */
+    public AtomicLong counter(String name) {
+        return counters.computeIfAbsent(name, key -> new AtomicLong());
+    }
+
+    /**
+     * Регистрирует измеритель, значение которого вычисляется при чтении
+     * @param name имя метрики
+     * @param supplier источник значения
+     */
+    public void gauge(String name, Supplier<? extends Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Возвращает гистограмму, создавая ее при первом обращении
+     * @param name имя метрики
+     * @return гистограмма
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Удаляет все метрики с указанным префиксом
+     * @param prefix префикс имени, например "db.pool."
+     */
+    public void removeAll(String prefix) {
+        counters.keySet().removeIf(name -> name.startsWith(prefix));
+        gauges.keySet().removeIf(name -> name.startsWith(prefix));
+        histograms.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    /**
+     * Возвращает текущие значения счетчиков и измерителей, отсортированные по имени
+     * @return снимок значений
+     */
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.get()));
+        gauges.forEach((name, supplier) -> {
+            try {
+                Number value = supplier.get();
+                if (value != null) {
+                    values.put(name, value);
+                }
+            } catch (RuntimeException ignored) {
+                // Источник уже остановлен
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Возвращает гистограммы, отсортированные по имени
+     * @return гистограммы
+     */
+    public SortedMap<String, Histogram> getHistograms() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(histograms));
+    }
+}
@@ -1,6 +1,23 @@
 package dev.flaymie.fcore.core.debug;
 
 import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.core.data.DataManager;
+import dev.flaymie.fcore.core.data.cache.CacheInvalidationBus;
+import dev.flaymie.fcore.core.data.cache.CacheManager;
+import dev.flaymie.fcore.core.data.cache.CacheStats;
+import dev.flaymie.fcore.core.data.cache.RemovalCause;
+import dev.flaymie.fcore.core.data.orm.ConnectionManager;
+import dev.flaymie.fcore.core.data.orm.Database;
+import dev.flaymie.fcore.core.data.orm.PoolAutoTuner;
+import dev.flaymie.fcore.core.data.orm.PoolMetricsTracker;
+import dev.flaymie.fcore.core.data.orm.StatementProfiler;
+import dev.flaymie.fcore.core.data.orm.StatementStats;
+import dev.flaymie.fcore.core.data.user.PreLoginPipeline;
+import dev.flaymie.fcore.core.data.user.UserManager;
+import dev.flaymie.fcore.core.data.user.UserWriteBehindQueue;
+import dev.flaymie.fcore.core.event.AsyncEventLane;
+import dev.flaymie.fcore.core.event.EventCoalescer;
+import dev.flaymie.fcore.core.event.EventProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 
@@ -16,6 +33,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 /**
@@ -50,6 +69,8 @@ public class PluginStatusReport {
                 writePluginInfo(writer);
                 writeMemoryInfo(writer);
                 writeThreadInfo(writer);
+                writeDatabaseInfo(writer);
+                writeEventProfile(writer);
                 writePluginsList(writer);
                 
                 plugin.getLogger().info("Отчет сгенерирован и сохранен в " + reportFile.getAbsolutePath());
@@ -191,6 +212,176 @@ public class PluginStatusReport {
         writer.println("---------------------------------------------\n");
     }
     
+    /**
+     * Записывает информацию о подсистеме данных
+     * @param writer поток для записи
+     */
+    private void writeDatabaseInfo(PrintWriter writer) {
+        DataManager dataManager = plugin.getDataManager();
+        if (dataManager == null) {
+            return;
+        }
+        
+        writer.println("ИНФОРМАЦИЯ О ДАННЫХ:");
+        writer.println("---------------------------------------------");
+        
+        ConnectionManager connectionManager = dataManager.getConnectionManager();
+        PoolMetricsTracker poolMetrics = connectionManager != null ? connectionManager.getMetricsTracker() : null;
+        if (poolMetrics != null) {
+            Map<String, Number> values = plugin.getDebugManager().getMetrics().snapshot();
+            writer.println("Пул соединений:");
+            writer.println(" - Занято / свободно / всего / максимум: " + values.get("db.pool.active") + " / " +
+                    values.get("db.pool.idle") + " / " + values.get("db.pool.total") + " / " + values.get("db.pool.max"));
+            writer.println(" - Ожидают соединение: " + values.get("db.pool.pending") +
+                    ", превышений времени ожидания: " + poolMetrics.getTimeoutCount());
+            writer.println(" - Получение соединения: " + poolMetrics.getAcquireTime());
+            writer.println(" - Использование соединения: " + poolMetrics.getUsageTime());
+            PoolMetricsTracker readMetrics = connectionManager.getReadMetricsTracker();
+            if (readMetrics != null) {
+                writer.println(" - Читатели SQLite, занято / всего: " + values.get("db.pool.read.active") + " / " +
+                        values.get("db.pool.read.total") + ", ожидают: " + values.get("db.pool.read.pending"));
+                writer.println(" - Получение соединения читателем: " + readMetrics.getAcquireTime());
+            }
+            PoolAutoTuner autoTuner = connectionManager.getAutoTuner();
+            if (autoTuner != null) {
+                writer.println(" - Подстройка: " + autoTuner.getDiagnosis() + ", изменений размера " +
+                        autoTuner.getResizeCount() + String.format(", ожидание %.2f мс, использование %.2f мс (обычно %.2f мс)",
+                        autoTuner.getLastWaitMillis(), autoTuner.getLastUsageMillis(), autoTuner.getBaselineUsageMillis()));
+            }
+        }
+        
+        Database database = dataManager.getDatabase();
+        StatementProfiler profiler = database != null ? database.getProfiler() : null;
+        if (profiler != null && profiler.isEnabled()) {
+            writer.println("Запросы ORM: " + profiler.getStatementCount() + ", медленных (> " +
+                    profiler.getSlowThresholdMillis() + " мс): " + profiler.getSlowCount());
+            List<StatementStats> statements = profiler.getStats();
+            for (StatementStats statement : statements.subList(0, Math.min(20, statements.size()))) {
+                writer.println(" - " + statement.getSql());
+                writer.println("   " + String.format("%d раз, всего %.1f мс, p50 %.2f / p99 %.2f / макс. %.2f мс, строк %d, медленных %d",
+                        statement.getCount(), statement.getTotalMillis(), statement.getP50Millis(),
+                        statement.getP99Millis(), statement.getMaxMillis(), statement.getRows(), statement.getSlowCount()));
+            }
+        } else {
+            writer.println("Запросы ORM: замер выключен");
+        }
+        
+        UserManager userManager = dataManager.getUserManager();
+        UserWriteBehindQueue writeQueue = userManager != null ? userManager.getWriteQueue() : null;
+        if (writeQueue != null) {
+            writer.println("Очередь записи пользователей:");
+            writer.println(" - Ожидают записи: " + writeQueue.getQueueDepth());
+            writer.println(" - Пометок / записей: " + writeQueue.getMarkedCount() + " / " + writeQueue.getWrittenCount());
+            writer.println(" - Коэффициент объединения: " + String.format("%.2f", writeQueue.getCoalescingRatio()));
+            writer.println(" - Сбросов (ошибок): " + writeQueue.getFlushCount() + " (" + writeQueue.getFailedFlushCount() + ")");
+            writer.println(" - Отброшено после ошибок записи: " + writeQueue.getDroppedCount());
+            writer.println(" - Время сброса (посл./сред./макс.): " + String.format("%.2f / %.2f / %.2f мс",
+                    writeQueue.getLastFlushMillis(), writeQueue.getAverageFlushMillis(), writeQueue.getMaxFlushMillis()));
+        } else {
+            writer.println("Очередь записи пользователей: выключена");
+        }
+        
+        PreLoginPipeline preLoginPipeline = userManager != null ? userManager.getPreLoginPipeline() : null;
+        if (preLoginPipeline != null) {
+            writer.println("Предзагрузка при входе:");
+            writer.println(" - Предзагрузок: " + preLoginPipeline.getPreloadCount() + ", среднее время " +
+                    String.format("%.2f мс", preLoginPipeline.getAveragePreloadMillis()));
+            writer.println(" - Превышений времени / ошибок: " + preLoginPipeline.getTimeoutCount() + " / " +
+                    preLoginPipeline.getFailureCount());
+            writer.println(" - Входов с данными / без: " + preLoginPipeline.getJoinHitCount() + " / " +
+                    preLoginPipeline.getJoinMissCount());
+        } else {
+            writer.println("Предзагрузка при входе: выключена");
+        }
+        
+        CacheManager cacheManager = dataManager.getCacheManager();
+        if (cacheManager != null) {
+            writer.println("Кэши (" + (cacheManager.isEnabled() ? "включены" : "выключены") + "):");
+            for (CacheStats stats : cacheManager.getStats()) {
+                writer.println(" - " + stats.getName() + ": " + stats.getSize() + " / " +
+                        (stats.getMaximum() == Long.MAX_VALUE ? "без ограничения" : stats.getMaximum()) +
+                        ", ~" + (stats.getEstimatedBytes() / 1024) + " KB");
+                writer.println("   Попадания: " + String.format("%.1f%%", stats.getHitRate() * 100) +
+                        " (" + stats.getHitCount() + " / " + stats.getRequestCount() + ")");
+                writer.println("   Загрузки (ошибки): " + stats.getLoadSuccessCount() + " (" +
+                        stats.getLoadFailureCount() + "), среднее время " +
+                        String.format("%.2f мс", stats.getAverageLoadMillis()));
+                writer.println("   Удалено: по размеру " + stats.getRemovalCount(RemovalCause.SIZE) +
+                        ", по сроку " + stats.getRemovalCount(RemovalCause.EXPIRED) +
+                        ", вручную " + stats.getRemovalCount(RemovalCause.EXPLICIT) +
+                        ", заменено " + stats.getRemovalCount(RemovalCause.REPLACED));
+                if (stats.hasSecondTier()) {
+                    writer.println("   Второй уровень: " + stats.getSecondTierSize() + " записей, " +
+                            (stats.getSecondTierBytes() / 1024) + " / " + (stats.getSecondTierCapacity() / 1024) +
+                            " KB, попаданий " + stats.getSecondTierHitCount());
+                }
+            }
+        }
+        
+        CacheInvalidationBus invalidationBus = dataManager.getInvalidationBus();
+        if (invalidationBus != null) {
+            writer.println("Сброс кэшей между серверами:");
+            writer.println(" - Отправлено / получено: " + invalidationBus.getPublishedCount() + " / " +
+                    invalidationBus.getReceivedCount());
+            writer.println(" - Без обработчика / с ошибкой: " + invalidationBus.getUnhandledCount() + " / " +
+                    invalidationBus.getFailedCount());
+        } else {
+            writer.println("Сброс кэшей между серверами: выключен");
+        }
+        
+        writer.println("---------------------------------------------\n");
+    }
+    
+    /**
+     * Записывает статистику профилировщика событий
+     * @param writer поток для записи
+     */
+    private void writeEventProfile(PrintWriter writer) {
+        if (plugin.getEventManager() == null) {
+            return;
+        }
+        
+        EventProfiler profiler = plugin.getEventManager().getProfiler();
+        writer.println("ПРОФИЛЬ СОБЫТИЙ (" + (profiler.isEnabled() ? "включен" : "выключен") + "):");
+        writer.println("---------------------------------------------");
+        
+        AsyncEventLane asyncLane = plugin.getEventManager().getAsyncLane();
+        if (asyncLane != null) {
+            writer.println("Асинхронная доставка: " + asyncLane.getWorkerCount() + " потоков по " +
+                    asyncLane.getCapacity() + " событий в очереди");
+            writer.println(" - Поставлено / доставлено / с ошибкой: " + asyncLane.getSubmittedCount() + " / " +
+                    asyncLane.getDispatchedCount() + " / " + asyncLane.getFailedCount());
+            writer.println(" - В очереди сейчас: " + asyncLane.getQueueDepth() + ", ожиданий при переполнении: " +
+                    asyncLane.getBlockedCount() + ", отброшено: " + asyncLane.getDroppedCount());
+            writer.println(" - Задержка доставки: " + asyncLane.getLag());
+            writer.println(" - Ожидание вызывающего потока: " + asyncLane.getPublishWait());
+        }
+        
+        EventCoalescer coalescer = plugin.getEventManager().getCoalescer();
+        writer.println("Фильтры @Coalesce: вызвано " + coalescer.getPassedCount() +
+                ", отброшено " + coalescer.getDroppedCount());
+        
+        long ticks = Math.max(1, profiler.getTicks());
+        writer.println("Тиков: " + profiler.getTicks() + ", время сбора: " + profiler.getElapsedMillis() / 1000 + " с");
+        writer.println("Обработчики (по суммарному времени):");
+        for (EventProfiler.HandlerProfile handler : profiler.getHandlerProfiles()) {
+            writer.println(String.format(" - %s: %d вызовов, %.3f мс/тик, сред. %.1f мкс, макс. %.3f мс%s",
+                    handler.getName(), handler.getInvocations(), handler.getTotalNanos() / 1_000_000.0 / ticks,
+                    handler.getAverageMicros(), handler.getMaxNanos() / 1_000_000.0,
+                    profiler.isAllocationSupported()
+                            ? String.format(", выделено %d KB/с", handler.getAllocatedBytes() * 1000 / 1024 /
+                                    Math.max(1, profiler.getElapsedMillis()))
+                            : ""));
+        }
+        writer.println("События:");
+        for (EventProfiler.EventProfile event : profiler.getEventProfiles()) {
+            writer.println(String.format(" - %s: %d, %.1f за тик, макс. %d за тик",
+                    event.getName(), event.getCount(), (double) event.getCount() / ticks, event.getMaxPerTick()));
+        }
+        
+        writer.println("---------------------------------------------\n");
+    }
+    
     /**
      * Записывает список плагинов
      * @param writer поток для записи
@@ -5,6 +5,7 @@ import dev.flaymie.fcore.api.annotation.PostConstruct;
 import dev.flaymie.fcore.api.annotation.PreDestroy;
 import dev.flaymie.fcore.api.annotation.Service;
 import dev.flaymie.fcore.api.service.FCoreService;
+import dev.flaymie.fcore.core.index.ComponentIndex;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
@@ -61,12 +62,14 @@ public class ServiceScanner implements FCoreService {
     }
 
     /**
-     * Сканирует пакет на наличие классов с аннотацией @Service
+     * Сканирует пакет на наличие классов с аннотацией @Service.
+     * Если есть индекс компонентов, классы берутся из него без обхода JAR
      */
     private void scanPackage() throws Exception {
         logger.info("Сканирование классов в пакете " + basePackage + "...");
         
-        List<Class<?>> classes = findClasses(basePackage);
+        ComponentIndex index = plugin.getComponentIndex();
+        List<Class<?>> classes = index != null ? index.getClasses(ComponentIndex.Kind.SERVICE) : findClasses(basePackage);
         List<Class<?>> serviceClasses = new ArrayList<>();
         
         // Ищем классы с аннотацией @Service
@@ -0,0 +1,270 @@
+package dev.flaymie.fcore.core.event;
+
+import dev.flaymie.fcore.api.event.FCoreEvent;
+import dev.flaymie.fcore.core.debug.Histogram;
+import dev.flaymie.fcore.core.debug.MetricsRegistry;
+import org.bukkit.Bukkit;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Асинхронная доставка событий FCore, помеченных {@link dev.flaymie.fcore.api.annotation.AsyncEvent}.
+ * Каждый поток-исполнитель обслуживает свою очередь, а событие попадает в очередь по хэшу
+ * ключа упорядочивания, поэтому события одного ключа обрабатываются последовательно и по порядку,
+ * а разных ключей - параллельно. Очереди ограничены: при переполнении вызывающий поток ждет
+ * освобождения места не дольше заданного времени, после чего событие отбрасывается.
+ * Событие никогда не доставляется в обход очереди, поэтому порядок событий одного ключа сохраняется
+ */
+public class AsyncEventLane {
+
+    private static final long WARN_INTERVAL_MS = 10000;
+
+    private final Logger logger;
+    private final Lane[] lanes;
+    private final int capacity;
+    private final long publishTimeoutNanos;
+    private final AtomicLong submitted;
+    private final AtomicLong dispatched;
+    private final AtomicLong blocked;
+    private final AtomicLong dropped;
+    private final AtomicLong failed;
+    private final Histogram lag;
+    private final Histogram publishWait;
+
+    private volatile boolean started;
+    private volatile boolean shutdown;
+    private volatile long lastWarning;
+
+    /**
+     * @param logger логгер
+     * @param workers количество потоков-исполнителей
+     * @param capacity емкость очереди каждого потока
+     * @param publishTimeoutMillis максимальное ожидание места в переполненной очереди
+     * @param metrics реестр метрик
+     */
+    public AsyncEventLane(Logger logger, int workers, int capacity, long publishTimeoutMillis, MetricsRegistry metrics) {
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, publishTimeoutMillis));
+        this.lanes = new Lane[Math.max(1, workers)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, this.capacity);
+        }
+
+        this.submitted = metrics.counter("events.async.submitted");
+        this.dispatched = metrics.counter("events.async.dispatched");
+        this.blocked = metrics.counter("events.async.blocked");
+        this.dropped = metrics.counter("events.async.dropped");
+        this.failed = metrics.counter("events.async.failed");
+        this.lag = metrics.histogram("events.async.lag");
+        this.publishWait = metrics.histogram("events.async.publish-wait");
+        metrics.gauge("events.async.depth", this::getQueueDepth);
+    }
+
+    /**
+     * Ставит событие в очередь его ключа
+     * @param event асинхронное событие
+     * @return false, если очередь осталась переполненной и событие отброшено
+     */
+    public boolean submit(FCoreEvent event) {
+        if (shutdown) {
+            throw new IllegalStateException("Асинхронная очередь событий остановлена");
+        }
+        ensureStarted();
+
+        Object key = event.getOrderingKey();
+        int hash = key != null ? key.hashCode() : event.getClass().hashCode();
+        Lane lane = lanes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % lanes.length];
+        Envelope envelope = new Envelope(event, System.nanoTime());
+        submitted.incrementAndGet();
+
+        if (lane.queue.offer(envelope)) {
+            return true;
+        }
+
+        // Очередь заполнена - обработчики не успевают за потоком событий.
+        // Ожидание ограничено: ни основной поток, ни исполнитель, публикующий в свою же очередь, не зависают
+        blocked.incrementAndGet();
+        long start = System.nanoTime();
+        boolean accepted = false;
+        try {
+            accepted = lane.queue.offer(envelope, publishTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            publishWait.record(System.nanoTime() - start);
+        }
+
+        if (!accepted) {
+            dropped.incrementAndGet();
+            warnSaturated(event);
+        }
+        return accepted;
+    }
+
+    private void ensureStarted() {
+        if (started) {
+            return;
+        }
+        synchronized (this) {
+            if (!started) {
+                for (Lane lane : lanes) {
+                    lane.worker.start();
+                }
+                started = true;
+            }
+        }
+    }
+
+    private void warnSaturated(FCoreEvent event) {
+        long now = System.currentTimeMillis();
+        if (now - lastWarning > WARN_INTERVAL_MS) {
+            lastWarning = now;
+            logger.warning("Очередь асинхронных событий заполнена (" + capacity + "), событие " +
+                    event.getEventName() + " отброшено; всего отброшено: " + dropped.get());
+        }
+    }
+
+    private void dispatch(Envelope envelope) {
+        lag.record(System.nanoTime() - envelope.enqueuedAt);
+        try {
+            Bukkit.getPluginManager().callEvent(envelope.event);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.log(Level.SEVERE, "Ошибка при асинхронной доставке события " + envelope.event.getEventName(), e);
+        } finally {
+            dispatched.incrementAndGet();
+        }
+    }
+
+    /**
+     * Останавливает доставку, дожидаясь обработки уже поставленных событий
+     * @param timeout время ожидания
+     * @param unit единица времени
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        shutdown = true;
+        if (!started) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Lane lane : lanes) {
+            lane.worker.finish();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (lane.worker.isAlive()) {
+                logger.warning("Не все асинхронные события доставлены до отключения: осталось " + lane.queue.size());
+                lane.worker.interrupt();
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    public int getWorkerCount() {
+        return lanes.length;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public Histogram getLag() {
+        return lag;
+    }
+
+    public Histogram getPublishWait() {
+        return publishWait;
+    }
+
+    private static final class Envelope {
+        final FCoreEvent event;
+        final long enqueuedAt;
+
+        Envelope(FCoreEvent event, long enqueuedAt) {
+            this.event = event;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final class Lane {
+        final BlockingQueue<Envelope> queue;
+        final Worker worker;
+
+        Lane(int index, int capacity) {
+            this.queue = new LinkedBlockingQueue<>(capacity);
+            this.worker = new Worker(this, "FCore-Events-" + (index + 1));
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final Lane lane;
+        private volatile boolean finishing;
+
+        Worker(Lane lane, String name) {
+            super(name);
+            this.lane = lane;
+            setDaemon(true);
+        }
+
+        void finish() {
+            finishing = true;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Envelope envelope;
+                try {
+                    envelope = lane.queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                if (envelope != null) {
+                    dispatch(envelope);
+                } else if (finishing) {
+                    return;
+                }
+            }
+        }
+    }
+}
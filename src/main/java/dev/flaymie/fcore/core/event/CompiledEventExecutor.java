@@ -0,0 +1,134 @@
+package dev.flaymie.fcore.core.event;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Исполнитель обработчика события без рефлексии: вызов метода собирается при регистрации
+ * через {@link LambdaMetafactory}, а для непубличных методов - через {@link MethodHandle}.
+ * На каждом событии не создается массив аргументов и не оборачиваются исключения.
+ * Фильтр {@link dev.flaymie.fcore.api.annotation.Coalesce} проверяется до вызова обработчика
+ */
+public class CompiledEventExecutor implements EventExecutor {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<? extends Event> eventClass;
+    private final HandlerInvoker invoker;
+    private final String handlerName;
+    private final Logger logger;
+    private final EventProfiler profiler;
+    private final EventProfiler.HandlerProfile profile;
+    private final EventCoalescer.Filter filter;
+
+    public CompiledEventExecutor(Class<? extends Event> eventClass, HandlerInvoker invoker, String handlerName,
+                                 Logger logger, EventProfiler profiler, EventCoalescer.Filter filter) {
+        this.eventClass = eventClass;
+        this.invoker = invoker;
+        this.handlerName = handlerName;
+        this.logger = logger;
+        this.profiler = profiler;
+        this.profile = profiler.handler(handlerName);
+        this.filter = filter;
+    }
+
+    @Override
+    public void execute(Listener listener, Event event) {
+        if (!eventClass.isInstance(event)) {
+            return;
+        }
+
+        if (profiler.isEnabled()) {
+            executeProfiled(listener, event);
+            return;
+        }
+
+        if (filter != null && !filter.accept(event)) {
+            return;
+        }
+
+        try {
+            invoker.invoke(listener, event);
+        } catch (Throwable e) {
+            logger.log(Level.SEVERE, "Ошибка при обработке события " + event.getEventName() + " в " + handlerName, e);
+        }
+    }
+
+    private void executeProfiled(Listener listener, Event event) {
+        profiler.countEvent(event);
+        if (filter != null && !filter.accept(event)) {
+            return;
+        }
+
+        long allocatedBefore = profiler.allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            invoker.invoke(listener, event);
+        } catch (Throwable e) {
+            logger.log(Level.SEVERE, "Ошибка при обработке события " + event.getEventName() + " в " + handlerName, e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBefore < 0 ? 0 : profiler.allocatedBytes() - allocatedBefore;
+            profile.record(elapsed, allocated);
+        }
+    }
+
+    public Class<? extends Event> getEventClass() {
+        return eventClass;
+    }
+
+    public String getHandlerName() {
+        return handlerName;
+    }
+
+    /**
+     * Собирает прямой вызов метода-обработчика
+     * @param method метод с одним параметром-событием
+     * @return вызов обработчика
+     * @throws IllegalAccessException если метод недоступен
+     */
+    public static HandlerInvoker compile(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect(method);
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+
+        // Сгенерированный класс лямбды может вызвать только публичный метод публичного класса,
+        // видимого загрузчику FCore: классы проверяются сейчас, а не при первом событии
+        if (!isStatic && Modifier.isPublic(method.getModifiers())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                && isVisible(method.getDeclaringClass()) && isVisible(method.getParameterTypes()[0])) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "invoke",
+                        MethodType.methodType(HandlerInvoker.class), INVOKER_TYPE, handle,
+                        MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]));
+                return (HandlerInvoker) site.getTarget().invokeExact();
+            } catch (Throwable ignored) {
+                // Не удалось собрать лямбду - используем MethodHandle
+            }
+        }
+
+        MethodHandle target = isStatic ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+        MethodHandle exact = target.asType(INVOKER_TYPE);
+        return (listener, event) -> exact.invokeExact(listener, event);
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, CompiledEventExecutor.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dev.flaymie.fcore.core.event;
+
+import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.api.annotation.Coalesce;
+import org.bukkit.Location;
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фильтры {@link Coalesce} для обработчиков событий. Фильтр проверяется исполнителем обработчика
+ * до вызова метода: события без значимых изменений отбрасываются, не доходя до слушателя.
+ * Номер тика для прореживания ведет общий таймер, который запускается при первом таком фильтре
+ */
+public class EventCoalescer {
+
+    private static final long PRUNE_INTERVAL_TICKS = 1200;
+
+    private final FCore plugin;
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile long tick;
+    private BukkitTask tickTask;
+
+    public EventCoalescer(FCore plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Создает фильтр для обработчика
+     * @param listener слушатель, которому принадлежит обработчик
+     * @param coalesce аннотация обработчика
+     * @param eventClass класс события
+     * @return фильтр или null, если аннотация ничего не отбрасывает
+     */
+    Filter create(Listener listener, Coalesce coalesce, Class<? extends Event> eventClass) {
+        Coalesce.MoveGranularity granularity = coalesce.moveGranularity();
+        if (!PlayerMoveEvent.class.isAssignableFrom(eventClass)) {
+            if (granularity != Coalesce.MoveGranularity.ANY) {
+                plugin.getLogger().warning("moveGranularity применим только к PlayerMoveEvent, событие " +
+                        eventClass.getSimpleName() + " не фильтруется по перемещению");
+            }
+            granularity = Coalesce.MoveGranularity.ANY;
+        }
+
+        int interval = Math.max(coalesce.sampleEveryTicks(), coalesce.dedupePerTick() ? 1 : 0);
+        if (granularity == Coalesce.MoveGranularity.ANY && interval <= 0) {
+            return null;
+        }
+
+        Filter filter = new Filter(listener, granularity, interval);
+        if (interval > 0) {
+            filters.add(filter);
+            ensureTicking();
+        }
+        return filter;
+    }
+
+    private synchronized void ensureTicking() {
+        if (tickTask == null) {
+            tickTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Удаляет фильтры обработчиков слушателя; таймер останавливается, если фильтров не осталось
+     * @param listener слушатель, регистрация которого отменена
+     */
+    void remove(Listener listener) {
+        if (filters.removeIf(filter -> filter.owner == listener)) {
+            stopIfIdle();
+        }
+    }
+
+    /**
+     * Удаляет фильтры всех слушателей
+     */
+    void clear() {
+        filters.clear();
+        stopIfIdle();
+    }
+
+    private synchronized void stopIfIdle() {
+        if (filters.isEmpty() && tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+
+    private void tick() {
+        long current = ++tick;
+        // Ключи вышедших игроков больше не обновляются, поэтому старые записи периодически удаляются
+        if (current % PRUNE_INTERVAL_TICKS == 0) {
+            for (Filter filter : filters) {
+                filter.prune(current);
+            }
+        }
+    }
+
+    /**
+     * Останавливает таймер тиков
+     */
+    public synchronized void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        filters.clear();
+    }
+
+    public long getPassedCount() {
+        return passed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Фильтр одного обработчика
+     */
+    final class Filter {
+        private final Listener owner;
+        private final Coalesce.MoveGranularity granularity;
+        private final int interval;
+        // Ключ (UUID игрока или класс события) -> тик последнего пропущенного события
+        private final Map<Object, long[]> lastTicks;
+
+        Filter(Listener owner, Coalesce.MoveGranularity granularity, int interval) {
+            this.owner = owner;
+            this.granularity = granularity;
+            this.interval = interval;
+            this.lastTicks = interval > 0 ? new ConcurrentHashMap<>() : null;
+        }
+
+        /**
+         * Проверяет, нужно ли вызывать обработчик для события
+         * @param event событие
+         * @return true если обработчик нужно вызвать
+         */
+        boolean accept(Event event) {
+            if (granularity != Coalesce.MoveGranularity.ANY && !moved((PlayerMoveEvent) event)) {
+                dropped.incrementAndGet();
+                return false;
+            }
+
+            if (interval > 0) {
+                Object key = event instanceof PlayerEvent ? ((PlayerEvent) event).getPlayer().getUniqueId() : event.getClass();
+                long[] last = lastTicks.computeIfAbsent(key, k -> new long[]{Long.MIN_VALUE});
+                long current = tick;
+                synchronized (last) {
+                    if (last[0] != Long.MIN_VALUE && current - last[0] < interval) {
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                    last[0] = current;
+                }
+            }
+
+            passed.incrementAndGet();
+            return true;
+        }
+
+        private boolean moved(PlayerMoveEvent event) {
+            Location from = event.getFrom();
+            Location to = event.getTo();
+            if (to == null || from.getWorld() != to.getWorld()) {
+                return true;
+            }
+
+            if (granularity == Coalesce.MoveGranularity.CHUNK) {
+                return (from.getBlockX() >> 4) != (to.getBlockX() >> 4) ||
+                       (from.getBlockZ() >> 4) != (to.getBlockZ() >> 4);
+            }
+            return from.getBlockX() != to.getBlockX() ||
+                   from.getBlockY() != to.getBlockY() ||
+                   from.getBlockZ() != to.getBlockZ();
+        }
+
+        void prune(long current) {
+            lastTicks.values().removeIf(last -> current - last[0] > Math.max(interval, PRUNE_INTERVAL_TICKS));
+        }
+    }
+}
@@ -5,6 +5,7 @@ import dev.flaymie.fcore.api.annotation.EventListener;
 import dev.flaymie.fcore.api.annotation.Service;
 import dev.flaymie.fcore.api.service.FCoreService;
 import dev.flaymie.fcore.core.di.DependencyContainer;
+import dev.flaymie.fcore.core.index.ComponentIndex;
 import org.bukkit.event.Listener;
 
 import java.io.File;
@@ -57,12 +58,14 @@ public class EventListenerScanner implements FCoreService {
     }
     
     /**
-     * Сканирует классы в базовом пакете и регистрирует слушатели
+     * Сканирует классы в базовом пакете и регистрирует слушатели.
+     * Если есть индекс компонентов, классы берутся из него без обхода JAR
      */
     private void scanListeners() throws Exception {
         logger.info("Сканирование слушателей в пакете " + basePackage + "...");
         
-        List<Class<?>> classes = findClasses(basePackage);
+        ComponentIndex index = plugin.getComponentIndex();
+        List<Class<?>> classes = index != null ? index.getClasses(ComponentIndex.Kind.LISTENER) : findClasses(basePackage);
         List<Class<?>> listenerClasses = new ArrayList<>();
         
         // Ищем классы, помеченные аннотацией @EventListener
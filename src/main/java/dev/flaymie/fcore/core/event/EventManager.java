@@ -1,6 +1,8 @@
 package dev.flaymie.fcore.core.event;
 
 import dev.flaymie.fcore.FCore;
+import dev.flaymie.fcore.api.annotation.AsyncEvent;
+import dev.flaymie.fcore.api.annotation.Coalesce;
 import dev.flaymie.fcore.api.annotation.EventListener;
 import dev.flaymie.fcore.api.annotation.IgnoreCancelled;
 import dev.flaymie.fcore.api.annotation.Priority;
@@ -14,6 +16,9 @@ import org.bukkit.plugin.RegisteredListener;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -25,21 +30,48 @@ public class EventManager implements FCoreService {
     private final Logger logger;
     private final DependencyContainer dependencyContainer;
     private final Set<Listener> registeredListeners;
+    private final EventProfiler profiler;
+    private final EventCoalescer coalescer;
+    private AsyncEventLane asyncLane;
     
     public EventManager(FCore plugin, DependencyContainer dependencyContainer) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
         this.dependencyContainer = dependencyContainer;
-        this.registeredListeners = new HashSet<>();
+        this.registeredListeners = ConcurrentHashMap.newKeySet();
+        this.profiler = new EventProfiler(plugin);
+        this.coalescer = new EventCoalescer(plugin);
     }
     
     @Override
     public void onEnable() {
         logger.info("Инициализация менеджера событий");
+        
+        if (plugin.getConfig().getBoolean("performance.event-profiler", false)) {
+            profiler.enable();
+            logger.info("Профилировщик событий включен");
+        }
+        
+        // Потоки асинхронной доставки запускаются при первом событии с @AsyncEvent
+        asyncLane = new AsyncEventLane(logger,
+                plugin.getConfig().getInt("performance.async-events.workers", 2),
+                plugin.getConfig().getInt("performance.async-events.queue-capacity", 1024),
+                plugin.getConfig().getLong("performance.async-events.publish-timeout", 20),
+                plugin.getDebugManager().getMetrics());
+        
+        plugin.getDebugManager().getMetrics().gauge("events.coalesced.passed", coalescer::getPassedCount);
+        plugin.getDebugManager().getMetrics().gauge("events.coalesced.dropped", coalescer::getDroppedCount);
     }
     
     @Override
     public void onDisable() {
+        profiler.disable();
+        coalescer.stop();
+        
+        if (asyncLane != null) {
+            asyncLane.shutdown(5, TimeUnit.SECONDS);
+        }
+        
         // Отменяем все слушатели
         unregisterAllListeners();
         logger.info("Менеджер событий отключен");
@@ -55,7 +87,8 @@ public class EventManager implements FCoreService {
      * @param listener экземпляр слушателя
      */
     public void registerListener(Listener listener) {
-        if (registeredListeners.contains(listener)) {
+        // Добавляем в список зарегистрированных слушателей; повторная регистрация игнорируется
+        if (!registeredListeners.add(listener)) {
             logger.warning("Слушатель " + listener.getClass().getName() + " уже зарегистрирован");
             return;
         }
@@ -66,14 +99,32 @@ public class EventManager implements FCoreService {
         // Регистрируем слушателя в Bukkit
         registerCustomHandlers(listener);
         
-        // Добавляем в список зарегистрированных слушателей
-        registeredListeners.add(listener);
-        
         logger.info("Слушатель " + listener.getClass().getName() + " зарегистрирован");
     }
     
     /**
-     * Регистрирует слушателя с учетом аннотаций @Priority и @IgnoreCancelled
+     * Регистрирует обработчики объекта, который включается и выключается во время работы сервера
+     * (например, триггера). В отличие от {@link #registerListener(Listener)} зависимости не внедряются,
+     * слушатель не запоминается и регистрация не пишется в журнал на уровне INFO
+     * @param listener экземпляр слушателя
+     */
+    public void registerHandlers(Listener listener) {
+        registerCustomHandlers(listener);
+        logger.fine("Обработчики " + listener.getClass().getName() + " зарегистрированы");
+    }
+    
+    /**
+     * Отменяет регистрацию обработчиков, зарегистрированных через {@link #registerHandlers(Listener)}
+     * @param listener экземпляр слушателя
+     */
+    public void unregisterHandlers(Listener listener) {
+        HandlerList.unregisterAll(listener);
+        coalescer.remove(listener);
+        logger.fine("Обработчики " + listener.getClass().getName() + " отменены");
+    }
+    
+    /**
+     * Регистрирует слушателя с учетом аннотаций @Priority, @IgnoreCancelled и @Coalesce
      * @param listener экземпляр слушателя
      */
     private void registerCustomHandlers(Listener listener) {
@@ -91,17 +142,17 @@ public class EventManager implements FCoreService {
             Set<RegisteredHandler> eventHandlers = entry.getValue();
             
             for (RegisteredHandler handler : eventHandlers) {
-                EventExecutor executor = (l, event) -> {
-                    if (!eventClass.isInstance(event)) return;
-                    if (handler.ignoreCancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled()) return;
-                    
-                    try {
-                        handler.method.invoke(listener, event);
-                    } catch (Exception e) {
-                        logger.severe("Ошибка при обработке события " + event.getEventName() + ": " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                };
+                EventExecutor executor;
+                try {
+                    Coalesce coalesce = handler.method.getAnnotation(Coalesce.class);
+                    EventCoalescer.Filter filter = coalesce != null ? coalescer.create(listener, coalesce, eventClass) : null;
+                    executor = new CompiledEventExecutor(eventClass, CompiledEventExecutor.compile(handler.method),
+                            handlerName(handler.method, eventClass), logger, profiler, filter);
+                } catch (IllegalAccessException e) {
+                    logger.log(Level.SEVERE, "Не удалось подготовить обработчик " + handler.method.getName() +
+                            " в классе " + listener.getClass().getName(), e);
+                    continue;
+                }
                 
                 Bukkit.getPluginManager().registerEvent(
                     eventClass,
@@ -119,6 +170,17 @@ public class EventManager implements FCoreService {
         }
     }
     
+    /**
+     * Имя обработчика для профилировщика и журнала: полное имя класса, метод и тип события,
+     * чтобы перегруженные методы и одноименные классы разных плагинов не смешивались
+     * @param method метод-обработчик
+     * @param eventClass класс события
+     * @return имя вида com.example.Listener.onEvent(org.bukkit.event.player.PlayerJoinEvent)
+     */
+    private static String handlerName(Method method, Class<? extends Event> eventClass) {
+        return method.getDeclaringClass().getName() + "." + method.getName() + "(" + eventClass.getName() + ")";
+    }
+    
     /**
      * Находит все методы-обработчики событий в классе слушателя
      * @param listener экземпляр слушателя
@@ -191,6 +253,7 @@ public class EventManager implements FCoreService {
     public void unregisterAllListeners() {
         HandlerList.unregisterAll(plugin);
         registeredListeners.clear();
+        coalescer.clear();
         logger.info("Все слушатели отменены");
     }
     
@@ -201,19 +264,56 @@ public class EventManager implements FCoreService {
     public void unregisterListener(Listener listener) {
         HandlerList.unregisterAll(listener);
         registeredListeners.remove(listener);
+        coalescer.remove(listener);
         logger.info("Слушатель " + listener.getClass().getName() + " отменен");
     }
     
     /**
-     * Вызывает кастомное событие
+     * Вызывает кастомное событие. События, помеченные {@link AsyncEvent}, ставятся в асинхронную
+     * очередь, и метод возвращает управление сразу, не дожидаясь обработчиков
      * @param event экземпляр события
-     * @return true если событие не было отменено
+     * @return true если событие не было отменено (для асинхронных событий - если оно принято в очередь)
      */
     public boolean callEvent(FCoreEvent event) {
+        if (event.isDispatchedAsync()) {
+            if (!event.isAsynchronous()) {
+                throw new IllegalStateException("Событие " + event.getEventName() +
+                        " помечено @AsyncEvent и должно создаваться как асинхронное (super(true))");
+            }
+            if (asyncLane == null) {
+                throw new IllegalStateException("Менеджер событий еще не запущен");
+            }
+            return asyncLane.submit(event);
+        }
+        
         Bukkit.getPluginManager().callEvent(event);
         return !event.isCancelled();
     }
     
+    /**
+     * Получает асинхронную очередь событий
+     * @return очередь или null, если менеджер не запущен
+     */
+    public AsyncEventLane getAsyncLane() {
+        return asyncLane;
+    }
+    
+    /**
+     * Получает фильтры частых событий
+     * @return фильтры @Coalesce
+     */
+    public EventCoalescer getCoalescer() {
+        return coalescer;
+    }
+    
+    /**
+     * Получает профилировщик обработчиков событий
+     * @return профилировщик
+     */
+    public EventProfiler getProfiler() {
+        return profiler;
+    }
+    
     /**
      * Получает список всех зарегистрированных слушателей
      * @return множество слушателей
@@ -234,8 +334,6 @@ public class EventManager implements FCoreService {
             this.method = method;
             this.priority = priority;
             this.ignoreCancelled = ignoreCancelled;
-            // Делаем метод доступным для вызова
-            this.method.setAccessible(true);
         }
     }
 } 
\ No newline at end of file
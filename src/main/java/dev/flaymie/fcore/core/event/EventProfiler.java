@@ -0,0 +1,286 @@
+package dev.flaymie.fcore.core.event;
+
+import dev.flaymie.fcore.FCore;
+import org.bukkit.event.Event;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Профилировщик обработчиков событий: время и выделение памяти по каждому методу-обработчику
+ * и число событий каждого класса за тик. Пока профилировщик выключен, исполнитель обработчика
+ * делает только одну проверку volatile-флага
+ */
+public class EventProfiler {
+
+    private final FCore plugin;
+    private final Map<String, HandlerProfile> handlers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, EventProfile> events = new ConcurrentHashMap<>();
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    private volatile boolean enabled;
+    private volatile long ticks;
+    private volatile long enabledAt;
+    // Время сбора статистики в прошлых периодах включения
+    private volatile long collectedMillis;
+    // Учет выделенной памяти включен профилировщиком и выключается вместе с ним
+    private boolean allocationEnabledByProfiler;
+    private BukkitTask tickTask;
+
+    public EventProfiler(FCore plugin) {
+        this.plugin = plugin;
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean bean = null;
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) threadBean;
+            if (!bean.isThreadAllocatedMemorySupported()) {
+                bean = null;
+            }
+        }
+        this.allocationBean = bean;
+    }
+
+    /**
+     * Включает сбор статистики
+     */
+    public synchronized void enable() {
+        if (enabled) {
+            return;
+        }
+        // Учет выделенной памяти включается для всей JVM, поэтому только вместе с профилировщиком
+        if (allocationBean != null && !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+            allocationEnabledByProfiler = true;
+        }
+        enabledAt = System.currentTimeMillis();
+        tickTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        enabled = true;
+    }
+
+    /**
+     * Выключает сбор статистики, накопленные данные и время сбора сохраняются.
+     * Учет выделенной памяти возвращается в состояние до включения
+     */
+    public synchronized void disable() {
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        collectedMillis += System.currentTimeMillis() - enabledAt;
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        if (allocationEnabledByProfiler) {
+            allocationBean.setThreadAllocatedMemoryEnabled(false);
+            allocationEnabledByProfiler = false;
+        }
+    }
+
+    /**
+     * Сбрасывает накопленную статистику
+     */
+    public synchronized void reset() {
+        handlers.values().forEach(HandlerProfile::reset);
+        events.clear();
+        ticks = 0;
+        collectedMillis = 0;
+        enabledAt = System.currentTimeMillis();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Возвращает профиль обработчика, создавая его при регистрации
+     * @param handlerName имя обработчика вида pkg.Class.method(pkg.Event)
+     * @return профиль
+     */
+    HandlerProfile handler(String handlerName) {
+        return handlers.computeIfAbsent(handlerName, HandlerProfile::new);
+    }
+
+    /**
+     * Отмечает событие; повторные вызовы для того же объекта события не учитываются
+     * @param event событие
+     */
+    void countEvent(Event event) {
+        events.computeIfAbsent(event.getClass(), EventProfile::new).count(event);
+    }
+
+    /**
+     * Текущее число выделенных потоком байт или -1, если JVM это не поддерживает
+     * @return счетчик выделенной памяти
+     */
+    long allocatedBytes() {
+        return allocationBean != null ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    private void tick() {
+        ticks++;
+        for (EventProfile profile : events.values()) {
+            profile.rollTick();
+        }
+    }
+
+    /**
+     * Профили обработчиков, отсортированные по суммарному времени
+     * @return список профилей с хотя бы одним вызовом
+     */
+    public List<HandlerProfile> getHandlerProfiles() {
+        List<HandlerProfile> result = new ArrayList<>();
+        for (HandlerProfile profile : handlers.values()) {
+            if (profile.getInvocations() > 0) {
+                result.add(profile);
+            }
+        }
+        result.sort(Comparator.comparingLong(HandlerProfile::getTotalNanos).reversed());
+        return result;
+    }
+
+    /**
+     * Профили классов событий, отсортированные по количеству
+     * @return список профилей
+     */
+    public List<EventProfile> getEventProfiles() {
+        List<EventProfile> result = new ArrayList<>(events.values());
+        result.sort(Comparator.comparingLong(EventProfile::getCount).reversed());
+        return result;
+    }
+
+    /**
+     * Количество тиков с момента включения или сброса
+     * @return тики
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Время сбора статистики: периоды, когда профилировщик был выключен, не учитываются
+     * @return миллисекунды сбора с момента сброса
+     */
+    public long getElapsedMillis() {
+        return enabled ? collectedMillis + System.currentTimeMillis() - enabledAt : collectedMillis;
+    }
+
+    public boolean isAllocationSupported() {
+        return allocationBean != null;
+    }
+
+    /**
+     * Статистика одного метода-обработчика
+     */
+    public static final class HandlerProfile {
+        private final String name;
+        private final AtomicLong invocations = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+
+        HandlerProfile(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long allocated) {
+            invocations.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            if (allocated > 0) {
+                allocatedBytes.addAndGet(allocated);
+            }
+
+            long max;
+            while (nanos > (max = maxNanos.get())) {
+                if (maxNanos.compareAndSet(max, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        void reset() {
+            invocations.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+            allocatedBytes.set(0);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getInvocations() {
+            return invocations.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getAverageMicros() {
+            long count = invocations.get();
+            return count == 0 ? 0 : totalNanos.get() / 1000.0 / count;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes.get();
+        }
+    }
+
+    /**
+     * Количество событий одного класса
+     */
+    public static final class EventProfile {
+        private final Class<?> eventClass;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong currentTick = new AtomicLong();
+        private volatile long maxPerTick;
+        // Последнее учтенное событие: один объект события проходит через несколько обработчиков
+        private volatile Object lastEvent;
+
+        EventProfile(Class<?> eventClass) {
+            this.eventClass = eventClass;
+        }
+
+        void count(Object event) {
+            if (lastEvent == event) {
+                return;
+            }
+            lastEvent = event;
+            count.incrementAndGet();
+            currentTick.incrementAndGet();
+        }
+
+        void rollTick() {
+            long value = currentTick.getAndSet(0);
+            if (value > maxPerTick) {
+                maxPerTick = value;
+            }
+            lastEvent = null;
+        }
+
+        public String getName() {
+            return eventClass.getSimpleName();
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMaxPerTick() {
+            return maxPerTick;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package dev.flaymie.fcore.core.event;
+
+/**
+ * Прямой вызов метода-обработчика события, собранный один раз при регистрации слушателя
+ */
+@FunctionalInterface
+public interface HandlerInvoker {
+
+    /**
+     * Вызывает обработчик
+     * @param listener экземпляр слушателя
+     * @param event событие
+     * @throws Throwable исключение, выброшенное обработчиком, без обертки
+     */
+    void invoke(Object listener, Object event) throws Throwable;
+}
@@ -0,0 +1,158 @@
+package dev.flaymie.fcore.core.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Индекс компонентов FCore, собранный при компиляции {@link ComponentIndexProcessor}.
+ * Файл {@value #PATH} читается один раз при запуске вместо обхода JAR каждым сканером;
+ * классы загружаются без инициализации и только те, что перечислены в индексе
+ */
+public class ComponentIndex {
+
+    public static final String PATH = "META-INF/fcore/index";
+
+    /**
+     * Вид компонента: ключ в файле индекса и аннотация, по которой он попадает в индекс
+     */
+    public enum Kind {
+        SERVICE("service", "dev.flaymie.fcore.api.annotation.Service"),
+        LISTENER("listener", "dev.flaymie.fcore.api.annotation.EventListener"),
+        COMMAND("command", "dev.flaymie.fcore.api.annotation.Command"),
+        SUBCOMMAND("subcommand", "dev.flaymie.fcore.api.annotation.Subcommand");
+
+        private final String key;
+        private final String annotation;
+
+        Kind(String key, String annotation) {
+            this.key = key;
+            this.annotation = annotation;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getAnnotation() {
+            return annotation;
+        }
+
+        static Kind byKey(String key) {
+            for (Kind kind : values()) {
+                if (kind.key.equals(key)) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ClassLoader classLoader;
+    private final Logger logger;
+    private final Map<Kind, Set<String>> classNames;
+
+    private ComponentIndex(ClassLoader classLoader, Logger logger, Map<Kind, Set<String>> classNames) {
+        this.classLoader = classLoader;
+        this.logger = logger;
+        this.classNames = classNames;
+    }
+
+    /**
+     * Читает индекс из ресурсов загрузчика
+     * @param classLoader загрузчик классов плагина
+     * @param logger логгер
+     * @return индекс или null, если файла нет (сборка без процессора аннотаций)
+     */
+    public static ComponentIndex load(ClassLoader classLoader, Logger logger) {
+        Map<Kind, Set<String>> classNames = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            classNames.put(kind, new LinkedHashSet<>());
+        }
+
+        try (InputStream input = classLoader.getResourceAsStream(PATH)) {
+            if (input == null) {
+                return null;
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                int space = line.indexOf(' ');
+                Kind kind = space > 0 ? Kind.byKey(line.substring(0, space)) : null;
+                if (kind == null) {
+                    logger.warning("Неизвестная строка в индексе компонентов: " + line);
+                    continue;
+                }
+                classNames.get(kind).add(line.substring(space + 1).trim());
+            }
+        } catch (IOException e) {
+            logger.warning("Не удалось прочитать индекс компонентов: " + e.getMessage());
+            return null;
+        }
+
+        return new ComponentIndex(classLoader, logger, classNames);
+    }
+
+    /**
+     * Загружает классы указанного вида без их инициализации
+     * @param kind вид компонента
+     * @return классы из индекса
+     */
+    public List<Class<?>> getClasses(Kind kind) {
+        List<Class<?>> classes = new ArrayList<>();
+        for (String className : classNames.get(kind)) {
+            try {
+                classes.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.warning("Не удалось загрузить класс " + className + " из индекса: " + e.getMessage());
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Получает имена классов указанного вида
+     * @param kind вид компонента
+     * @return имена классов
+     */
+    public Set<String> getClassNames(Kind kind) {
+        return Collections.unmodifiableSet(classNames.get(kind));
+    }
+
+    /**
+     * Проверяет, описывает ли индекс класс: индекс собран для классов, загруженных этим же загрузчиком
+     * @param clazz класс
+     * @return true если класс скомпилирован вместе с индексом
+     */
+    public boolean covers(Class<?> clazz) {
+        return clazz.getClassLoader() == classLoader;
+    }
+
+    /**
+     * Общее количество записей в индексе
+     * @return количество классов
+     */
+    public int size() {
+        int size = 0;
+        for (Set<String> names : classNames.values()) {
+            size += names.size();
+        }
+        return size;
+    }
+}
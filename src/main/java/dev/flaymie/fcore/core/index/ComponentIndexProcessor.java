@@ -0,0 +1,101 @@
+package dev.flaymie.fcore.core.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Процессор аннотаций, записывающий при компиляции индекс {@value ComponentIndex#PATH}
+ * с классами, помеченными @Service, @EventListener и @Command, и классами с методами @Subcommand.
+ * Подключается в pom.xml отдельным шагом компиляции
+ */
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    private final Map<ComponentIndex.Kind, Set<String>> classNames = new EnumMap<>(ComponentIndex.Kind.class);
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        Set<String> types = new HashSet<>();
+        for (ComponentIndex.Kind kind : ComponentIndex.Kind.values()) {
+            types.add(kind.getAnnotation());
+        }
+        return types;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            ComponentIndex.Kind kind = kindOf(annotation.getQualifiedName().toString());
+            if (kind == null) {
+                continue;
+            }
+
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                TypeElement type = enclosingType(element);
+                if (type != null) {
+                    classNames.computeIfAbsent(kind, k -> new TreeSet<>())
+                            .add(processingEnv.getElementUtils().getBinaryName(type).toString());
+                }
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private ComponentIndex.Kind kindOf(String annotationName) {
+        for (ComponentIndex.Kind kind : ComponentIndex.Kind.values()) {
+            if (kind.getAnnotation().equals(annotationName)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    private TypeElement enclosingType(Element element) {
+        while (element != null && !element.getKind().isClass() && element.getKind() != ElementKind.INTERFACE) {
+            element = element.getEnclosingElement();
+        }
+        return (TypeElement) element;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.PATH);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# Индекс компонентов FCore, создается при компиляции\n");
+                for (Map.Entry<ComponentIndex.Kind, Set<String>> entry : classNames.entrySet()) {
+                    for (String className : entry.getValue()) {
+                        writer.write(entry.getKey().getKey() + " " + className + "\n");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Не удалось записать " + ComponentIndex.PATH + ": " + e.getMessage());
+        }
+    }
+}
@@ -312,7 +312,37 @@ public class PermissionManagerImpl implements PermissionManager {
      * @return хранилище прав
      */
     private UserPermissionHolder getUserPermissions(Player player) {
-        return userPermissions.computeIfAbsent(player.getUniqueId(), id -> new UserPermissionHolder(player));
+        return loadUser(player.getUniqueId(), player.getName());
+    }
+    
+    @Override
+    public UserPermissionHolder loadUser(UUID playerId, String playerName) {
+        return userPermissions.computeIfAbsent(playerId, id -> {
+            // Права и группы игрока из секции users файла прав
+            FileConfiguration config = permissionsConfig;
+            ConfigurationSection userSection = config != null ? config.getConfigurationSection("users." + id) : null;
+            if (userSection == null) {
+                return new UserPermissionHolder(id, playerName);
+            }
+            
+            Map<String, Object> data = new HashMap<>();
+            ConfigurationSection permsSection = userSection.getConfigurationSection("permissions");
+            if (permsSection != null) {
+                // Права с точками хранятся вложенными секциями: берем только конечные boolean-значения
+                Map<String, Boolean> permissions = new HashMap<>();
+                for (String permission : permsSection.getKeys(true)) {
+                    if (permsSection.isBoolean(permission)) {
+                        permissions.put(permission, permsSection.getBoolean(permission));
+                    }
+                }
+                data.put("permissions", permissions);
+            }
+            List<String> userGroups = userSection.getStringList("groups");
+            if (!userGroups.isEmpty()) {
+                data.put("groups", userGroups);
+            }
+            return new UserPermissionHolder(id, playerName, data);
+        });
     }
     
     /**